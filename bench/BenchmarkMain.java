@@ -0,0 +1,103 @@
+/**
+ * @(#)BenchmarkMain.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+//JMH runner
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+//Java utilities
+import java.util.Optional;
+
+
+/**
+ * Runs every benchmark of the game headless and writes the results as
+ * JSON, so runs of two releases can be compared by a script.
+ * <p>
+ * The benchmarks live in the <code>bench</code> source folder next to
+ * <code>src</code> and need the JMH core and annotation processor jars
+ * on the class path when they are compiled. With those jars in
+ * <code>lib</code>, from the project directory:
+ * <pre>
+ *   javac -cp "lib/*" -d bench-bin src/*.java bench/*.java
+ *   javac --release 17 --add-modules jdk.incubator.vector -cp bench-bin -d bench-bin vector/VectorKernel.java
+ *   java -cp "bench-bin:lib/*" BenchmarkMain [result file] [benchmark regex]
+ * </pre>
+ * The second step needs Java 17 or later and may be left out. Each
+ * benchmark is run with the GC profiler, so the JSON holds the
+ * allocation rate per operation next to the throughput. When this JDK
+ * has the module <code>jdk.incubator.vector</code>, the benchmark JVMs
+ * are started with it, so the vector {@link RowKernel} can be loaded.
+ * Without the module or the compiled <code>VectorKernel</code>, the
+ * {@link KernelBenchmark} is only run with the scalar kernel and a
+ * notice says so.
+ *
+ */
+public class BenchmarkMain {
+
+ /** File the results are written to when none is given */
+ public static final String DEFAULT_RESULT = "jmh-result.json";
+
+ /** Module of the Vector API */
+ public static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+ /** Class of the vector {@link RowKernel}, compiled on its own */
+ public static final String VECTOR_KERNEL = "VectorKernel";
+
+
+ /**
+  * Runs the benchmarks.
+  *
+  * @param args Optional result file, then an optional regular
+  *   expression picking the benchmarks to run
+  *
+  */
+ public static void main(String[] args) throws RunnerException {
+  String result = args.length > 0 ? args[0] : DEFAULT_RESULT;
+  String include = args.length > 1 ? args[1] : ".*Benchmark.*";
+  boolean vector = hasModule(VECTOR_MODULE);
+  String[] jvmArgs = vector
+          ? new String[] {"-Djava.awt.headless=true", "--add-modules=" + VECTOR_MODULE}
+          : new String[] {"-Djava.awt.headless=true"};
+  String[] kernels = {"scalar", "vector"};
+  if (!vector || BenchmarkMain.class.getClassLoader().getResource(VECTOR_KERNEL + ".class") == null) {
+   System.err.println("Vector kernel not benchmarked: needs Java 17+ with " + VECTOR_MODULE
+           + " and " + VECTOR_KERNEL + " compiled into the class path");
+   kernels = new String[] {"scalar"};
+  }
+  Options options = new OptionsBuilder()
+          .include(include)
+          .param("kernel", kernels)
+          .jvmArgsAppend(jvmArgs)
+          .addProfiler(GCProfiler.class)
+          .forks(1)
+          .warmupIterations(3)
+          .measurementIterations(5)
+          .resultFormat(ResultFormatType.JSON)
+          .result(result)
+          .build();
+  new Runner(options).run();
+ }
+
+ /**
+  * Returns true if the JDK running this holds the given system module.
+  * Modules came with Java 9, so they are looked up by reflection.
+  */
+ private static boolean hasModule(String name) {
+  try {
+   Class<?> finder = Class.forName("java.lang.module.ModuleFinder");
+   Object system = finder.getMethod("ofSystem").invoke(null);
+   return ((Optional<?>) finder.getMethod("find", String.class).invoke(system, name)).isPresent();
+  } catch (ReflectiveOperationException e) {
+   return false;
+  }
+ }
+}
@@ -0,0 +1,113 @@
+/**
+ * @(#)BoardBenchmark.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+//JMH annotations
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+//Java utilities
+import java.util.Random;
+import java.util.SplittableRandom;
+
+
+/**
+ * Benchmarks the hot paths of the game model: pressing a light, starting
+ * a new game and checking for a win. These are the calls the view
+ * delegates to through the {@link GameModel}:
+ * {@link GameModel#press(int, int)} presses the {@link Board} with
+ * {@link Board#toggleAdjacentLights(int, int)}, {@link GameModel#reset()}
+ * and the first game of a model fill it with
+ * {@link PuzzleGenerator#fill(Board, int, SplittableRandom)}, and
+ * {@link LightGrid#getNumberOfLightsOn()} reads its light counter. They
+ * are measured without a window so they can run with
+ * <code>java.awt.headless=true</code>. The solve that a new game also
+ * runs for the live hint is measured by the {@link SolverBenchmark}.
+ *
+ */
+@State(Scope.Thread)
+public class BoardBenchmark {
+
+ /** Number of cells in a row/column of the board */
+ @Param({"5", "25", "100", "1000"})
+ public int size;
+
+ /** Board under test */
+ private Board board;
+
+ /** Source of random bits for new games */
+ private SplittableRandom random;
+
+ /** Generator of new games, as the game model uses it */
+ private PuzzleGenerator generator;
+
+ /** Cells to press, packed as r * size + c, pressed in turn */
+ private int[] cells;
+
+ /** Index of the next cell to press */
+ private int next;
+
+
+ /**
+  * Creates a board with random lights and a fixed list of random
+  * cells to press, so every iteration presses the same cells.
+  */
+ @Setup(Level.Trial)
+ public void setUp() {
+  Random lights = new Random(42);
+  this.random = new SplittableRandom(42);
+  this.generator = new PuzzleGenerator(this.size, this.size);
+  this.board = new Board(this.size, this.size);
+  this.board.randomize(lights);
+  this.cells = new int[1024];
+  for (int i = 0; i < this.cells.length; i++) {
+   this.cells[i] = lights.nextInt(this.size * this.size);
+  }
+ }
+
+ /**
+  * Presses one light and its neighbours
+  */
+ @Benchmark
+ public int toggleAdjacentLights() {
+  int cell = this.cells[this.next];
+  this.next = (this.next + 1) & (this.cells.length - 1);
+  this.board.toggleAdjacentLights(cell / this.size, cell % this.size);
+  return this.board.getNumberOfLightsOn();
+ }
+
+ /**
+  * Fills the board with a new puzzle that can be solved, like a reset
+  */
+ @Benchmark
+ public int reset() {
+  this.generator.fill(this.board, PuzzleGenerator.UNIFORM, this.random);
+  return this.board.getNumberOfLightsOn();
+ }
+
+ /**
+  * Builds a new board and fills it, like the first game of a model
+  */
+ @Benchmark
+ public Board initializeLights() {
+  Board fresh = new Board(this.size, this.size);
+  this.generator.fill(fresh, PuzzleGenerator.UNIFORM, this.random);
+  return fresh;
+ }
+
+ /**
+  * Checks for a win the way the control panel does
+  */
+ @Benchmark
+ public boolean winDetection() {
+  return this.board.getNumberOfLightsOn() == 0;
+ }
+}
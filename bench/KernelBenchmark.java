@@ -0,0 +1,97 @@
+/**
+ * @(#)KernelBenchmark.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+//JMH annotations
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+//Java utilities
+import java.util.Arrays;
+
+
+/**
+ * Benchmarks the two {@link RowKernel} back ends on the same inputs:
+ * the row reduction of the press matrix of a torus, and its product
+ * with a fixed vector. A torus is used because the classic board is
+ * solved by light chasing once it is large, while other topologies go
+ * through the matrix.
+ * <p>
+ * The vector kernel must be compiled into the class path and the
+ * benchmark JVM started with <code>--add-modules jdk.incubator.vector</code>;
+ * {@link BenchmarkMain} adds that flag when the module is there, and
+ * only runs the scalar kernel when it is not.
+ *
+ */
+@State(Scope.Thread)
+public class KernelBenchmark {
+
+ /** Back end under test */
+ @Param({"scalar", "vector"})
+ public String kernel;
+
+ /** Number of cells in a row/column of the torus */
+ @Param({"32", "48", "64"})
+ public int size;
+
+ /** Press matrix of the torus, never changed */
+ private BitMatrix press;
+
+ /** Copy of the press matrix that is reduced on every call */
+ private BitMatrix work;
+
+ /** Pivot columns written by the reduction */
+ private int[] pivotCols;
+
+ /** Vector the press matrix is multiplied with */
+ private long[] x;
+
+
+ /**
+  * Builds the press matrix and picks the kernel
+  */
+ @Setup(Level.Trial)
+ public void setUp() {
+  RowKernel k = RowKernel.forName(this.kernel);
+  Topology topology = new Topology(this.size, this.size, Topology.Neighbourhood.PLUS, true, true);
+  this.press = topology.pressMatrix(0);
+  this.press.setKernel(k);
+  this.work = topology.pressMatrix(0);
+  this.work.setKernel(k);
+  this.pivotCols = new int[this.size * this.size];
+  this.x = new long[this.press.getWordsPerRow()];
+  Arrays.fill(this.x, 0x5DEECE66DL * 0x9E3779B97F4A7C15L);
+ }
+
+ /**
+  * Puts the press matrix back into the copy that is reduced
+  */
+ @Setup(Level.Invocation)
+ public void reload() {
+  System.arraycopy(this.press.getData(), 0, this.work.getData(), 0, this.press.getData().length);
+ }
+
+ /**
+  * Brings the press matrix to row echelon form
+  */
+ @Benchmark
+ public int echelon() {
+  return this.work.echelon(this.size * this.size, this.pivotCols);
+ }
+
+ /**
+  * Multiplies the press matrix with a vector
+  */
+ @Benchmark
+ public long[] multiply() {
+  return this.press.multiply(this.x);
+ }
+}
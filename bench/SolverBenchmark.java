@@ -0,0 +1,59 @@
+/**
+ * @(#)SolverBenchmark.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+//JMH annotations
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+//Java utilities
+import java.util.Random;
+
+
+/**
+ * Benchmarks solving a single board with the solver behind the Hint
+ * button. Small boards go through the sequential {@link Solver}, large
+ * ones through the light chasing of the {@link ParallelSolver}, exactly
+ * as they would in the game.
+ *
+ */
+@State(Scope.Thread)
+public class SolverBenchmark {
+
+ /** Number of cells in a row/column of the board */
+ @Param({"5", "25", "100", "1000"})
+ public int size;
+
+ /** Solver under test */
+ private Solver solver;
+
+ /** Board that is solved on every call */
+ private Board board;
+
+
+ /**
+  * Creates the solver and a board with random lights
+  */
+ @Setup(Level.Trial)
+ public void setUp() {
+  this.solver = new ParallelSolver();
+  this.board = new Board(this.size, this.size);
+  this.board.randomize(new Random(42));
+ }
+
+ /**
+  * Solves the board, or finds out that it cannot be solved
+  */
+ @Benchmark
+ public Board solve() {
+  return this.solver.solve(this.board);
+ }
+}
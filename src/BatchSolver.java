@@ -0,0 +1,213 @@
+/**
+ * @(#)BatchSolver.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+//Java utilities
+import java.util.Arrays;
+
+
+/**
+ * Implements a solver for many boards that all have the same size.
+ * <p>
+ * The press matrix only depends on the size, so its inverse is worked
+ * out once in a {@link PressInverse}. After that, solving a board is a
+ * matrix-vector product <code>x = P b</code>. Instead of doing that
+ * product once per board, the boards are stored "bit-sliced": word
+ * <code>i</code> of a slice holds cell <code>i</code> of 64 boards, one
+ * bit (lane) per board. Adding a column of <code>P</code> is then one
+ * XOR of a whole word, which does the work for all 64 boards at once.
+ *
+ */
+public class BatchSolver {
+
+ /** Number of boards solved together in one slice */
+ public static final int LANES = 64;
+
+ /** Number of rows of every board in the batch */
+ private final int rows;
+
+ /** Number of columns of every board in the batch */
+ private final int cols;
+
+ /** Inverse of the press matrix for this size */
+ private final PressInverse inverse;
+
+
+ /**
+  * Creates a batch solver for the size of the game grid.
+  */
+ public BatchSolver() {
+  this(LightGrid.CELLS, LightGrid.CELLS);
+ }
+
+ /**
+  * Creates a batch solver for boards of the given size. The
+  * elimination for the size happens here, unless the shared
+  * {@link InverseCache} already holds it.
+  *
+  * @param rows Number of rows of every board
+  *
+  * @param cols Number of columns of every board
+  *
+  */
+ public BatchSolver(int rows, int cols) {
+  this(InverseCache.shared().get(Topology.classic(rows, cols)));
+ }
+
+ /**
+  * Creates a batch solver from an inverse that was already
+  * worked out.
+  *
+  * @param inverse Inverse of the press matrix for the size
+  *
+  */
+ public BatchSolver(PressInverse inverse) {
+  this.rows = inverse.getRows();
+  this.cols = inverse.getCols();
+  this.inverse = inverse;
+ }
+
+ /**
+  * Solves up to 64 boards given in bit-sliced form.
+  *
+  * @param lights Word i holds cell i of each board, one lane
+  *   per board, must have rows * cols words
+  *
+  * @param presses Filled with the press set in the same form,
+  *   must have rows * cols words
+  *
+  * @return Mask of the lanes whose board cannot be solved. The
+  *   presses of those lanes are meaningless.
+  *
+  */
+ public long solveSliced(long[] lights, long[] presses) {
+  multiply(this.inverse.getInverse(), lights, presses);
+
+  //A board is unsolvable if any check row picks an odd number of lights
+  BitMatrix checks = this.inverse.getChecks();
+  long unsolvable = 0L;
+  long[] data = checks.getData();
+  int wordsPerRow = checks.getWordsPerRow();
+  for (int k = 0; k < checks.getRows(); k++) {
+   unsolvable |= dotSliced(data, k * wordsPerRow, wordsPerRow, lights);
+  }
+  return unsolvable;
+ }
+
+ /**
+  * Solves any number of boards of this size, 64 at a time.
+  *
+  * @param boards Boards to solve, they are not changed
+  *
+  * @return Press set for each board, or <code>null</code> for
+  *   the boards that cannot be solved
+  *
+  */
+ public Board[] solve(Board[] boards) {
+  int n = this.rows * this.cols;
+  Board[] result = new Board[boards.length];
+  long[] lights = new long[n];
+  long[] presses = new long[n];
+  for (int start = 0; start < boards.length; start += LANES) {
+   int count = Math.min(LANES, boards.length - start);
+   Arrays.fill(lights, 0L);
+   for (int lane = 0; lane < count; lane++) {
+    this.slice(boards[start + lane], lane, lights);
+   }
+   long unsolvable = this.solveSliced(lights, presses);
+   for (int lane = 0; lane < count; lane++) {
+    if (((unsolvable >>> lane) & 1L) == 0) {
+     result[start + lane] = this.unslice(presses, lane);
+    }
+   }
+  }
+  return result;
+ }
+
+ /**
+  * Writes a board into one lane of a bit-sliced batch.
+  *
+  * @param board Board of this size
+  *
+  * @param lane Lane to write, 0 to 63
+  *
+  * @param lights Bit-sliced batch with rows * cols words
+  *
+  */
+ public void slice(Board board, int lane, long[] lights) {
+  if (board.getRows() != this.rows || board.getCols() != this.cols) {
+   throw new IllegalArgumentException("Board size " + board.getRows() + "x" + board.getCols()
+           + " does not match " + this.rows + "x" + this.cols);
+  }
+  long bit = 1L << lane;
+  for (int r = 0; r < this.rows; r++) {
+   for (int w = 0; w < board.getWordsPerRow(); w++) {
+    long word = board.getWord(r, w);
+    while (word != 0) {
+     int c = (w << 6) + Long.numberOfTrailingZeros(word);
+     lights[r * this.cols + c] |= bit;
+     word &= word - 1;
+    }
+   }
+  }
+ }
+
+ /**
+  * Reads one lane of a bit-sliced batch back into a board.
+  *
+  * @param sliced Bit-sliced batch with rows * cols words
+  *
+  * @param lane Lane to read, 0 to 63
+  *
+  * @return Board of this size holding that lane
+  *
+  */
+ public Board unslice(long[] sliced, int lane) {
+  Board board = new Board(this.rows, this.cols);
+  for (int i = 0; i < sliced.length; i++) {
+   if (((sliced[i] >>> lane) & 1L) != 0) {
+    board.toggle(i / this.cols, i % this.cols);
+   }
+  }
+  return board;
+ }
+
+ /**
+  * Multiplies a bit matrix with a bit-sliced vector: word i of the
+  * result is the XOR of the input words j where row i has a 1.
+  *
+  * @param m Matrix with as many columns as the input has words
+  *
+  * @param in Bit-sliced input vector
+  *
+  * @param out Filled with the bit-sliced result, one word per row
+  *
+  */
+ static void multiply(BitMatrix m, long[] in, long[] out) {
+  long[] data = m.getData();
+  int wordsPerRow = m.getWordsPerRow();
+  for (int i = 0; i < m.getRows(); i++) {
+   out[i] = dotSliced(data, i * wordsPerRow, wordsPerRow, in);
+  }
+ }
+
+ /**
+  * XOR of the input words picked by the bits of one matrix row.
+  */
+ private static long dotSliced(long[] data, int base, int wordsPerRow, long[] in) {
+  long acc = 0L;
+  for (int w = 0; w < wordsPerRow; w++) {
+   long bits = data[base + w];
+   int offset = w << 6;
+   while (bits != 0) {
+    acc ^= in[offset + Long.numberOfTrailingZeros(bits)];
+    bits &= bits - 1;
+   }
+  }
+  return acc;
+ }
+}
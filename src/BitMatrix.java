@@ -0,0 +1,477 @@
+/**
+ * @(#)BitMatrix.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+//Java utilities
+import java.util.Arrays;
+
+//Fork/join parallelism
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * Implements a dense matrix over GF(2), the field with only the
+ * numbers 0 and 1 where addition is XOR. Each row is stored as a
+ * bitset in <code>long</code> words, so adding one row to another
+ * is a loop of word-wide XORs instead of a loop over single cells.
+ * <p>
+ * This is the data structure the solver uses for the press matrix
+ * of a board. Column <code>j</code> of a row is held in bit
+ * <code>j % 64</code> of word <code>j / 64</code> of that row.
+ * <p>
+ * The loops over the words of a row run through a {@link RowKernel},
+ * which is SIMD code on JVMs that have the Vector API.
+ *
+ */
+public class BitMatrix {
+
+ /** Number of columns the parallel elimination eliminates together */
+ public static final int BLOCK_BITS = 8;
+
+ /** Fewest rows worth handing to their own fork/join task */
+ public static final int MIN_TASK_ROWS = 128;
+
+ /** Number of rows of the matrix */
+ private final int rows;
+
+ /** Number of columns of the matrix */
+ private final int cols;
+
+ /** Number of long words used to store a single row */
+ private final int wordsPerRow;
+
+ /** Matrix bits, row after row, each row taking wordsPerRow words */
+ private final long[] data;
+
+ /** Inner loops of the row operations */
+ private RowKernel kernel = RowKernel.get();
+
+
+ /**
+  * Creates a new matrix of the given size filled with zeros.
+  *
+  * @param rows Number of rows
+  *
+  * @param cols Number of columns
+  *
+  */
+ public BitMatrix(int rows, int cols) {
+  this.rows = rows;
+  this.cols = cols;
+  this.wordsPerRow = (cols + 63) >>> 6;
+  this.data = new long[rows * this.wordsPerRow];
+ }
+
+ /**
+  * Return number of rows of the matrix
+  */
+ public int getRows() {
+  return this.rows;
+ }
+
+ /**
+  * Return number of columns of the matrix
+  */
+ public int getCols() {
+  return this.cols;
+ }
+
+ /**
+  * Return number of long words used to store each row
+  */
+ public int getWordsPerRow() {
+  return this.wordsPerRow;
+ }
+
+ /**
+  * Return inner loops of the row operations
+  */
+ public RowKernel getKernel() {
+  return this.kernel;
+ }
+
+ /**
+  * Sets the inner loops of the row operations, for example to
+  * compare back ends on the same matrix
+  *
+  * @param kernel Kernel to use from now on
+  *
+  */
+ public void setKernel(RowKernel kernel) {
+  this.kernel = kernel;
+ }
+
+ /**
+  * Return the backing array of the matrix. Row <code>r</code>
+  * starts at index <code>r * getWordsPerRow()</code>.
+  */
+ long[] getData() {
+  return this.data;
+ }
+
+ /**
+  * Returns the bit at the given row and column
+  *
+  * @param r Row number
+  *
+  * @param c Column number
+  *
+  * @return true when the bit is 1
+  *
+  */
+ public boolean get(int r, int c) {
+  return ((this.data[r * this.wordsPerRow + (c >>> 6)] >>> c) & 1L) != 0;
+ }
+
+ /**
+  * Sets the bit at the given row and column
+  *
+  * @param r Row number
+  *
+  * @param c Column number
+  *
+  * @param value true for 1, false for 0
+  *
+  */
+ public void set(int r, int c, boolean value) {
+  int i = r * this.wordsPerRow + (c >>> 6);
+  if (value) {
+   this.data[i] |= 1L << c;
+  } else {
+   this.data[i] &= ~(1L << c);
+  }
+ }
+
+ /**
+  * Flips the bit at the given row and column
+  *
+  * @param r Row number
+  *
+  * @param c Column number
+  *
+  */
+ public void flip(int r, int c) {
+  this.data[r * this.wordsPerRow + (c >>> 6)] ^= 1L << c;
+ }
+
+ /**
+  * Returns one word of a row
+  *
+  * @param r Row number
+  *
+  * @param w Index of the word within the row
+  *
+  */
+ public long getWord(int r, int w) {
+  return this.data[r * this.wordsPerRow + w];
+ }
+
+ /**
+  * Adds (XORs) the source row into the destination row, starting
+  * at the given word. Words before <code>fromWord</code> are left
+  * alone, which lets elimination skip the columns that it already
+  * knows are zero in the source row.
+  *
+  * @param src Row that is added
+  *
+  * @param dst Row that is changed
+  *
+  * @param fromWord First word of the rows to XOR
+  *
+  */
+ public void xorRow(int src, int dst, int fromWord) {
+  this.kernel.xor(this.data, dst * this.wordsPerRow + fromWord, this.data, src * this.wordsPerRow + fromWord,
+          this.wordsPerRow - fromWord);
+ }
+
+ /**
+  * Multiplies the matrix with a vector over GF(2). Bit i of the
+  * result is the parity of row i ANDed with the vector.
+  *
+  * @param x Vector with at least getCols() bits
+  *
+  * @return Result with getRows() bits
+  *
+  */
+ public long[] multiply(long[] x) {
+  long[] out = new long[(this.rows + 63) >>> 6];
+  for (int r = 0; r < this.rows; r++) {
+   long parity = this.kernel.andXor(this.data, r * this.wordsPerRow, x, 0, this.wordsPerRow);
+   if ((Long.bitCount(parity) & 1) != 0) {
+    out[r >>> 6] |= 1L << r;
+   }
+  }
+  return out;
+ }
+
+ /**
+  * Swaps two rows of the matrix
+  *
+  * @param a First row
+  *
+  * @param b Second row
+  *
+  */
+ public void swapRows(int a, int b) {
+  if (a == b) {
+   return;
+  }
+  int x = a * this.wordsPerRow;
+  int y = b * this.wordsPerRow;
+  for (int w = 0; w < this.wordsPerRow; w++) {
+   long t = this.data[x + w];
+   this.data[x + w] = this.data[y + w];
+   this.data[y + w] = t;
+  }
+ }
+
+ /**
+  * Brings the first <code>colLimit</code> columns of the matrix into
+  * row echelon form with Gaussian elimination over GF(2). Columns from
+  * <code>colLimit</code> onwards (for example an augmented right hand
+  * side) are carried along with every row operation but never chosen
+  * as pivots.
+  * <p>
+  * On return, row <code>i</code> for <code>i &lt; rank</code> has its
+  * leading 1 in column <code>pivotCols[i]</code> and every row below it
+  * has a 0 in that column. Rows from <code>rank</code> onwards are zero
+  * in the first <code>colLimit</code> columns.
+  *
+  * @param colLimit Number of columns that may hold pivots
+  *
+  * @param pivotCols Filled with the pivot column of each pivot row,
+  *   must have room for at least min(rows, colLimit) entries
+  *
+  * @return Rank of the first colLimit columns
+  *
+  */
+ public int echelon(int colLimit, int[] pivotCols) {
+  int rank = 0;
+  for (int c = 0; c < colLimit && rank < this.rows; c++) {
+   int w = c >>> 6;
+   long bit = 1L << c;
+   int pivot = -1;
+   for (int r = rank; r < this.rows; r++) {
+    if ((this.data[r * this.wordsPerRow + w] & bit) != 0) {
+     pivot = r;
+     break;
+    }
+   }
+   if (pivot < 0) {
+    continue;
+   }
+   this.swapRows(pivot, rank);
+   for (int r = pivot + 1; r < this.rows; r++) {
+    if ((this.data[r * this.wordsPerRow + w] & bit) != 0) {
+     this.xorRow(rank, r, w);
+    }
+   }
+   pivotCols[rank++] = c;
+  }
+  return rank;
+ }
+
+ /**
+  * Brings the first <code>colLimit</code> columns of the matrix into
+  * reduced row echelon form (Gauss-Jordan elimination). This is the
+  * same as {@link #echelon(int, int[])}, except that afterwards each
+  * pivot column is also cleared in every row above its pivot, so a
+  * pivot column holds exactly one 1.
+  *
+  * @param colLimit Number of columns that may hold pivots
+  *
+  * @param pivotCols Filled with the pivot column of each pivot row
+  *
+  * @return Rank of the first colLimit columns
+  *
+  */
+ public int reducedEchelon(int colLimit, int[] pivotCols) {
+  int rank = this.echelon(colLimit, pivotCols);
+  for (int i = rank - 1; i > 0; i--) {
+   int p = pivotCols[i];
+   int w = p >>> 6;
+   long bit = 1L << p;
+   for (int r = 0; r < i; r++) {
+    if ((this.data[r * this.wordsPerRow + w] & bit) != 0) {
+     this.xorRow(i, r, w);
+    }
+   }
+  }
+  return rank;
+ }
+
+ /**
+  * Brings the first <code>colLimit</code> columns of the matrix into
+  * row echelon form like {@link #echelon(int, int[])}, but with the
+  * row updates spread over a fork/join pool.
+  * <p>
+  * This is the "Method of Four Russians": the columns are taken
+  * {@link #BLOCK_BITS} at a time. The pivots of a block are found and
+  * reduced against each other on a single thread, then every sum of
+  * those pivot rows is put in a table. Each row below the block only
+  * needs the bits it has in the pivot columns to pick the one table
+  * row that clears all of them, so the rows are independent of each
+  * other and are split into ranges that run in parallel.
+  * <p>
+  * The result satisfies the same contract as {@link #echelon(int, int[])},
+  * although the pivot rows may differ from the sequential version
+  * because pivots of one block are also cleared from each other.
+  *
+  * @param colLimit Number of columns that may hold pivots
+  *
+  * @param pivotCols Filled with the pivot column of each pivot row,
+  *   must have room for at least min(rows, colLimit) entries
+  *
+  * @param pool Pool that runs the row updates
+  *
+  * @return Rank of the first colLimit columns
+  *
+  */
+ public int echelon(int colLimit, int[] pivotCols, ForkJoinPool pool) {
+  long[] table = new long[(1 << BLOCK_BITS) * this.wordsPerRow];
+  int rank = 0;
+  for (int c0 = 0; c0 < colLimit && rank < this.rows; c0 += BLOCK_BITS) {
+   //A block never crosses a word because 64 is a multiple of BLOCK_BITS
+   int w = c0 >>> 6;
+   int end = Math.min(colLimit, c0 + BLOCK_BITS);
+   int first = rank;
+   for (int c = c0; c < end && rank < this.rows; c++) {
+    long bit = 1L << c;
+    int pivot = -1;
+    for (int r = rank; r < this.rows; r++) {
+     if ((this.reducedWord(r, w, pivotCols, first, rank) & bit) != 0) {
+      pivot = r;
+      break;
+     }
+    }
+    if (pivot < 0) {
+     continue;
+    }
+    this.reduceRow(pivot, w, pivotCols, first, rank);
+    this.swapRows(pivot, rank);
+    //Keep the pivots of the block free of each other's columns
+    for (int i = first; i < rank; i++) {
+     if ((this.data[i * this.wordsPerRow + w] & bit) != 0) {
+      this.xorRow(rank, i, w);
+     }
+    }
+    pivotCols[rank++] = c;
+   }
+   int count = rank - first;
+   if (count == 0 || rank == this.rows) {
+    continue;
+   }
+
+   //Entry i of the table is the sum of the pivot rows picked by the bits of i
+   for (int w2 = w; w2 < this.wordsPerRow; w2++) {
+    table[w2] = 0L;
+   }
+   for (int i = 1; i < (1 << count); i++) {
+    int t = i * this.wordsPerRow;
+    int prev = (i & (i - 1)) * this.wordsPerRow;
+    int src = (first + Integer.numberOfTrailingZeros(i)) * this.wordsPerRow;
+    this.kernel.sum(table, t + w, table, prev + w, this.data, src + w, this.wordsPerRow - w);
+   }
+   pool.invoke(new BlockUpdate(this, table, pivotCols, first, count, w, rank, this.rows));
+  }
+  return rank;
+ }
+
+ /**
+  * Returns one word of a row as it would be after reducing it by the
+  * pivot rows <code>first .. last - 1</code> of the current block.
+  * Those pivots are free of each other's columns, so which of them
+  * to add only depends on the bits the row starts with.
+  */
+ private long reducedWord(int r, int w, int[] pivotCols, int first, int last) {
+  long word = this.data[r * this.wordsPerRow + w];
+  long reduced = word;
+  for (int i = first; i < last; i++) {
+   if (((word >>> pivotCols[i]) & 1L) != 0) {
+    reduced ^= this.data[i * this.wordsPerRow + w];
+   }
+  }
+  return reduced;
+ }
+
+ /**
+  * Reduces a whole row by the pivot rows <code>first .. last - 1</code>
+  * of the current block, the same way as {@link #reducedWord}.
+  */
+ private void reduceRow(int r, int w, int[] pivotCols, int first, int last) {
+  long word = this.data[r * this.wordsPerRow + w];
+  for (int i = first; i < last; i++) {
+   if (((word >>> pivotCols[i]) & 1L) != 0) {
+    this.xorRow(i, r, w);
+   }
+  }
+ }
+
+ /**
+  * Fork/join task that clears the pivot columns of one block from a
+  * range of rows, using the table of pivot row sums. Ranges larger than
+  * {@link #MIN_TASK_ROWS} are split in half.
+  */
+ private static final class BlockUpdate extends RecursiveAction {
+
+  private final BitMatrix m;
+  private final long[] table;
+  private final int[] pivotCols;
+  private final int first;
+  private final int count;
+  private final int w;
+  private final int from;
+  private final int to;
+
+  BlockUpdate(BitMatrix m, long[] table, int[] pivotCols, int first, int count, int w, int from, int to) {
+   this.m = m;
+   this.table = table;
+   this.pivotCols = pivotCols;
+   this.first = first;
+   this.count = count;
+   this.w = w;
+   this.from = from;
+   this.to = to;
+  }
+
+  @Override protected void compute() {
+   if (this.to - this.from > MIN_TASK_ROWS) {
+    int mid = (this.from + this.to) >>> 1;
+    invokeAll(new BlockUpdate(this.m, this.table, this.pivotCols, this.first, this.count, this.w, this.from, mid),
+              new BlockUpdate(this.m, this.table, this.pivotCols, this.first, this.count, this.w, mid, this.to));
+    return;
+   }
+   long[] data = this.m.data;
+   int wordsPerRow = this.m.wordsPerRow;
+   for (int r = this.from; r < this.to; r++) {
+    int base = r * wordsPerRow;
+    long word = data[base + this.w];
+    int index = 0;
+    for (int j = 0; j < this.count; j++) {
+     index |= (int) ((word >>> this.pivotCols[this.first + j]) & 1L) << j;
+    }
+    if (index == 0) {
+     continue;
+    }
+    this.m.kernel.xor(data, base + this.w, this.table, index * wordsPerRow + this.w, wordsPerRow - this.w);
+   }
+  }
+ }
+
+ @Override public boolean equals(Object o) {
+  if (!(o instanceof BitMatrix)) {
+   return false;
+  }
+  BitMatrix other = (BitMatrix) o;
+  return other.rows == this.rows && other.cols == this.cols && Arrays.equals(other.data, this.data);
+ }
+
+ @Override public int hashCode() {
+  return 31 * (31 * this.rows + this.cols) + Arrays.hashCode(this.data);
+ }
+}
@@ -0,0 +1,531 @@
+/**
+ * @(#)Board.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+//Java utilities
+import java.util.Arrays;
+import java.util.Random;
+
+
+/**
+ * Implements the headless state of a Lights Out board. A Board knows
+ * nothing about Swing, it only remembers which cells are switched on
+ * and how a press changes them. The LightGrid renders a Board, but a
+ * Board can also be used on its own by simulations and the solver
+ * without ever touching a JButton or the event dispatch thread.
+ * <p>
+ * Each row of the board is stored as one or more <code>long</code>
+ * words, one bit per cell, with cell <code>c</code> of a row held in
+ * bit <code>c % 64</code> of word <code>c / 64</code>. A row of 5 cells
+ * only uses the low 5 bits of a single word, while a row of 200 cells
+ * uses 4 words. Bits past the last column are always kept at zero so
+ * that counting and comparing boards can work on whole words.
+ * <p>
+ * Toggling a cell and its neighbours is just a few XOR masks on those
+ * words, and the number of lights that are on is kept up to date with
+ * <code>Long.bitCount</code> of the words that changed.
+ * <p>
+ * Which cells a press toggles is set by the {@link Topology} of the
+ * board. The classic one is pressed with hard-coded masks; any other
+ * is pressed with the per-cell masks the topology compiles.
+ *
+ */
+public class Board {
+
+ /** Number of bits in one word of a row */
+ public static final int WORD_BITS = 64;
+
+ /** Number of rows on the board */
+ private final int rows;
+
+ /** Number of columns on the board */
+ private final int cols;
+
+ /** Number of long words used to store a single row */
+ private final int wordsPerRow;
+
+ /** Mask of the bits that are real cells in the last word of a row */
+ private final long lastWordMask;
+
+ /** Cell bits, row after row, each row taking wordsPerRow words */
+ private final long[] words;
+
+ /** Which cells a press toggles */
+ private final Topology topology;
+
+ /** Compiled masks of the topology, or null for the classic one */
+ private final Topology.Tables tables;
+
+ /**
+  * Counter for number of lights that are currently on. Player
+  * wins the game once all lights are off (i.e. counter == 0)
+  */
+ private int lightCounter;
+
+
+ /**
+  * Creates a new Board with the given number of rows and
+  * columns where every light starts in the off state.
+  *
+  * @param rows Number of rows on the board
+  *
+  * @param cols Number of columns on the board
+  *
+  */
+ public Board(int rows, int cols) {
+  this(Topology.classic(rows, cols));
+ }
+
+ /**
+  * Creates a new Board of the given topology where every light
+  * starts in the off state.
+  *
+  * @param topology Size of the board and which cells a press toggles
+  *
+  */
+ public Board(Topology topology) {
+  this.rows = topology.getRows();
+  this.cols = topology.getCols();
+  this.wordsPerRow = (this.cols + WORD_BITS - 1) / WORD_BITS;
+  this.lastWordMask = (this.cols % WORD_BITS == 0) ? -1L : (1L << (this.cols % WORD_BITS)) - 1;
+  this.words = new long[this.rows * this.wordsPerRow];
+  this.topology = topology;
+  this.tables = topology.isClassic() ? null : topology.getTables();
+ }
+
+ /**
+  * Creates a new Board that is an exact copy of the given board.
+  *
+  * @param other Board to copy
+  *
+  */
+ public Board(Board other) {
+  this.rows = other.rows;
+  this.cols = other.cols;
+  this.wordsPerRow = other.wordsPerRow;
+  this.lastWordMask = other.lastWordMask;
+  this.words = other.words.clone();
+  this.lightCounter = other.lightCounter;
+  this.topology = other.topology;
+  this.tables = other.tables;
+ }
+
+ /**
+  * Return number of rows on the board
+  *
+  * @return Number of rows
+  *
+  */
+ public int getRows() {
+  return this.rows;
+ }
+
+ /**
+  * Return number of columns on the board
+  *
+  * @return Number of columns
+  *
+  */
+ public int getCols() {
+  return this.cols;
+ }
+
+ /**
+  * Return which cells a press toggles
+  *
+  * @return Topology of the board
+  *
+  */
+ public Topology getTopology() {
+  return this.topology;
+ }
+
+ /**
+  * Return number of long words used to store each row
+  *
+  * @return Words per row
+  *
+  */
+ public int getWordsPerRow() {
+  return this.wordsPerRow;
+ }
+
+ /**
+  * Returns the mask of valid cell bits for the given word of a row.
+  * Every word is full except possibly the last one.
+  *
+  * @param w Index of the word within a row
+  *
+  * @return Mask of the bits that are cells of the board
+  *
+  */
+ public long getWordMask(int w) {
+  return (w == this.wordsPerRow - 1) ? this.lastWordMask : -1L;
+ }
+
+ /**
+  * Returns the word that holds the given part of a row.
+  *
+  * @param r Row number
+  *
+  * @param w Index of the word within the row
+  *
+  * @return The 64 cells of that word as bits
+  *
+  */
+ public long getWord(int r, int w) {
+  return this.words[r * this.wordsPerRow + w];
+ }
+
+ /**
+  * Toggles every cell whose bit is set in the mask for the given
+  * word of a row, keeping the light counter current. Bits past the
+  * last column of the board are ignored.
+  *
+  * @param r Row number
+  *
+  * @param w Index of the word within the row
+  *
+  * @param mask Bits of the cells to toggle
+  *
+  */
+ public void xorWord(int r, int w, long mask) {
+  int i = r * this.wordsPerRow + w;
+  long old = this.words[i];
+  long now = old ^ (mask & this.getWordMask(w));
+  this.words[i] = now;
+  this.lightCounter += Long.bitCount(now) - Long.bitCount(old);
+ }
+
+ /**
+  * Returns true if the light in the given cell is on
+  *
+  * @param r Row number of the cell
+  *
+  * @param c Column number of the cell
+  *
+  * @return true when the light is on
+  *
+  */
+ public boolean isOn(int r, int c) {
+  this.checkBounds(r, c);
+  return ((this.words[r * this.wordsPerRow + (c >>> 6)] >>> c) & 1L) != 0;
+ }
+
+ /**
+  * Switches the light in the given cell on or off.
+  *
+  * @param r Row number of the cell
+  *
+  * @param c Column number of the cell
+  *
+  * @param on true to switch the light on, false for off
+  *
+  */
+ public void setOn(int r, int c, boolean on) {
+  if (this.isOn(r, c) != on) {
+   this.toggle(r, c);
+  }
+ }
+
+ /**
+  * Toggles only the light in the given cell, none of its
+  * neighbours are changed.
+  *
+  * @param r Row number of the cell
+  *
+  * @param c Column number of the cell
+  *
+  */
+ public void toggle(int r, int c) {
+  this.checkBounds(r, c);
+  this.xorWord(r, c >>> 6, 1L << c);
+ }
+
+ /**
+  * Toggles the given light and each adjacent light. A light is
+  * adjacent to another if it is directly above/below or to the
+  * side of the first light. Diagonals are NOT adjacent, and
+  * neighbours that would be off the board are simply skipped.
+  * Boards of any other {@link Topology} toggle the cells of their
+  * neighbourhood instead, with the compiled masks of the topology.
+  * <p>
+  * The cell and its left and right neighbours are toggled with a
+  * single three bit mask on the row, which only needs a second
+  * word when the cell sits on the edge of a word. The cells above
+  * and below are a single bit each.
+  *
+  * @param r Row number of the light that was pressed
+  *
+  * @param c Column number of the light that was pressed
+  *
+  */
+ public void toggleAdjacentLights(int r, int c) {
+  this.checkBounds(r, c);
+  if (this.tables != null) {
+   this.press(r * this.cols + c);
+   return;
+  }
+  int w = c >>> 6;
+  long bit = 1L << c;
+
+  //Pressed cell with its left and right neighbours in the same word
+  this.xorWord(r, w, bit | (bit << 1) | (bit >>> 1));
+  //Neighbours that fall into the next or previous word of the row
+  if ((c & 63) == 63 && w + 1 < this.wordsPerRow) {
+   this.xorWord(r, w + 1, 1L);
+  }
+  if ((c & 63) == 0 && w > 0) {
+   this.xorWord(r, w - 1, 1L << 63);
+  }
+  //Neighbours above and below
+  if (r > 0) {
+   this.xorWord(r - 1, w, bit);
+  }
+  if (r + 1 < this.rows) {
+   this.xorWord(r + 1, w, bit);
+  }
+ }
+
+ /**
+  * Presses every cell whose bit is set in the mask for the given word
+  * of a row, the same as calling {@link #toggleAdjacentLights(int, int)}
+  * for each of them but with a handful of word XORs. Presses of two
+  * neighbouring cells both toggle the cells between them, which XOR
+  * gets right on its own.
+  *
+  * @param r Row number
+  *
+  * @param w Index of the word within the row
+  *
+  * @param presses Bits of the cells to press
+  *
+  */
+ public void pressWord(int r, int w, long presses) {
+  presses &= this.getWordMask(w);
+  if (presses == 0) {
+   return;
+  }
+  if (this.tables != null) {
+   for (long bits = presses; bits != 0; bits &= bits - 1) {
+    this.press(r * this.cols + (w << 6) + Long.numberOfTrailingZeros(bits));
+   }
+   return;
+  }
+  this.xorWord(r, w, presses ^ (presses << 1) ^ (presses >>> 1));
+  if (w + 1 < this.wordsPerRow) {
+   this.xorWord(r, w + 1, presses >>> 63);
+  }
+  if (w > 0) {
+   this.xorWord(r, w - 1, presses << 63);
+  }
+  if (r > 0) {
+   this.xorWord(r - 1, w, presses);
+  }
+  if (r + 1 < this.rows) {
+   this.xorWord(r + 1, w, presses);
+  }
+ }
+
+ /**
+  * Presses a cell with the compiled masks of the topology
+  *
+  * @param cell Packed cell <code>r * cols + c</code>
+  *
+  */
+ private void press(int cell) {
+  Topology.Tables t = this.tables;
+  for (int k = t.cellStart[cell]; k < t.cellStart[cell + 1]; k++) {
+   int i = t.maskIndex[k];
+   long old = this.words[i];
+   long now = old ^ t.maskBits[k];
+   this.words[i] = now;
+   this.lightCounter += Long.bitCount(now) - Long.bitCount(old);
+  }
+ }
+
+ /**
+  * Return current number of lights that are on
+  *
+  * @return Total number of lights that remain
+  *   on on the board.
+  *
+  */
+ public int getNumberOfLightsOn() {
+  return this.lightCounter;
+ }
+
+ /**
+  * Returns true once every light on the board is off
+  *
+  * @return true when the board has been solved
+  *
+  */
+ public boolean isSolved() {
+  return this.lightCounter == 0;
+ }
+
+ /**
+  * Switches every light on the board off.
+  */
+ public void clear() {
+  Arrays.fill(this.words, 0L);
+  this.lightCounter = 0;
+ }
+
+ /**
+  * Switches each light on with a 50% chance. Every call to
+  * <code>nextLong</code> fills a whole word, so 64 cells are
+  * decided at a time.
+  *
+  * @param random Source of random bits
+  *
+  */
+ public void randomize(Random random) {
+  this.lightCounter = 0;
+  for (int r = 0; r < this.rows; r++) {
+   for (int w = 0; w < this.wordsPerRow; w++) {
+    long bits = random.nextLong() & this.getWordMask(w);
+    this.words[r * this.wordsPerRow + w] = bits;
+    this.lightCounter += Long.bitCount(bits);
+   }
+  }
+ }
+
+ /**
+  * Copies the lights of another board of the same size onto
+  * this board.
+  *
+  * @param other Board to copy the lights from
+  *
+  */
+ public void copyFrom(Board other) {
+  this.checkSameSize(other);
+  System.arraycopy(other.words, 0, this.words, 0, this.words.length);
+  this.lightCounter = other.lightCounter;
+ }
+
+ /**
+  * Returns the lights as one vector of rows * cols bits, with cell
+  * <code>(r, c)</code> in bit <code>r * cols + c</code>. This is the
+  * numbering the solvers use.
+  *
+  * @return Lights as a bitset
+  *
+  */
+ public long[] toVector() {
+  long[] v = new long[(this.rows * this.cols + 63) >>> 6];
+  for (int r = 0; r < this.rows; r++) {
+   for (int w = 0; w < this.wordsPerRow; w++) {
+    long word = this.words[r * this.wordsPerRow + w];
+    while (word != 0) {
+     int i = r * this.cols + (w << 6) + Long.numberOfTrailingZeros(word);
+     v[i >>> 6] |= 1L << i;
+     word &= word - 1;
+    }
+   }
+  }
+  return v;
+ }
+
+ /**
+  * Creates a board from a vector numbered like {@link #toVector()}.
+  *
+  * @param rows Number of rows on the board
+  *
+  * @param cols Number of columns on the board
+  *
+  * @param v Lights as a bitset of rows * cols bits
+  *
+  * @return Board with those lights on
+  *
+  */
+ public static Board fromVector(int rows, int cols, long[] v) {
+  return fromVector(Topology.classic(rows, cols), v);
+ }
+
+ /**
+  * Creates a board of the given topology from a vector numbered
+  * like {@link #toVector()}.
+  *
+  * @param topology Topology of the board
+  *
+  * @param v Lights as a bitset of rows * cols bits
+  *
+  * @return Board with those lights on
+  *
+  */
+ public static Board fromVector(Topology topology, long[] v) {
+  Board board = new Board(topology);
+  int cols = topology.getCols();
+  int n = topology.getRows() * cols;
+  for (int w = 0; w < v.length; w++) {
+   long word = v[w];
+   while (word != 0) {
+    int i = (w << 6) + Long.numberOfTrailingZeros(word);
+    if (i >= n) {
+     break;
+    }
+    board.toggle(i / cols, i % cols);
+    word &= word - 1;
+   }
+  }
+  return board;
+ }
+
+ /**
+  * Makes sure another board has the same number of rows and
+  * columns as this one.
+  *
+  * @param other Board to compare against
+  *
+  */
+ void checkSameSize(Board other) {
+  if (other.rows != this.rows || other.cols != this.cols) {
+   throw new IllegalArgumentException("Board size " + other.rows + "x" + other.cols
+           + " does not match " + this.rows + "x" + this.cols);
+  }
+ }
+
+ /**
+  * Makes sure the given cell is on the board.
+  *
+  * @param r Row number of the cell
+  *
+  * @param c Column number of the cell
+  *
+  */
+ private void checkBounds(int r, int c) {
+  if (r < 0 || r >= this.rows || c < 0 || c >= this.cols) {
+   throw new IndexOutOfBoundsException("Cell (" + r + ", " + c + ") is outside a "
+           + this.rows + "x" + this.cols + " board");
+  }
+ }
+
+ @Override public boolean equals(Object o) {
+  if (!(o instanceof Board)) {
+   return false;
+  }
+  Board other = (Board) o;
+  return other.rows == this.rows && other.cols == this.cols && Arrays.equals(other.words, this.words);
+ }
+
+ @Override public int hashCode() {
+  return 31 * (31 * this.rows + this.cols) + Arrays.hashCode(this.words);
+ }
+
+ @Override public String toString() {
+  StringBuilder sb = new StringBuilder(this.rows * (this.cols + 1));
+  for (int r = 0; r < this.rows; r++) {
+   for (int c = 0; c < this.cols; c++) {
+    sb.append(this.isOn(r, c) ? 'O' : '.');
+   }
+   sb.append('\n');
+  }
+  return sb.toString();
+ }
+}
@@ -0,0 +1,78 @@
+/**
+ * @(#)ChaseStrategy.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+//Java utilities
+import java.util.SplittableRandom;
+
+
+/**
+ * Plays by "chasing the lights": while a light is on above the last
+ * row, press the cell right below the first such light. That switches
+ * the light off without touching any row above, so the lights are
+ * pushed down until only the last row is left.
+ * <p>
+ * Which lights are left on the last row decides which cells of the
+ * first row have to be pressed before chasing again. A person would
+ * look that up in a table; this strategy takes the first row of a
+ * {@link Solver} solution for the board at that point, presses those
+ * cells, and goes back to chasing.
+ *
+ */
+public class ChaseStrategy implements Strategy {
+
+ /** Solver used to find the first row presses */
+ private final Solver solver;
+
+ /** First row presses still to be made, bit c for column c */
+ private long[] firstRow;
+
+
+ /**
+  * Creates a light chasing strategy.
+  *
+  * @param solver Solver used to find the first row presses,
+  *   shared by every thread so it must not keep state between
+  *   solves
+  *
+  */
+ public ChaseStrategy(Solver solver) {
+  this.solver = solver;
+ }
+
+ @Override public void newGame(Board board, SplittableRandom random) {
+  this.firstRow = new long[board.getWordsPerRow()];
+ }
+
+ @Override public int nextMove(Board board, SplittableRandom random) {
+  int cols = board.getCols();
+  for (int w = 0; w < this.firstRow.length; w++) {
+   long bits = this.firstRow[w];
+   if (bits != 0) {
+    this.firstRow[w] = bits & (bits - 1);
+    return (w << 6) + Long.numberOfTrailingZeros(bits);
+   }
+  }
+  for (int r = 0; r + 1 < board.getRows(); r++) {
+   for (int w = 0; w < board.getWordsPerRow(); w++) {
+    long word = board.getWord(r, w);
+    if (word != 0) {
+     return (r + 1) * cols + (w << 6) + Long.numberOfTrailingZeros(word);
+    }
+   }
+  }
+  //Only the last row is left, find the first row that clears it
+  Board solution = this.solver.solve(board);
+  if (solution == null) {
+   throw new IllegalArgumentException("Board cannot be solved:\n" + board);
+  }
+  for (int w = 0; w < this.firstRow.length; w++) {
+   this.firstRow[w] = solution.getWord(0, w);
+  }
+  return this.nextMove(board, random);
+ }
+}
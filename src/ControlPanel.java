@@ -17,9 +17,6 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Font;
 
-//AWT action events and listener
-import java.awt.event.MouseListener;
-
 
 /**
  * Implementation of the panel that is responsible for the button that
@@ -33,10 +30,10 @@ import java.awt.event.MouseListener;
 public class ControlPanel extends JPanel {
  
  /** Size of control panel width to be 32% the width of the game window */
- public static final int WIDTH = (int)(GameWindow.WIDTH * .32);
+ private final int width = Display.PANEL_WIDTH;
  
  /** Height of control panel same as LightGrid */
- public static final int HEIGHT = LightGrid.SIZE;
+ private final int height = Display.GRID_SIZE;
  
  /** 
   * Font for control panel (My implementation was same as the 
@@ -44,6 +41,9 @@ public class ControlPanel extends JPanel {
   */
  public static final Font FONT = new Font("Serif", Font.BOLD, 40);
  
+ /** Smaller font for the undo and redo buttons that share a row */
+ public static final Font SMALL_FONT = new Font("Serif", Font.BOLD, 28);
+ 
  /**
   * Text color (My implementation was same as the Light's off color)
   */
@@ -76,13 +76,19 @@ public class ControlPanel extends JPanel {
   * is the total number of clicks are separate JLabels. This makes
   * things much easier to layout and adjust.
   */
- private JLabel clickLabel, clickCounter, lightLabel, lightCounter, statusLabel;
+ private JLabel clickLabel, clickCounter, lightLabel, lightCounter, minLabel, minCounter, statusLabel;
  
  /** Button that when clicked resets the game */
  private JButton resetButton;
  
- /** Reference to the MouseListener that came from the top level JFrame */
- private MouseListener gameListener;
+ /** Button that when clicked shows which Lights solve the game */
+ private JButton hintButton;
+ 
+ /** Buttons that when clicked take back or play again a move */
+ private JButton undoButton, redoButton;
+ 
+ /** Number of times the player has clicked a Light */
+ private int clicks;
  
 
  /**
@@ -94,27 +100,22 @@ public class ControlPanel extends JPanel {
   * some generic message like "Good Luck!", once the player switches
   * off all of the lights this label should be responsible for displaying
   * a winning message.
-  *
-  * @param listener MouseListener from the top level JFrame window
+  * <p>
+  * The panel does not know what its buttons do; whoever owns it
+  * gives each of them its own ActionListener.
   *
   */
- public ControlPanel(MouseListener listener) {
+ public ControlPanel() {
   
   /****************************************************************
-   * Correctly assign the specified listener to gameListener.  *
    * Set the size of the ControlPanel, set the opacity to false *
    * since we do not want an outline of the control panel to  *
    * show up, and finally remove the layout so the set bounds  *
    * applied below will take effect.        *
-   *                *
-   * IMPORTANT IDEA:            *
-   * The MouseListener is assigned to the reset button at   *
-   * the bottom of this constructor. Note, how simple it   *
-   * actually is for different components of a GUI to actually *
-   * communicate simply by passing the same object references  *
-   * around.              *
    ****************************************************************/
-  this.gameListener = listener;
+  this.setSize(this.width, this.height);
+  this.setOpaque(false);
+  this.setLayout(null);
   
   
   /********************************************************
@@ -128,7 +129,7 @@ public class ControlPanel extends JPanel {
   this.clickLabel.setFont(this.FONT);
   this.clickLabel.setForeground(this.TEXT_COLOR);
   //Add click label to this panel
-  this.clickLabel.setBounds((int)(this.WIDTH * .01), (int)(this.HEIGHT * .01), (int)(this.WIDTH * .5), (int)(this.HEIGHT * .2));
+  this.clickLabel.setBounds((int)(this.width * .01), (int)(this.height * .01), (int)(this.width * .5), (int)(this.height * .14));
   this.add(this.clickLabel);
   
   //Create counter label
@@ -136,7 +137,7 @@ public class ControlPanel extends JPanel {
   this.clickCounter.setFont(this.FONT);
   this.clickCounter.setForeground(this.TEXT_COLOR);
   //Add counter label to this panel
-  this.clickCounter.setBounds((int)(this.WIDTH * .7), (int)(this.HEIGHT * .01), (int)(this.WIDTH * .45), (int)(this.HEIGHT * .2)); 
+  this.clickCounter.setBounds((int)(this.width * .7), (int)(this.height * .01), (int)(this.width * .45), (int)(this.height * .14)); 
   this.add(this.clickCounter);
   
   
@@ -145,7 +146,7 @@ public class ControlPanel extends JPanel {
   this.lightLabel.setFont(this.FONT);
   this.lightLabel.setForeground(this.TEXT_COLOR);
   //Add light label to this panel
-  this.lightLabel.setBounds((int)(this.WIDTH * .01), (int)(this.HEIGHT * .24), (int)(this.WIDTH * .5), (int)(this.HEIGHT * .2));
+  this.lightLabel.setBounds((int)(this.width * .01), (int)(this.height * .15), (int)(this.width * .5), (int)(this.height * .14));
   this.add(this.lightLabel);
   
   //Create lights counter
@@ -153,35 +154,89 @@ public class ControlPanel extends JPanel {
   this.lightCounter.setFont(this.FONT);
   this.lightCounter.setForeground(this.TEXT_COLOR);
   //Add light counter label to this panel
-  this.lightCounter.setBounds((int)(this.WIDTH * .7), (int)(this.HEIGHT * .24), (int)(this.WIDTH * .45), (int)(this.HEIGHT * .2)); 
+  this.lightCounter.setBounds((int)(this.width * .7), (int)(this.height * .15), (int)(this.width * .45), (int)(this.height * .14)); 
   this.add(this.lightCounter);
   
   
+  //Create label for the fewest presses that are left
+  this.minLabel = new JLabel("Left:");
+  this.minLabel.setFont(this.FONT);
+  this.minLabel.setForeground(this.TEXT_COLOR);
+  //Add it to this panel
+  this.minLabel.setBounds((int)(this.width * .01), (int)(this.height * .29), (int)(this.width * .5), (int)(this.height * .14));
+  this.add(this.minLabel);
+  
+  //Create counter of the fewest presses that are left
+  this.minCounter = new JLabel("0");
+  this.minCounter.setFont(this.FONT);
+  this.minCounter.setForeground(this.TEXT_COLOR);
+  //Add it to this panel
+  this.minCounter.setBounds((int)(this.width * .7), (int)(this.height * .29), (int)(this.width * .45), (int)(this.height * .14)); 
+  this.add(this.minCounter);
+  
+  
+  //Create hint button
+  this.hintButton = new JButton("Hint");
+  this.hintButton.setFont(this.FONT);
+  this.hintButton.setForeground(this.RESET_TEXT_COLOR);
+  this.hintButton.setBackground(this.RESET_COLOR);
+  this.hintButton.setBorder( new BevelBorder(BevelBorder.RAISED, this.BORDER1, this.BORDER2) );
+  this.hintButton.setFocusable(false);
+  //Add hint button
+  this.hintButton.setBounds((int)(this.width * .2), (int)(this.height * .44), (int)(this.width * .6), (int)(this.height * .1));
+  this.add(this.hintButton);
+  
+  
   //Create reset button
   this.resetButton = new JButton("Reset");
   this.resetButton.setFont(this.FONT);
-  this.resetButton.setPreferredSize(new Dimension((int)(this.WIDTH * .6), (int)(this.HEIGHT * .1) ));
+  this.resetButton.setPreferredSize(new Dimension((int)(this.width * .6), (int)(this.height * .1) ));
   this.resetButton.setForeground(this.RESET_TEXT_COLOR);
   this.resetButton.setBackground(this.RESET_COLOR);
   this.resetButton.setBorder( new BevelBorder(BevelBorder.RAISED, this.BORDER1, this.BORDER2) );
   this.resetButton.setFocusable(false);
-  //Add game listener to this button
-  this.resetButton.addMouseListener(this.gameListener);  
   //Add reset button
-  this.resetButton.setBounds((int)(this.WIDTH * .2), (int)(this.HEIGHT * .55), (int)(this.WIDTH * .6), (int)(this.HEIGHT * .1));
+  this.resetButton.setBounds((int)(this.width * .2), (int)(this.height * .55), (int)(this.width * .6), (int)(this.height * .1));
   this.add(this.resetButton);
   
   
+  //Create undo and redo buttons, side by side under the reset button
+  this.undoButton = this.createSmallButton("Undo", .2);
+  this.add(this.undoButton);
+  this.redoButton = this.createSmallButton("Redo", .51);
+  this.add(this.redoButton);
+  
+  
   //Create status label
   this.statusLabel = new JLabel("Good Luck!");
   this.statusLabel.setFont(this.FONT);
   this.statusLabel.setForeground(this.TEXT_COLOR);
   //Add status label
-  this.statusLabel.setBounds((int)(this.WIDTH * .1), (int)(this.HEIGHT * .7), (int)(this.WIDTH * .9), (int)(this.HEIGHT * .2));
+  this.statusLabel.setBounds((int)(this.width * .1), (int)(this.height * .75), (int)(this.width * .9), (int)(this.height * .2));
   this.add(this.statusLabel);
   
  }
  
+ /**
+  * Creates one of the small buttons of the undo/redo row with the
+  * same look as the reset button
+  *
+  * @param text Text of the button
+  *
+  * @param x Left edge as part of the panel width
+  *
+  */
+ private JButton createSmallButton(String text, double x) {
+  JButton button = new JButton(text);
+  button.setFont(SMALL_FONT);
+  button.setForeground(RESET_TEXT_COLOR);
+  button.setBackground(RESET_COLOR);
+  button.setBorder( new BevelBorder(BevelBorder.RAISED, BORDER1, BORDER2) );
+  button.setFocusable(false);
+  button.setBounds((int)(this.width * x), (int)(this.height * .66), (int)(this.width * .29), (int)(this.height * .08));
+  return button;
+ }
+ 
  /**
   * Reset control panel when reset button clicked
   */
@@ -190,7 +245,101 @@ public class ControlPanel extends JPanel {
   /****************************************
    * Set the label counters back to zero *
    ****************************************/
+     this.clicks = 0;
      this.clickCounter.setText("0");
+     this.statusLabel.setText("Good Luck!");
+ }
+ 
+ /**
+  * Counts one more click on the grid and updates the click
+  * counter label
+  */
+ public void addClick() {
+  this.clicks++;
+  this.clickCounter.setText("" + this.clicks);
+ }
+ 
+ /**
+  * Sets the number of clicks, for example after moves were
+  * undone, and updates the click counter label
+  *
+  * @param clicks Number of clicks
+  *
+  */
+ public void setClicks(int clicks) {
+  this.clicks = clicks;
+  this.clickCounter.setText("" + this.clicks);
+ }
+ 
+ /**
+  * Return the number of clicks counted
+  */
+ public int getClicks() {
+  return this.clicks;
+ }
+ 
+ /**
+  * Updates the light counter label and shows the winning
+  * message once every light is off
+  *
+  * @param lightsOn Number of lights that remain on
+  *
+  */
+ public void setLightsOn(int lightsOn) {
+  this.lightCounter.setText("" + lightsOn);
+  this.statusLabel.setText(lightsOn == 0 ? "You Win!" : "Good Luck!");
+ }
+ 
+ /**
+  * Updates the label of the fewest presses that still solve the
+  * board
+  *
+  * @param presses Fewest presses, or -1 if the board cannot be solved
+  *
+  * @param exact true if the number is exact, false if it is an upper
+  *   bound
+  *
+  */
+ public void setMinPresses(int presses, boolean exact) {
+  this.minCounter.setText(presses < 0 ? "-" : (exact ? "" : "<=") + presses);
+ }
+ 
+ /**
+  * Shows the given message in the status label
+  *
+  * @param status Message to show
+  *
+  */
+ public void setStatus(String status) {
+  this.statusLabel.setText(status);
+ }
+ 
+ /**
+  * Return hint button
+  */
+ public JButton getHintButton() {
+  return this.hintButton;
+ }
+ 
+ /**
+  * Return undo button
+  */
+ public JButton getUndoButton() {
+  return this.undoButton;
+ }
+ 
+ /**
+  * Return redo button
+  */
+ public JButton getRedoButton() {
+  return this.redoButton;
+ }
+ 
+ /**
+  * Return reset button
+  */
+ public JButton getResetButton() {
+  return this.resetButton;
  }
  
  /**
@@ -200,6 +349,13 @@ public class ControlPanel extends JPanel {
    return this.lightCounter;
  }
  
+ /**
+  * Return label of the fewest presses left
+  */
+ public JLabel getMinCounter() {
+  return this.minCounter;
+ }
+ 
  /**
   * Return click counter label
   */
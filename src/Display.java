@@ -0,0 +1,59 @@
+/**
+ * @(#)Display.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+//AWT package GUI details
+import java.awt.Dimension;
+import java.awt.GraphicsEnvironment;
+import java.awt.Toolkit;
+
+
+/**
+ * Sizes of the parts of the game window, worked out from the size of
+ * the screen.
+ * <p>
+ * Asking for the screen size starts AWT, which is slow and fails on a
+ * machine without a display. The sizes used to be constants of the
+ * window classes themselves, so merely loading <code>LightGrid</code>
+ * or <code>Light</code> started AWT. They now live here instead, and
+ * the JVM only runs this class's static initialiser the first time one
+ * of its fields is read, which happens when a window is built. The
+ * model, the solvers and the tools never touch this class.
+ * <p>
+ * In a headless JVM, where there is no screen to measure, the window
+ * is laid out for a {@link #HEADLESS_SCREEN} so components can still
+ * be built and painted off screen.
+ *
+ */
+public final class Display {
+
+ /** Screen size assumed when there is no screen */
+ public static final Dimension HEADLESS_SCREEN = new Dimension(1920, 1080);
+
+ /** Size of the screen the window is laid out for */
+ public static final Dimension SCREEN = GraphicsEnvironment.isHeadless()
+         ? HEADLESS_SCREEN : Toolkit.getDefaultToolkit().getScreenSize();
+
+ /** Width of game window, 60% of the width of the screen */
+ public static final int WIDTH = (int)(SCREEN.getWidth() * .6);
+
+ /** Height of game window, 80% of the height of the screen */
+ public static final int HEIGHT = (int)(SCREEN.getHeight() * .8);
+
+ /** Size of the square light grid, 80% of the height of the window */
+ public static final int GRID_SIZE = (int)(HEIGHT * .8);
+
+ /** Width of the control panel, 32% of the width of the window */
+ public static final int PANEL_WIDTH = (int)(WIDTH * .32);
+
+
+ /**
+  * No instances, only sizes
+  */
+ private Display() {
+ }
+}
@@ -0,0 +1,217 @@
+/**
+ * @(#)EventPipeline.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+//Swing package GUI components
+import javax.swing.SwingUtilities;
+
+//Java utilities
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+//Concurrency
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+/**
+ * Carries {@link GameEvent}s from whoever makes them to the
+ * {@link GameModel}, and the state of the model back to the window.
+ * <p>
+ * Events may be posted from any thread and wait in a queue. A single
+ * model thread takes every event that is waiting, applies the whole
+ * batch to the model and publishes one {@link GameSnapshot} of the
+ * result. Solving and file work therefore never run on the event
+ * dispatch thread.
+ * <p>
+ * The view only hears of the latest snapshot. At most one update
+ * waits on the Swing event queue at any time; when the model publishes
+ * faster than the window can paint, the snapshots in between are
+ * simply replaced and never shown. A bot or a replay pressing cells
+ * thousands of times a second thus costs the event dispatch thread one
+ * update per frame, and it never falls behind.
+ * <p>
+ * An event that throws is reported and shown in the status of the
+ * model; the model thread carries on with the next one.
+ * <p>
+ * Every hop is timed in the {@link LatencyMetrics}: the wait in the
+ * queue, the model, the wait for the event dispatch thread, the view
+ * update and, from the oldest event of a frame, the time until the
+ * frame is painted.
+ *
+ */
+public class EventPipeline {
+
+ /** Time no event is waiting for, in the time fields below */
+ private static final long NONE = Long.MIN_VALUE;
+
+ /** Model the events are applied to, only touched on the model thread */
+ private final GameModel model;
+
+ /** View that is given the snapshots on the event dispatch thread */
+ private final Consumer<GameSnapshot> view;
+
+ /** Events waiting for the model thread */
+ private final BlockingQueue<GameEvent> queue = new LinkedBlockingQueue<GameEvent>();
+
+ /** Latest snapshot published by the model thread */
+ private final AtomicReference<GameSnapshot> latest = new AtomicReference<GameSnapshot>();
+
+ /** True while an update of the view waits on the Swing event queue */
+ private final AtomicBoolean updatePending = new AtomicBoolean();
+
+ /** Thread that applies the events to the model */
+ private final Thread thread;
+
+ /** Metrics the hops of the pipeline are timed in */
+ private final LatencyMetrics metrics = LatencyMetrics.get();
+
+ /** Time the oldest event not yet taken by the model thread was posted */
+ private final AtomicLong oldestQueued = new AtomicLong(NONE);
+
+ /** Time the oldest event not yet handed to the view was posted */
+ private final AtomicLong oldestUnshown = new AtomicLong(NONE);
+
+ /** Time the pending update of the view was put on the Swing event queue */
+ private volatile long updateQueued;
+
+ /** Time the oldest event of the frame being painted was posted, EDT only */
+ private long paintedInput;
+
+ /** Updates of the view and ends of frames, made once so they allocate nothing */
+ private final Runnable deliver = this::deliver, framePainted = this::framePainted;
+
+
+ /**
+  * Creates a pipeline and starts its model thread. From now on the
+  * model must only be changed through {@link #post(GameEvent)}.
+  *
+  * @param model Model the events are applied to
+  *
+  * @param view Called on the event dispatch thread with the latest
+  *   snapshot of the model
+  *
+  */
+ public EventPipeline(GameModel model, Consumer<GameSnapshot> view) {
+  this.model = model;
+  this.view = view;
+  this.latest.set(model.snapshot());
+  this.thread = new Thread(this::run, "game-model");
+  this.thread.setDaemon(true);
+  this.thread.start();
+ }
+
+ /**
+  * Posts an event to the model. Returns at once; the event is
+  * applied later on the model thread.
+  *
+  * @param event Event to apply
+  *
+  */
+ public void post(GameEvent event) {
+  if (event == null) {
+   throw new IllegalArgumentException("Event must not be null");
+  }
+  this.oldestQueued.compareAndSet(NONE, System.nanoTime());
+  this.queue.add(event);
+ }
+
+ /**
+  * Applies the events in batches until the thread is interrupted
+  */
+ private void run() {
+  List<GameEvent> batch = new ArrayList<GameEvent>();
+  try {
+   while (true) {
+    batch.add(this.queue.take());
+    this.queue.drainTo(batch);
+    long start = System.nanoTime();
+    long posted = this.oldestQueued.getAndSet(NONE);
+    if (posted != NONE) {
+     this.metrics.record(LatencyMetrics.Stage.MODEL_QUEUE, start - posted);
+     this.oldestUnshown.compareAndSet(NONE, posted);
+    }
+    for (GameEvent event : batch) {
+     //A failed event must not end the thread, or the game stops taking input
+     try {
+      this.model.apply(event);
+     } catch (RuntimeException e) {
+      System.err.println("Event " + event + " failed: " + e);
+      this.model.setStatus(GameModel.EVENT_FAILED);
+     }
+    }
+    batch.clear();
+    //The window exits without closing the replay, so write its presses now
+    this.model.flushReplay();
+    GameSnapshot snapshot = this.model.snapshot();
+    this.metrics.recordSince(LatencyMetrics.Stage.MODEL, start);
+    this.publish(snapshot);
+   }
+  } catch (InterruptedException e) {
+   //Pipeline closed
+  }
+ }
+
+ /**
+  * Makes the given snapshot the latest one and makes sure an update
+  * of the view waits on the Swing event queue.
+  *
+  * @param snapshot Snapshot of the model
+  *
+  */
+ private void publish(GameSnapshot snapshot) {
+  this.latest.set(snapshot);
+  if (this.updatePending.compareAndSet(false, true)) {
+   this.updateQueued = System.nanoTime();
+   SwingUtilities.invokeLater(this.deliver);
+  }
+ }
+
+ /**
+  * Hands the latest snapshot to the view, on the event dispatch thread
+  */
+ private void deliver() {
+  //Clear the flag first, so a snapshot published from now on schedules a new update
+  this.updatePending.set(false);
+  long start = System.nanoTime();
+  this.metrics.record(LatencyMetrics.Stage.EDT_DELAY, start - this.updateQueued);
+  long input = this.oldestUnshown.getAndSet(NONE);
+  this.view.accept(this.latest.get());
+  this.metrics.recordSince(LatencyMetrics.Stage.VIEW_UPDATE, start);
+  if (input != NONE) {
+   //The view asked for its repaints first, so they run before this
+   this.paintedInput = input;
+   SwingUtilities.invokeLater(this.framePainted);
+  }
+ }
+
+ /**
+  * Records the time from the oldest event of a frame until the
+  * frame was painted
+  */
+ private void framePainted() {
+  this.metrics.recordSince(LatencyMetrics.Stage.CLICK_TO_PAINT, this.paintedInput);
+ }
+
+ /**
+  * Return the latest snapshot published by the model thread
+  */
+ public GameSnapshot getLatest() {
+  return this.latest.get();
+ }
+
+ /**
+  * Stops the model thread. Events still waiting are dropped.
+  */
+ public void close() {
+  this.thread.interrupt();
+ }
+}
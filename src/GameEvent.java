@@ -0,0 +1,229 @@
+/**
+ * @(#)GameEvent.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+//Java input/output
+import java.nio.file.Path;
+
+
+/**
+ * Something the player (or a bot, or a replay) asks the game to do.
+ * <p>
+ * The user interface no longer changes the game itself. It turns each
+ * mouse click into a GameEvent and posts it to the {@link EventPipeline},
+ * which hands the events to the {@link GameModel} on a thread of its own.
+ * Events are immutable, so they can be posted from any thread.
+ *
+ */
+public final class GameEvent {
+
+ /** Kinds of events */
+ public enum Type {
+  /** A cell was pressed, see {@link GameEvent#getCell()} */
+  CELL_PRESSED,
+  /** Start a new random game */
+  RESET,
+  /** Start the puzzle of {@link GameEvent#getPuzzleId()} */
+  RESET_TO_PUZZLE,
+  /** Show which cells solve the game */
+  SOLVE_REQUESTED,
+  /** Take back the last move */
+  UNDO,
+  /** Play the last undone move again */
+  REDO,
+  /** Jump to {@link GameEvent#getPosition()} in the move history */
+  SEEK,
+  /** Save the game to {@link GameEvent#getFile()} */
+  SAVE,
+  /** Load the game from {@link GameEvent#getFile()} */
+  LOAD,
+  /** Start writing a replay to {@link GameEvent#getFile()} */
+  START_REPLAY,
+  /** Finish the replay being written */
+  STOP_REPLAY
+ }
+
+ /** Shared event to start a new random game */
+ private static final GameEvent RESET = new GameEvent(Type.RESET, 0L, null);
+
+ /** Shared event to show the solution */
+ private static final GameEvent SOLVE_REQUESTED = new GameEvent(Type.SOLVE_REQUESTED, 0L, null);
+
+ /** Shared event to undo a move */
+ private static final GameEvent UNDO = new GameEvent(Type.UNDO, 0L, null);
+
+ /** Shared event to redo a move */
+ private static final GameEvent REDO = new GameEvent(Type.REDO, 0L, null);
+
+ /** Shared event to finish the replay */
+ private static final GameEvent STOP_REPLAY = new GameEvent(Type.STOP_REPLAY, 0L, null);
+
+ /** Kind of event */
+ private final Type type;
+
+ /** Cell, puzzle ID or position, depending on the type */
+ private final long value;
+
+ /** File of the event, or null */
+ private final Path file;
+
+
+ /**
+  * Creates an event
+  */
+ private GameEvent(Type type, long value, Path file) {
+  this.type = type;
+  this.value = value;
+  this.file = file;
+ }
+
+ /**
+  * Returns an event for a pressed cell.
+  *
+  * @param cell Packed cell <code>r * cols + c</code>
+  *
+  * @return The event
+  *
+  */
+ public static GameEvent cellPressed(int cell) {
+  return new GameEvent(Type.CELL_PRESSED, cell, null);
+ }
+
+ /**
+  * Return an event that starts a new random game
+  */
+ public static GameEvent reset() {
+  return RESET;
+ }
+
+ /**
+  * Returns an event that starts a puzzle from the catalogue.
+  *
+  * @param puzzleId ID of the puzzle
+  *
+  * @return The event
+  *
+  */
+ public static GameEvent resetToPuzzle(long puzzleId) {
+  return new GameEvent(Type.RESET_TO_PUZZLE, puzzleId, null);
+ }
+
+ /**
+  * Return an event that shows which cells solve the game
+  */
+ public static GameEvent solveRequested() {
+  return SOLVE_REQUESTED;
+ }
+
+ /**
+  * Return an event that takes back the last move
+  */
+ public static GameEvent undo() {
+  return UNDO;
+ }
+
+ /**
+  * Return an event that plays the last undone move again
+  */
+ public static GameEvent redo() {
+  return REDO;
+ }
+
+ /**
+  * Returns an event that jumps in the move history.
+  *
+  * @param position Number of moves of the history to have played
+  *
+  * @return The event
+  *
+  */
+ public static GameEvent seek(int position) {
+  return new GameEvent(Type.SEEK, position, null);
+ }
+
+ /**
+  * Returns an event that saves the game.
+  *
+  * @param file File to write
+  *
+  * @return The event
+  *
+  */
+ public static GameEvent save(Path file) {
+  return new GameEvent(Type.SAVE, 0L, file);
+ }
+
+ /**
+  * Returns an event that loads a saved game.
+  *
+  * @param file File to read
+  *
+  * @return The event
+  *
+  */
+ public static GameEvent load(Path file) {
+  return new GameEvent(Type.LOAD, 0L, file);
+ }
+
+ /**
+  * Returns an event that starts writing a replay.
+  *
+  * @param file File to write the replay to
+  *
+  * @return The event
+  *
+  */
+ public static GameEvent startReplay(Path file) {
+  return new GameEvent(Type.START_REPLAY, 0L, file);
+ }
+
+ /**
+  * Return an event that finishes the replay being written
+  */
+ public static GameEvent stopReplay() {
+  return STOP_REPLAY;
+ }
+
+ /**
+  * Return the kind of event
+  */
+ public Type getType() {
+  return this.type;
+ }
+
+ /**
+  * Return the packed cell of a CELL_PRESSED event
+  */
+ public int getCell() {
+  return (int) this.value;
+ }
+
+ /**
+  * Return the puzzle ID of a RESET_TO_PUZZLE event
+  */
+ public long getPuzzleId() {
+  return this.value;
+ }
+
+ /**
+  * Return the position of a SEEK event
+  */
+ public int getPosition() {
+  return (int) this.value;
+ }
+
+ /**
+  * Return the file of a SAVE, LOAD or START_REPLAY event
+  */
+ public Path getFile() {
+  return this.file;
+ }
+
+ @Override public String toString() {
+  return this.type + (this.file != null ? " " + this.file : this.value != 0 ? " " + this.value : "");
+ }
+}
@@ -0,0 +1,449 @@
+/**
+ * @(#)GameModel.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+//Java input/output
+import java.io.IOException;
+import java.nio.file.Path;
+
+//Java utilities
+import java.util.SplittableRandom;
+
+
+/**
+ * Everything about one game that is not Swing: the lights, the clicks,
+ * the move history, the hint and the replay being written. It knows
+ * nothing about windows or the event dispatch thread.
+ * <p>
+ * A {@link LiveHint} keeps a solution current through every click, so
+ * the fewest presses still needed are always known and the hint, once
+ * asked for, follows the game without running the solver again.
+ * <p>
+ * In the window the model is owned by the {@link EventPipeline}, which
+ * calls {@link #apply(GameEvent)} from its own thread and hands copies
+ * of the state to the window with {@link #snapshot()}. A GameModel is
+ * not thread safe, so all calls must come from one thread at a time.
+ *
+ */
+public class GameModel {
+
+ /** Status shown when the hint finds no solution */
+ public static final String NO_SOLUTION = "No Solution!";
+
+ /** Status shown when an event names a cell or move that does not exist */
+ public static final String BAD_MOVE = "Bad move!";
+
+ /** Status shown when an event could not be carried out */
+ public static final String EVENT_FAILED = "Move failed!";
+
+ /** Number of cells in a row/column of the board */
+ private final int cells;
+
+ /** Lights of the game */
+ private final Board board;
+
+ /** Source of random bits for new games */
+ private final SplittableRandom random;
+
+ /** Generator of the puzzles, so every game can be solved */
+ private final PuzzleGenerator generator;
+
+ /** Catalogue of the puzzles that can be asked for by ID */
+ private final PuzzleCatalogue catalogue;
+
+ /** Solver used to find the hint presses, parallel on large boards */
+ private final Solver solver;
+
+ /** Moves of the current game, for undo and redo */
+ private MoveLog moveLog;
+
+ /** Number of clicks the player made */
+ private int clicks;
+
+ /** Solution kept current after every press */
+ private final LiveHint live;
+
+ /** True while the hint is shown */
+ private boolean hintShown;
+
+ /** Message for the status label, or null for the usual one */
+ private String status;
+
+ /** Replay every press is written to, or null */
+ private ReplayWriter replay;
+
+
+ /**
+  * Creates a model with a new random game on a board of the
+  * given size.
+  *
+  * @param cells Number of cells in a row/column of the board
+  *
+  */
+ public GameModel(int cells) {
+  this.cells = cells;
+  this.board = new Board(cells, cells);
+  this.random = new SplittableRandom();
+  this.generator = new PuzzleGenerator(cells, cells);
+  this.catalogue = new PuzzleCatalogue(cells, cells);
+  this.solver = new ParallelSolver();
+  this.moveLog = new MoveLog();
+  this.live = new LiveHint(this.board.getTopology());
+  this.generator.fill(this.board, PuzzleGenerator.UNIFORM, this.random);
+  this.live.reset(this.board, this.solver);
+ }
+
+ /**
+  * Carries out one event. Problems with files do not stop the
+  * game; they are shown in the status instead, and so are cells
+  * outside the board and positions outside the move history, which
+  * bots, replays or damaged saves may send.
+  *
+  * @param event Event to carry out
+  *
+  */
+ public void apply(GameEvent event) {
+  this.status = null;
+  switch (event.getType()) {
+   case CELL_PRESSED:
+    if (event.getCell() < 0 || event.getCell() >= this.cells * this.cells) {
+     this.status = BAD_MOVE;
+     break;
+    }
+    this.press(event.getCell() / this.cells, event.getCell() % this.cells);
+    break;
+   case RESET:
+    this.reset();
+    break;
+   case RESET_TO_PUZZLE:
+    this.reset(event.getPuzzleId());
+    break;
+   case SOLVE_REQUESTED:
+    this.solve();
+    break;
+   case UNDO:
+    this.undo();
+    break;
+   case REDO:
+    this.redo();
+    break;
+   case SEEK:
+    if (event.getPosition() < 0 || event.getPosition() > this.moveLog.getSize()) {
+     this.status = BAD_MOVE;
+     break;
+    }
+    this.seek(event.getPosition());
+    break;
+   case SAVE:
+    try {
+     this.save(event.getFile());
+    } catch (IOException e) {
+     this.status = "Save failed!";
+    }
+    break;
+   case LOAD:
+    try {
+     this.load(event.getFile());
+    } catch (IOException e) {
+     this.status = "Load failed!";
+    }
+    break;
+   case START_REPLAY:
+    try {
+     this.startReplay(event.getFile());
+    } catch (IOException e) {
+     this.status = "Replay failed!";
+    }
+    break;
+   case STOP_REPLAY:
+    this.stopReplay();
+    break;
+   default:
+    throw new IllegalArgumentException("Unknown event " + event);
+  }
+ }
+
+ /**
+  * Presses a cell as a move of the player: the cell and its
+  * neighbours are toggled, and the move is logged and counted.
+  *
+  * @param r Row number of the cell
+  *
+  * @param c Column number of the cell
+  *
+  */
+ public void press(int r, int c) {
+  this.toggleAdjacentLights(r, c);
+  this.moveLog.record(r * this.cells + c);
+  this.clicks++;
+ }
+
+ /**
+  * Toggles a cell and its neighbours, brings the live hint up to
+  * date and writes the press to the replay, without counting it as
+  * a move.
+  */
+ private void toggleAdjacentLights(int r, int c) {
+  this.board.toggleAdjacentLights(r, c);
+  this.live.press(r, c);
+  if (this.replay != null) {
+   try {
+    this.replay.write(r * this.cells + c, System.currentTimeMillis());
+   } catch (IOException e) {
+    this.status = "Replay failed!";
+    this.closeReplay();
+   }
+  }
+ }
+
+ /**
+  * Starts a new random game that can always be solved.
+  */
+ public void reset() {
+  this.stopReplay();
+  this.generator.fill(this.board, PuzzleGenerator.UNIFORM, this.random);
+  this.newGame();
+ }
+
+ /**
+  * Starts the puzzle with the given ID from the catalogue.
+  *
+  * @param puzzleId ID of the puzzle to play
+  *
+  */
+ public void reset(long puzzleId) {
+  this.stopReplay();
+  this.catalogue.fill(this.board, puzzleId);
+  this.newGame();
+ }
+
+ /**
+  * Forgets the moves, clicks and hint of the last game and solves
+  * the new one
+  */
+ private void newGame() {
+  this.moveLog.clear();
+  this.clicks = 0;
+  this.hintShown = false;
+  this.live.reset(this.board, this.solver);
+ }
+
+ /**
+  * Shows the hint, or hides it again if it is shown. While it is
+  * shown it follows every press. If the board cannot be solved the
+  * status says so instead.
+  */
+ public void solve() {
+  if (!this.live.isSolvable()) {
+   this.hintShown = false;
+   this.status = NO_SOLUTION;
+   return;
+  }
+  this.hintShown = !this.hintShown;
+ }
+
+ /**
+  * Takes back the last move by pressing the same cell again, and
+  * takes back its click.
+  *
+  * @return true if a move was undone, false if there was none
+  *
+  */
+ public boolean undo() {
+  if (!this.moveLog.canUndo()) {
+   return false;
+  }
+  int cell = this.moveLog.undo();
+  this.toggleAdjacentLights(cell / this.cells, cell % this.cells);
+  this.clicks--;
+  return true;
+ }
+
+ /**
+  * Plays the last undone move again and counts its click.
+  *
+  * @return true if a move was redone, false if there was none
+  *
+  */
+ public boolean redo() {
+  if (!this.moveLog.canRedo()) {
+   return false;
+  }
+  int cell = this.moveLog.redo();
+  this.toggleAdjacentLights(cell / this.cells, cell % this.cells);
+  this.clicks++;
+  return true;
+ }
+
+ /**
+  * Jumps to any point in the move history by undoing or redoing
+  * one move at a time, so the cost is the number of moves between
+  * the current position and the new one.
+  *
+  * @param position Number of moves of the history to have played,
+  *   clamped to the moves that are remembered
+  *
+  */
+ public void seek(int position) {
+  int target = Math.max(0, Math.min(position, this.moveLog.getSize()));
+  while (this.moveLog.getPosition() > target) {
+   this.undo();
+  }
+  while (this.moveLog.getPosition() < target) {
+   this.redo();
+  }
+ }
+
+ /**
+  * Saves the lights, clicks and moves of the game to a file.
+  *
+  * @param file File to write
+  *
+  * @throws IOException if the file cannot be written
+  *
+  */
+ public void save(Path file) throws IOException {
+  new SavedGame(this.board, this.clicks, this.moveLog).write(file);
+ }
+
+ /**
+  * Continues a game that was saved to a file.
+  *
+  * @param file File to read, saved from a board of the same size
+  *
+  * @throws IOException if the file cannot be read or holds a board
+  *   of another size
+  *
+  */
+ public void load(Path file) throws IOException {
+  SavedGame saved = SavedGame.read(file);
+  if (saved.getBoard().getRows() != this.cells || saved.getBoard().getCols() != this.cells) {
+   throw new IOException(file + " holds a board of another size");
+  }
+  this.stopReplay();
+  this.board.copyFrom(saved.getBoard());
+  this.moveLog = saved.getMoveLog();
+  this.clicks = saved.getClicks();
+  this.hintShown = false;
+  this.live.reset(this.board, this.solver);
+ }
+
+ /**
+  * Starts writing a replay of the game from its current lights. The
+  * replay ends when the game is reset or loaded.
+  *
+  * @param file File to write the replay to
+  *
+  * @throws IOException if the file cannot be written
+  *
+  */
+ public void startReplay(Path file) throws IOException {
+  this.stopReplay();
+  this.replay = ReplayWriter.create(file, this.board);
+ }
+
+ /**
+  * Finishes the replay being written, if there is one.
+  */
+ public void stopReplay() {
+  if (this.replay == null) {
+   return;
+  }
+  try {
+   this.replay.close();
+  } catch (IOException e) {
+   this.status = "Replay failed!";
+  }
+  this.replay = null;
+ }
+
+ /**
+  * Writes the presses buffered for the replay to its file, if there
+  * is a replay. Called after every batch of events, so the presses are
+  * on disk even when the window exits without stopping the replay.
+  */
+ public void flushReplay() {
+  if (this.replay == null) {
+   return;
+  }
+  try {
+   this.replay.flush();
+  } catch (IOException e) {
+   this.status = "Replay failed!";
+   this.closeReplay();
+  }
+ }
+
+ /**
+  * Closes a replay that failed, ignoring any further error
+  */
+ private void closeReplay() {
+  try {
+   this.replay.close();
+  } catch (IOException e) {
+   //Already reported
+  }
+  this.replay = null;
+ }
+
+ /**
+  * Shows a message in the status label until the next event, for
+  * example when an event failed.
+  *
+  * @param status Message to show
+  *
+  */
+ public void setStatus(String status) {
+  this.status = status;
+ }
+
+ /**
+  * Takes a copy of what the window shows.
+  *
+  * @return Snapshot of the game
+  *
+  */
+ public GameSnapshot snapshot() {
+  return new GameSnapshot(new Board(this.board), this.hintShown ? this.live.getHint() : null, this.clicks,
+          this.live.getMinimumPresses(), this.live.isExact(), this.status);
+ }
+
+ /**
+  * Return number of cells in a row/column of the board
+  */
+ public int getCells() {
+  return this.cells;
+ }
+
+ /**
+  * Return the lights of the game
+  */
+ public Board getBoard() {
+  return this.board;
+ }
+
+ /**
+  * Return the moves of the game
+  */
+ public MoveLog getMoveLog() {
+  return this.moveLog;
+ }
+
+ /**
+  * Return number of clicks the player made
+  */
+ public int getClicks() {
+  return this.clicks;
+ }
+
+ /**
+  * Return the solution kept current after every press
+  */
+ public LiveHint getLiveHint() {
+  return this.live;
+ }
+}
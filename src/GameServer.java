@@ -0,0 +1,368 @@
+/**
+ * @(#)GameServer.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+//Java input/output
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+
+//Java utilities
+import java.util.Set;
+import java.util.SplittableRandom;
+
+//Concurrency
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Hosts many independent games of Lights Out in one JVM, played over a
+ * plain text protocol on a local TCP socket.
+ * <p>
+ * Every connection is a session with a game of its own, which starts
+ * on a random puzzle. A session is only a {@link Board} and a click
+ * count, a few dozen bytes for the classic sizes, so thousands of
+ * games fit where a single window of <code>Light</code> buttons would.
+ * <p>
+ * Each connection is served by a thread of its own that blocks on the
+ * socket. On a JVM with virtual threads (Java 21 and later) those are
+ * virtual threads, so thousands of idle connections cost almost
+ * nothing; otherwise they come from a cached pool of platform threads.
+ * <p>
+ * The client sends one command per line and gets one line back:
+ * <pre>
+ *   press R C    OK clicks lightsOn       presses cell (R, C)
+ *   reset        OK clicks lightsOn       starts a new random puzzle
+ *   reset ID     OK clicks lightsOn       starts puzzle ID of the catalogue
+ *   hint         HINT n r1 c1 ... rn cn   presses that solve the board
+ *                NONE                     if it cannot be solved
+ *   state        STATE rows cols clicks lightsOn cells
+ *   quit         BYE                      and the connection is closed
+ * </pre>
+ * where <code>cells</code> are the rows of the board as <code>O</code>
+ * and <code>.</code> separated by <code>/</code>. A command that cannot
+ * be understood is answered with <code>ERR</code> and a message, and
+ * the session goes on.
+ * <p>
+ * Usage:
+ * <pre>
+ *   java GameServer [port] [size]
+ * </pre>
+ *
+ */
+public class GameServer {
+
+ /** Port the server listens on when none is given */
+ public static final int DEFAULT_PORT = 7654;
+
+ /** Number of rows and columns of every board */
+ private final int size;
+
+ /** Socket the server accepts connections on */
+ private final ServerSocket serverSocket;
+
+ /** Threads serving the connections, one per connection */
+ private final ExecutorService executor;
+
+ /** Connections that are open, so closing the server can close them */
+ private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+
+ /** Generator of the random puzzles */
+ private final PuzzleGenerator generator;
+
+ /** Catalogue of the numbered puzzles */
+ private final PuzzleCatalogue catalogue;
+
+ /** Solver for hints, shared by every session */
+ private final Solver solver;
+
+ /** Seeds the random generator of each session */
+ private final AtomicLong seeds = new AtomicLong(System.nanoTime());
+
+ /** Number of sessions that were ever started */
+ private final LongAdder sessionsStarted = new LongAdder();
+
+ /** Number of commands answered */
+ private final LongAdder commands = new LongAdder();
+
+
+ /**
+  * Starts a server from the command line and serves until the JVM is
+  * stopped.
+  *
+  * @param args Optional port, then optional board size
+  *
+  */
+ public static void main(String[] args) throws IOException {
+  int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+  int size = args.length > 1 ? Integer.parseInt(args[1]) : LightGrid.CELLS;
+  String cache = System.getProperty(InverseCache.CACHE_FILE);
+  if (cache != null) {
+   InverseCache.shared().persistTo(Paths.get(cache));
+  }
+  GameServer server = new GameServer(port, size);
+  System.out.println("Serving " + size + "x" + size + " games on port " + server.getPort());
+  server.serve();
+ }
+
+ /**
+  * Creates a server listening on the loopback address. Nothing is
+  * accepted until {@link #start()} or {@link #serve()} is called.
+  *
+  * @param port Port to listen on, or 0 for any free port
+  *
+  * @param size Number of rows and columns of every board
+  *
+  * @throws IOException if the port cannot be opened
+  *
+  */
+ public GameServer(int port, int size) throws IOException {
+  if (size <= 0) {
+   throw new IllegalArgumentException("Board must have at least one cell: " + size);
+  }
+  this.size = size;
+  this.generator = new PuzzleGenerator(size, size);
+  this.catalogue = new PuzzleCatalogue(size, size);
+  this.solver = size <= Simulation.MAX_OPTIMAL_SIZE ? new OptimalSolver() : new ParallelSolver();
+  this.executor = newConnectionExecutor();
+  this.serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+ }
+
+ /**
+  * Returns an executor that starts a virtual thread per task when the
+  * JVM has them, and a pooled daemon platform thread otherwise.
+  */
+ private static ExecutorService newConnectionExecutor() {
+  try {
+   return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+  } catch (ReflectiveOperationException e) {
+   return Executors.newCachedThreadPool(r -> {
+    Thread thread = new Thread(r, "game-session");
+    thread.setDaemon(true);
+    return thread;
+   });
+  }
+ }
+
+ /**
+  * Return port the server listens on
+  */
+ public int getPort() {
+  return this.serverSocket.getLocalPort();
+ }
+
+ /**
+  * Return number of rows and columns of every board
+  */
+ public int getSize() {
+  return this.size;
+ }
+
+ /**
+  * Return number of connections that are open
+  */
+ public int getOpenSessions() {
+  return this.connections.size();
+ }
+
+ /**
+  * Return number of sessions that were ever started
+  */
+ public long getSessionsStarted() {
+  return this.sessionsStarted.sum();
+ }
+
+ /**
+  * Return number of commands answered
+  */
+ public long getCommands() {
+  return this.commands.sum();
+ }
+
+ /**
+  * Accepts connections on a daemon thread and returns at once.
+  */
+ public void start() {
+  Thread acceptor = new Thread(this::serve, "game-server");
+  acceptor.setDaemon(true);
+  acceptor.start();
+ }
+
+ /**
+  * Accepts connections on this thread until the server is closed.
+  */
+ public void serve() {
+  while (!this.serverSocket.isClosed()) {
+   try {
+    Socket socket = this.serverSocket.accept();
+    socket.setTcpNoDelay(true);
+    this.connections.add(socket);
+    this.executor.execute(() -> this.session(socket));
+   } catch (IOException e) {
+    //Closed while waiting, or a connection that failed on the way in
+   }
+  }
+ }
+
+ /**
+  * Stops accepting connections and closes every open one.
+  */
+ public void close() {
+  try {
+   this.serverSocket.close();
+  } catch (IOException e) {
+   //Closing anyway
+  }
+  for (Socket socket : this.connections) {
+   closeQuietly(socket);
+  }
+  this.executor.shutdown();
+ }
+
+ /**
+  * Plays one game per connection until the client quits or goes away
+  */
+ private void session(Socket socket) {
+  this.sessionsStarted.increment();
+  Session game = new Session(this.size, new SplittableRandom(this.seeds.getAndIncrement()));
+  this.generator.fill(game.board, PuzzleGenerator.UNIFORM, game.random);
+  try (BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+       Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII))) {
+   String line;
+   while ((line = in.readLine()) != null) {
+    String reply = this.execute(game, line.trim());
+    out.write(reply);
+    out.write('\n');
+    out.flush();
+    this.commands.increment();
+    if (reply.equals("BYE")) {
+     break;
+    }
+   }
+  } catch (IOException e) {
+   //Client went away
+  } finally {
+   this.connections.remove(socket);
+   closeQuietly(socket);
+  }
+ }
+
+ /**
+  * Runs one command on a session and returns the reply line
+  *
+  * @param game Session the command is for
+  *
+  * @param line Command line sent by the client
+  *
+  * @return Reply line, without the line break
+  *
+  */
+ String execute(Session game, String line) {
+  String[] words = line.split("\\s+");
+  try {
+   switch (words[0].toLowerCase()) {
+    case "press":
+     if (words.length != 3) {
+      return "ERR usage: press R C";
+     }
+     int r = Integer.parseInt(words[1]);
+     int c = Integer.parseInt(words[2]);
+     if (r < 0 || r >= this.size || c < 0 || c >= this.size) {
+      return "ERR cell (" + r + ", " + c + ") is outside a " + this.size + "x" + this.size + " board";
+     }
+     game.board.toggleAdjacentLights(r, c);
+     game.clicks++;
+     return game.status();
+    case "reset":
+     if (words.length > 1) {
+      this.catalogue.fill(game.board, Long.parseLong(words[1]));
+     } else {
+      this.generator.fill(game.board, PuzzleGenerator.UNIFORM, game.random);
+     }
+     game.clicks = 0;
+     return game.status();
+    case "hint":
+     return this.hint(game.board);
+    case "state":
+     return "STATE " + this.size + " " + this.size + " " + game.clicks + " " + game.board.getNumberOfLightsOn()
+             + " " + game.board.toString().trim().replace('\n', '/');
+    case "quit":
+     return "BYE";
+    default:
+     return "ERR unknown command: " + words[0];
+   }
+  } catch (NumberFormatException e) {
+   return "ERR not a number: " + e.getMessage();
+  }
+ }
+
+ /**
+  * Returns the hint reply for a board
+  */
+ private String hint(Board board) {
+  Board presses = this.solver.solve(board);
+  if (presses == null) {
+   return "NONE";
+  }
+  StringBuilder sb = new StringBuilder("HINT ").append(presses.getNumberOfLightsOn());
+  for (int r = 0; r < this.size; r++) {
+   for (int c = 0; c < this.size; c++) {
+    if (presses.isOn(r, c)) {
+     sb.append(' ').append(r).append(' ').append(c);
+    }
+   }
+  }
+  return sb.toString();
+ }
+
+ /**
+  * Closes a socket, ignoring errors
+  */
+ private static void closeQuietly(Socket socket) {
+  try {
+   socket.close();
+  } catch (IOException e) {
+   //Closing anyway
+  }
+ }
+
+ /**
+  * The game of one connection: its lights, its clicks and its own
+  * random generator for new puzzles. Only the thread of the
+  * connection touches it.
+  */
+ static final class Session {
+
+  final Board board;
+  final SplittableRandom random;
+  int clicks;
+
+  Session(int size, SplittableRandom random) {
+   this.board = new Board(size, size);
+   this.random = random;
+  }
+
+  /**
+   * Returns the reply to a press or a reset
+   */
+  String status() {
+   return "OK " + this.clicks + " " + this.board.getNumberOfLightsOn();
+  }
+ }
+}
@@ -0,0 +1,108 @@
+/**
+ * @(#)GameSnapshot.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+
+/**
+ * A copy of everything the window shows about a game, taken by the
+ * {@link GameModel} after a batch of events. The model keeps changing
+ * on its own thread while the window paints, so the window only ever
+ * looks at snapshots, which are never changed after they are made.
+ *
+ */
+public final class GameSnapshot {
+
+ /** Lights of the game */
+ private final Board board;
+
+ /** Presses shown as a hint, or null */
+ private final Board hint;
+
+ /** Number of clicks the player made */
+ private final int clicks;
+
+ /** Fewest presses that solve the board, or -1 if it cannot be solved */
+ private final int minPresses;
+
+ /** True if minPresses is exact, false if it is an upper bound */
+ private final boolean minExact;
+
+ /** Message for the status label, or null for the usual one */
+ private final String status;
+
+
+ /**
+  * Creates a snapshot. The boards must not be changed afterwards.
+  *
+  * @param board Lights of the game
+  *
+  * @param hint Presses shown as a hint, or null
+  *
+  * @param clicks Number of clicks the player made
+  *
+  * @param minPresses Fewest presses that solve the board, or -1 if
+  *   it cannot be solved
+  *
+  * @param minExact true if minPresses is exact, false if it is an
+  *   upper bound
+  *
+  * @param status Message for the status label, or null
+  *
+  */
+ public GameSnapshot(Board board, Board hint, int clicks, int minPresses, boolean minExact, String status) {
+  this.board = board;
+  this.hint = hint;
+  this.clicks = clicks;
+  this.minPresses = minPresses;
+  this.minExact = minExact;
+  this.status = status;
+ }
+
+ /**
+  * Return lights of the game
+  */
+ public Board getBoard() {
+  return this.board;
+ }
+
+ /**
+  * Return presses shown as a hint, or null
+  */
+ public Board getHint() {
+  return this.hint;
+ }
+
+ /**
+  * Return number of clicks the player made
+  */
+ public int getClicks() {
+  return this.clicks;
+ }
+
+ /**
+  * Return fewest presses that solve the board, or -1 if it cannot
+  * be solved
+  */
+ public int getMinPresses() {
+  return this.minPresses;
+ }
+
+ /**
+  * Return true if the fewest presses are exact, false if they are
+  * an upper bound
+  */
+ public boolean isMinExact() {
+  return this.minExact;
+ }
+
+ /**
+  * Return message for the status label, or null for the usual one
+  */
+ public String getStatus() {
+  return this.status;
+ }
+}
@@ -14,11 +14,9 @@ import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.awt.Toolkit;
 
-//AWT Listener Events
-import java.awt.event.MouseEvent;
-import java.awt.event.MouseListener;
+//Java input/output
+import java.nio.file.Path;
 
 
 /**
@@ -36,16 +34,18 @@ import java.awt.event.MouseListener;
  * inheriting from the JPanel class, this game window is now a JPanel itself
  * and can do all things a JPanel container can do without us having to know
  * how those things are implemented.
+ * <p>
+ * The GameWindow does not change the game itself. Every Light and
+ * every button has its own listener, which turns the click into a
+ * {@link GameEvent} and posts it to an {@link EventPipeline}, which
+ * applies it to the {@link GameModel} on the model thread. The window
+ * only shows the {@link GameSnapshot}s that come back, at most one per
+ * frame, so solving, saving and bursts of presses from bots or replays
+ * never hold up the event dispatch thread.
  *
  */
 public class GameWindow extends JPanel {
  
- /** Set width of game window to same as the Frame width */
- public static final int WIDTH = LightsOut.WIDTH;
- /** Set height of game window to same as the Frame height */
- public static final int HEIGHT = LightsOut.HEIGHT;
- 
- 
  /** Background color of game window */
  public static final Color BACKGROUND =  Color.BLACK;
  
@@ -56,36 +56,44 @@ public class GameWindow extends JPanel {
  /** ControlPanel object for game which contains stats and reset button */
  private ControlPanel controlPanel;
  
- /** GameListener from JFrame to be passed throughout the different components */
- private MouseListener gameListener;
+ /** Pipeline that carries the events of this window to the game */
+ private EventPipeline pipeline;
  
  
  /**
   * Creates a new GameWindow responsible for set up of the different
-  * components of the game with the specified MouseListener object that
-  * all of the components actions are handled through.
+  * components of the game, each posting its own events to the game.
+  */
+ public GameWindow() {
+  this(LightGrid.CELLS);
+ }
+ 
+ /**
+  * Creates a new GameWindow with a grid of the given number of cells
+  * in each row and column. Grids larger than
+  * {@link LightGrid#MAX_BUTTON_CELLS} paint their own cells instead of
+  * creating a Light button per cell.
   *
-  * @param listener MouseListener that was implemented in the JFrame
-  *   window. We will pass this listener object down throughout
-  *   the different components of the program so the single
-  *    listener object will communicate with all different parts.
+  * @param cells Number of cells in a row/column of the grid
   *
   */
- public GameWindow(MouseListener listener) {
+ public GameWindow(int cells) {
   /********************************************************************
-   * Set up the listener, correctly set the size, set the background *
+   * Correctly set the size, set the background      *
    * color and also set the opacity of the JPanel to true (meaning *
    * its not transparent), nullify the layout of this JPanel, and  *
    * invoke the method responsible for creating the components of  *
    * the GameWindow.             *
    ********************************************************************/
-   this.gameListener = listener;
-   this.setSize(WIDTH, HEIGHT);
+   this.setSize(Display.WIDTH, Display.HEIGHT);
    this.setBackground(BACKGROUND);
    this.setOpaque(true);
    this.setLayout(null);
+   this.initializeLightGrid(cells);
    this.initializeControlPanel();
-   this.initializeLightGrid();
+   GameModel model = new GameModel(cells);
+   this.update(model.snapshot());
+   this.pipeline = new EventPipeline(model, this::update);
  }
  
  
@@ -102,17 +110,20 @@ public class GameWindow extends JPanel {
   * we would only need to write the implementation once here and each
   * constructor invokes this method themselves.
   * 
+  * @param cells Number of cells in a row/column of the grid
+  *
   */
- private void initializeLightGrid() {
+ private void initializeLightGrid(int cells) {
   /************************************************************************
    * Instantiate a LightGrid, set the bounds of the light grid with the *
    * starting coordinates set to 1% of the width and 14% of the height *
    * of this GameWindow, and finally be sure to add the grid to the  *
    * GameWindow.               *
    ************************************************************************/
-  this.grid = new LightGrid(gameListener);
-  this.grid.setLocation((int)(WIDTH * .01), ((int)(HEIGHT * .14)));
-  //this.add(grid);
+  this.grid = new LightGrid((cell, when) -> this.onInput(GameEvent.cellPressed(cell), when),
+          cells, cells > LightGrid.MAX_BUTTON_CELLS);
+  this.grid.setLocation((int)(Display.WIDTH * .01), ((int)(Display.HEIGHT * .14)));
+  this.add(grid);
  }
  
  /**
@@ -132,47 +143,150 @@ public class GameWindow extends JPanel {
    * current number of lights that are on, and finally don't  *
    * forget to add the control panel to the GameWindow.   *
    ****************************************************************/
-  this.controlPanel = new ControlPanel(gameListener);
-  this.controlPanel.setBounds(WIDTH + 50, HEIGHT + 50, WIDTH, HEIGHT);
-  this.controlPanel.getLightCounter().setText("" + this.grid.getNumberOfLightsOn());
-  
+  this.controlPanel = new ControlPanel();
+  this.controlPanel.getHintButton().addActionListener(e -> this.onInput(GameEvent.solveRequested(), e.getWhen()));
+  this.controlPanel.getResetButton().addActionListener(e -> this.onInput(GameEvent.reset(), e.getWhen()));
+  this.controlPanel.getUndoButton().addActionListener(e -> this.onInput(GameEvent.undo(), e.getWhen()));
+  this.controlPanel.getRedoButton().addActionListener(e -> this.onInput(GameEvent.redo(), e.getWhen()));
+  this.controlPanel.setLocation(this.grid.getX() + Display.GRID_SIZE + 50, this.grid.getY());
+  this.add(this.controlPanel);
  }
  
  /**
-  * Used to pass left click event from main window down to
-  * the light grid. Thus the sole purpose here is to act like
-  * the middle man, transferring the event from the top level
-  * class down to one or more of its parts.
-  * 
-  * @param e MouseEvent that was passed from the JFrame's 
-  *   listener class.
+  * Posts an event that came from the mouse, recording how long the
+  * click waited before the event dispatch thread got to it.
+  *
+  * @param event Event to post
+  *
+  * @param when Time of the click in milliseconds since the epoch
   *
   */
- public void onLeftClick(MouseEvent e) {
-  /************************************************************
-   * Correctly pass the MouseEvent that occurred to the grid *
-   * for processing, then update the control panel's light *
-   * counter label to the new number of lights that are on, *
-   * and update the click counter label since a click on the  *
-   * LightGrid was just determined to have occurred.   *
-   ************************************************************/
-   this.grid.onLeftClick(e);
-   //ControlPanel.getLightCounter();
+ private void onInput(GameEvent event, long when) {
+  LatencyMetrics.get().record(LatencyMetrics.Stage.INPUT_DELAY,
+          (System.currentTimeMillis() - when) * 1000000L);
+  this.post(event);
  }
 
  /**
   * Responsible for resetting the different components of the Lights Out 
-  * game when the reset button has been clicked. This method should be
-  * invoked by the JFrame's event handling class when the reset button
-  * was clicked.
+  * game, the same as the reset button does. Can be called from any
+  * thread.
   * 
   */
  public void reset() {
-  /************************************************************
-   * Reset the grid, reset the control panel, then update the *
-   * control panel's light counter to be the new number of *
-   * lights that are on in the grid.       *
-   ************************************************************/
-  grid.reset();
- } 
-}
\ No newline at end of file
+  this.post(GameEvent.reset());
+ }
+ 
+ /**
+  * Resets the game the same way as {@link #reset()}, but to the
+  * puzzle with the given ID instead of a random one.
+  *
+  * @param puzzleId ID of the puzzle to play
+  *
+  */
+ public void reset(long puzzleId) {
+  this.post(GameEvent.resetToPuzzle(puzzleId));
+ }
+ 
+ /**
+  * Saves the lights, clicks and moves of the game to a file. If
+  * the file cannot be written the status label says so.
+  *
+  * @param file File to write
+  *
+  */
+ public void save(Path file) {
+  this.post(GameEvent.save(file));
+ }
+ 
+ /**
+  * Continues a game that was saved to a file. If the file cannot
+  * be read the status label says so.
+  *
+  * @param file File to read
+  *
+  */
+ public void load(Path file) {
+  this.post(GameEvent.load(file));
+ }
+ 
+ /**
+  * Starts writing a replay of the game from its current lights. The
+  * replay ends when the game is reset or loaded.
+  *
+  * @param file File to write the replay to
+  *
+  */
+ public void startReplay(Path file) {
+  this.post(GameEvent.startReplay(file));
+ }
+ 
+ /**
+  * Finishes the replay being written, if there is one.
+  */
+ public void stopReplay() {
+  this.post(GameEvent.stopReplay());
+ }
+ 
+ /**
+  * Takes back the last move and the click it counted.
+  */
+ public void undo() {
+  this.post(GameEvent.undo());
+ }
+ 
+ /**
+  * Plays the last undone move again and counts its click.
+  */
+ public void redo() {
+  this.post(GameEvent.redo());
+ }
+ 
+ /**
+  * Jumps to any point in the move history of the game.
+  *
+  * @param position Number of moves of the history to have played
+  *
+  */
+ public void seek(int position) {
+  this.post(GameEvent.seek(position));
+ }
+ 
+ /**
+  * Shows which Lights need to be pressed, or hides them again. The
+  * hint follows the game until it is hidden. If the board cannot be
+  * solved the status label says so instead.
+  *
+  */
+ public void showHint() {
+  this.post(GameEvent.solveRequested());
+ }
+ 
+ /**
+  * Posts an event to the game. Can be called from any thread, so
+  * bots and replays can drive the window as well as the mouse.
+  *
+  * @param event Event to post
+  *
+  */
+ public void post(GameEvent event) {
+  this.pipeline.post(event);
+ }
+ 
+ /**
+  * Shows a snapshot of the game in the grid and the control panel.
+  * Called on the event dispatch thread, once per frame at most.
+  *
+  * @param snapshot Latest snapshot of the game
+  *
+  */
+ private void update(GameSnapshot snapshot) {
+  this.grid.show(snapshot.getBoard(), snapshot.getHint());
+  this.controlPanel.setClicks(snapshot.getClicks());
+  this.controlPanel.setLightsOn(snapshot.getBoard().getNumberOfLightsOn());
+  this.controlPanel.setMinPresses(snapshot.getMinPresses(), snapshot.isMinExact());
+  if (snapshot.getStatus() != null) {
+   this.controlPanel.setStatus(snapshot.getStatus());
+  }
+ }
+}
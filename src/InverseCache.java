@@ -0,0 +1,340 @@
+/**
+ * @(#)InverseCache.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+//Java input/output
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+//Java utilities
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+
+/**
+ * Keeps the {@link PressInverse} of every board size and
+ * {@link Topology} that was solved recently, so the elimination of a
+ * press matrix runs once per topology rather than once per solve. With
+ * the inverse at hand a solve is a matrix-vector product.
+ * <p>
+ * The cache is bounded by the bytes its matrices take, not by the
+ * number of topologies, since the matrices of a 100x100 board are a
+ * hundred million times the size of those of a 3x3 board. When a new
+ * inverse takes the cache over its limit, the inverses used longest
+ * ago are dropped until it fits again. The newest one is always kept,
+ * even if it is larger than the limit on its own.
+ * <p>
+ * The inverses can be saved to a file and loaded again when the next
+ * process starts, which skips the elimination for every topology that
+ * was seen before. A cache file is written big-endian:
+ * <pre>
+ *   int   MAGIC
+ *   short VERSION
+ *   int   number of inverses, least recently used first
+ *   then for each inverse:
+ *     int   rows
+ *     int   cols
+ *     byte  ordinal of the neighbourhood
+ *     byte  1 if the edges wrap around, 2 if the press toggles the cell too
+ *     int   nullity k
+ *     long  words of the n x n inverse, then of the k x n checks, then
+ *           of the k x n null space basis, row after row
+ * </pre>
+ * Files are read through a memory-mapped <code>FileChannel</code>.
+ *
+ */
+public class InverseCache {
+
+ /** First int of a cache file, "LOIC" */
+ public static final int MAGIC = 0x4C4F4943;
+
+ /** Version of the cache file format */
+ public static final short VERSION = 1;
+
+ /** Most cells of a topology whose inverse is worth working out and caching, 2 MiB of inverse */
+ public static final int MAX_CELLS = 64 * 64;
+
+ /** Default limit of the shared cache, 64 MiB */
+ public static final long DEFAULT_MAX_BYTES = 64L << 20;
+
+ /** System property naming the file the shared cache is kept in between runs */
+ public static final String CACHE_FILE = "lightsout.inverse.cache";
+
+ /** Cache of this JVM, made on first use */
+ private static InverseCache shared;
+
+ /** Most bytes the cached matrices may take */
+ private final long maxBytes;
+
+ /** Cached inverses, least recently used first */
+ private final LinkedHashMap<Topology, PressInverse> inverses = new LinkedHashMap<Topology, PressInverse>(16, .75f, true);
+
+ /** Bytes taken by the cached matrices */
+ private long bytes;
+
+ /** Number of lookups that found an inverse */
+ private long hits;
+
+ /** Number of lookups that had to run the elimination */
+ private long misses;
+
+
+ /**
+  * Creates an empty cache.
+  *
+  * @param maxBytes Most bytes the cached matrices may take
+  *
+  */
+ public InverseCache(long maxBytes) {
+  if (maxBytes <= 0) {
+   throw new IllegalArgumentException("Cache limit must be positive: " + maxBytes);
+  }
+  this.maxBytes = maxBytes;
+ }
+
+ /**
+  * Returns the cache of this JVM, with the default limit.
+  *
+  * @return Shared cache
+  *
+  */
+ public static synchronized InverseCache shared() {
+  if (shared == null) {
+   shared = new InverseCache(DEFAULT_MAX_BYTES);
+  }
+  return shared;
+ }
+
+ /**
+  * Returns the inverse for the given topology, running the
+  * elimination if it is not cached.
+  *
+  * @param topology Size and neighbourhood of the board
+  *
+  * @return Inverse of the press matrix for that topology
+  *
+  */
+ public PressInverse get(Topology topology) {
+  synchronized (this) {
+   PressInverse inverse = this.inverses.get(topology);
+   if (inverse != null) {
+    this.hits++;
+    return inverse;
+   }
+   this.misses++;
+  }
+  //Eliminate without the lock so other sizes are not held up; on a race the first one is kept
+  PressInverse inverse = new PressInverse(topology);
+  synchronized (this) {
+   PressInverse raced = this.inverses.get(topology);
+   if (raced != null) {
+    return raced;
+   }
+   this.put(inverse);
+   return inverse;
+  }
+ }
+
+ /**
+  * Adds an inverse as the most recently used one and drops the
+  * oldest ones until the cache fits its limit.
+  */
+ private void put(PressInverse inverse) {
+  PressInverse old = this.inverses.put(inverse.getTopology(), inverse);
+  if (old != null) {
+   this.bytes -= old.getBytes();
+  }
+  this.bytes += inverse.getBytes();
+  Iterator<PressInverse> oldest = this.inverses.values().iterator();
+  while (this.bytes > this.maxBytes && this.inverses.size() > 1) {
+   this.bytes -= oldest.next().getBytes();
+   oldest.remove();
+  }
+ }
+
+ /**
+  * Return most bytes the cached matrices may take
+  */
+ public long getMaxBytes() {
+  return this.maxBytes;
+ }
+
+ /**
+  * Return bytes taken by the cached matrices
+  */
+ public synchronized long getBytes() {
+  return this.bytes;
+ }
+
+ /**
+  * Return number of cached inverses
+  */
+ public synchronized int getSize() {
+  return this.inverses.size();
+ }
+
+ /**
+  * Return number of lookups that found an inverse
+  */
+ public synchronized long getHits() {
+  return this.hits;
+ }
+
+ /**
+  * Return number of lookups that had to run the elimination
+  */
+ public synchronized long getMisses() {
+  return this.misses;
+ }
+
+ /**
+  * Drops every cached inverse.
+  */
+ public synchronized void clear() {
+  this.inverses.clear();
+  this.bytes = 0;
+ }
+
+ /**
+  * Writes every cached inverse to a file. The file is written next
+  * to the target first and then moved over it, so a crash never
+  * leaves half a cache file behind.
+  *
+  * @param file File to write, replaced if it exists
+  *
+  * @throws IOException if the file cannot be written
+  *
+  */
+ public void save(Path file) throws IOException {
+  List<PressInverse> snapshot;
+  synchronized (this) {
+   snapshot = new ArrayList<PressInverse>(this.inverses.values());
+  }
+  Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+  try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+   out.writeInt(MAGIC);
+   out.writeShort(VERSION);
+   out.writeInt(snapshot.size());
+   for (PressInverse inverse : snapshot) {
+    Topology t = inverse.getTopology();
+    out.writeInt(t.getRows());
+    out.writeInt(t.getCols());
+    out.writeByte(t.getNeighbourhood().ordinal());
+    out.writeByte((t.isTorus() ? 1 : 0) | (t.isSelf() ? 2 : 0));
+    out.writeInt(inverse.getNullity());
+    writeWords(out, inverse.getInverse());
+    writeWords(out, inverse.getChecks());
+    writeWords(out, inverse.getNullSpace());
+   }
+  }
+  Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+ }
+
+ /**
+  * Writes the words of a matrix
+  */
+ private static void writeWords(DataOutputStream out, BitMatrix m) throws IOException {
+  for (long word : m.getData()) {
+   out.writeLong(word);
+  }
+ }
+
+ /**
+  * Adds every inverse of a cache file to the cache, in the order they
+  * were used, as if each had just been worked out.
+  *
+  * @param file File to read
+  *
+  * @return Number of inverses read
+  *
+  * @throws IOException if the file cannot be read or is not a
+  *   cache file of a known version
+  *
+  */
+ public int load(Path file) throws IOException {
+  try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+   MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+   if (in.remaining() < 10 || in.getInt() != MAGIC) {
+    throw new IOException(file + " is not a Lights Out inverse cache file");
+   }
+   short version = in.getShort();
+   if (version != VERSION) {
+    throw new IOException(file + " has unknown cache version " + version);
+   }
+   int count = in.getInt();
+   List<PressInverse> read = new ArrayList<PressInverse>(Math.max(0, Math.min(count, 1024)));
+   for (int i = 0; i < count; i++) {
+    int rows = in.getInt();
+    int cols = in.getInt();
+    Topology.Neighbourhood shape = Topology.Neighbourhood.values()[in.get()];
+    int flags = in.get();
+    Topology topology = new Topology(rows, cols, shape, (flags & 1) != 0, (flags & 2) != 0);
+    int k = in.getInt();
+    int n = rows * cols;
+    if (k < 0 || k > n || (long) n * n > in.remaining() * 8L) {
+     throw new IOException(file + " is corrupt: " + topology + " with nullity " + k);
+    }
+    BitMatrix inverse = readWords(in, new BitMatrix(n, n));
+    BitMatrix checks = readWords(in, new BitMatrix(k, n));
+    BitMatrix nullSpace = readWords(in, new BitMatrix(k, n));
+    read.add(new PressInverse(topology, inverse, checks, nullSpace));
+   }
+   synchronized (this) {
+    for (PressInverse inverse : read) {
+     this.put(inverse);
+    }
+   }
+   return read.size();
+  } catch (RuntimeException e) {
+   //Short or damaged files show up as buffer underflows or bad sizes
+   throw new IOException(file + " is corrupt", e);
+  }
+ }
+
+ /**
+  * Keeps the cache in a file between runs: loads the file now if it
+  * exists, and saves the cache to it when the JVM shuts down. A file
+  * that cannot be read is reported and the cache starts empty.
+  *
+  * @param file File the cache is kept in
+  *
+  */
+ public void persistTo(Path file) {
+  if (Files.exists(file)) {
+   try {
+    this.load(file);
+   } catch (IOException e) {
+    System.err.println("Inverse cache not loaded: " + e.getMessage());
+   }
+  }
+  Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+   try {
+    this.save(file);
+   } catch (IOException e) {
+    System.err.println("Inverse cache not saved: " + e.getMessage());
+   }
+  }, "inverse-cache-save"));
+ }
+
+ /**
+  * Fills the words of a matrix from a buffer
+  */
+ private static BitMatrix readWords(MappedByteBuffer in, BitMatrix m) {
+  in.asLongBuffer().get(m.getData());
+  in.position(in.position() + 8 * m.getData().length);
+  return m;
+ }
+}
@@ -0,0 +1,154 @@
+/**
+ * @(#)LatencyHistogram.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+//Concurrency
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * Counts how long something took, in nanoseconds, in buckets whose
+ * width grows with the time they hold.
+ * <p>
+ * Times below 16 ns each get a bucket of their own. Above that every
+ * power of two is split into eight equal buckets, so a bucket is never
+ * wider than an eighth of the times it holds and a percentile read
+ * from the histogram is off by at most 12.5%. All the buckets fit in
+ * one fixed <code>AtomicLongArray</code>, so recording a time from any
+ * thread allocates nothing and never blocks.
+ *
+ */
+public class LatencyHistogram {
+
+ /** Number of sub-buckets each power of two is split into, as a shift */
+ private static final int SUB_BITS = 3;
+
+ /** Smallest time that shares its bucket with other times */
+ private static final int LINEAR = 2 << SUB_BITS;
+
+ /** Number of buckets, enough for any positive long */
+ private static final int BUCKETS = LINEAR + (63 - SUB_BITS - 1) * (1 << SUB_BITS);
+
+ /** Number of times in each bucket */
+ private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+ /** Number of times recorded */
+ private final AtomicLong count = new AtomicLong();
+
+ /** Sum of the times recorded */
+ private final AtomicLong sum = new AtomicLong();
+
+ /** Longest time recorded */
+ private final AtomicLong max = new AtomicLong();
+
+
+ /**
+  * Records one time.
+  *
+  * @param nanos Time in nanoseconds, negative times count as 0
+  *
+  */
+ public void record(long nanos) {
+  long t = Math.max(0L, nanos);
+  this.counts.incrementAndGet(bucket(t));
+  this.count.incrementAndGet();
+  this.sum.addAndGet(t);
+  long m;
+  while (t > (m = this.max.get()) && !this.max.compareAndSet(m, t)) {
+   //Another thread raised the maximum, try again
+  }
+ }
+
+ /**
+  * Returns the bucket of a time
+  */
+ private static int bucket(long t) {
+  if (t < LINEAR) {
+   return (int) t;
+  }
+  int octave = 63 - Long.numberOfLeadingZeros(t);
+  int sub = (int) (t >>> (octave - SUB_BITS)) & ((1 << SUB_BITS) - 1);
+  return LINEAR + ((octave - SUB_BITS - 1) << SUB_BITS) + sub;
+ }
+
+ /**
+  * Returns the longest time that falls in a bucket
+  */
+ private static long upperBound(int bucket) {
+  if (bucket < LINEAR) {
+   return bucket;
+  }
+  int octave = ((bucket - LINEAR) >>> SUB_BITS) + SUB_BITS + 1;
+  long sub = ((bucket - LINEAR) & ((1 << SUB_BITS) - 1)) | (1 << SUB_BITS);
+  long shift = octave - SUB_BITS;
+  return ((sub + 1) << shift) - 1;
+ }
+
+ /**
+  * Return number of times recorded
+  */
+ public long getCount() {
+  return this.count.get();
+ }
+
+ /**
+  * Return mean of the times recorded in nanoseconds, 0 if none
+  */
+ public double getMean() {
+  long n = this.count.get();
+  return n == 0 ? 0.0 : (double) this.sum.get() / n;
+ }
+
+ /**
+  * Return longest time recorded in nanoseconds
+  */
+ public long getMax() {
+  return this.max.get();
+ }
+
+ /**
+  * Returns a time that the given part of the recorded times do
+  * not exceed, rounded up to the end of its bucket.
+  *
+  * @param percentile Part of the times, from 0 to 100
+  *
+  * @return Time in nanoseconds, 0 if nothing was recorded
+  *
+  */
+ public long getPercentile(double percentile) {
+  if (percentile < 0 || percentile > 100) {
+   throw new IllegalArgumentException("Percentile must be from 0 to 100: " + percentile);
+  }
+  long n = this.count.get();
+  if (n == 0) {
+   return 0L;
+  }
+  long rank = Math.max(1L, (long) Math.ceil(n * percentile / 100.0));
+  long seen = 0;
+  for (int b = 0; b < BUCKETS; b++) {
+   seen += this.counts.get(b);
+   if (seen >= rank) {
+    return Math.min(upperBound(b), this.max.get());
+   }
+  }
+  return this.max.get();
+ }
+
+ /**
+  * Forgets every time recorded. Times recorded by other threads
+  * while this runs may be partly kept.
+  */
+ public void reset() {
+  for (int b = 0; b < BUCKETS; b++) {
+   this.counts.set(b, 0L);
+  }
+  this.count.set(0L);
+  this.sum.set(0L);
+  this.max.set(0L);
+ }
+}
@@ -0,0 +1,264 @@
+/**
+ * @(#)LatencyMetrics.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+//Java input/output
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+//Java management
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+//Concurrency
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Measures where the time goes between a click and the pixels that
+ * show it, so lag can be put down to the model, the Swing layout or
+ * the painting.
+ * <p>
+ * Each {@link Stage} of the input path has its own
+ * {@link LatencyHistogram}. Recording a time allocates nothing, so
+ * measuring does not add garbage to the paths it measures. The
+ * histograms are published as the MBean <code>LightsOut:type=LatencyMetrics</code>
+ * the first time the metrics are used, and can be dumped to a CSV
+ * file at a fixed period as well.
+ *
+ */
+public class LatencyMetrics implements LatencyMetricsMBean {
+
+ /** Name the metrics are registered under */
+ public static final String OBJECT_NAME = "LightsOut:type=LatencyMetrics";
+
+ /** Header of the CSV lines */
+ public static final String CSV_HEADER = "stage,count,mean_us,p50_us,p90_us,p99_us,max_us";
+
+ /** Parts of the way from a click to the screen */
+ public enum Stage {
+  /** From the OS mouse event to the listener on the event dispatch thread */
+  INPUT_DELAY,
+  /** From posting an event to the model thread taking it */
+  MODEL_QUEUE,
+  /** Applying a batch of events to the model and taking a snapshot */
+  MODEL,
+  /** From asking for a view update to the event dispatch thread running it */
+  EDT_DELAY,
+  /** Bringing the grid and the control panel labels in line with a snapshot */
+  VIEW_UPDATE,
+  /** Painting the grid or one of its Lights */
+  PAINT,
+  /** From the oldest click of a frame to the end of its painting */
+  CLICK_TO_PAINT,
+  /** Running the solver for a hint */
+  SOLVER
+ }
+
+ /** Metrics of this JVM, made on first use */
+ private static LatencyMetrics instance;
+
+ /** One histogram per stage, in the order of the stages */
+ private final LatencyHistogram[] histograms;
+
+ /** Thread writing the CSV dump, or null */
+ private ScheduledExecutorService dumper;
+
+
+ /**
+  * Creates metrics with empty histograms that are not published.
+  * The game uses the shared metrics of {@link #get()}.
+  */
+ public LatencyMetrics() {
+  this.histograms = new LatencyHistogram[Stage.values().length];
+  for (int i = 0; i < this.histograms.length; i++) {
+   this.histograms[i] = new LatencyHistogram();
+  }
+ }
+
+ /**
+  * Returns the metrics of this JVM, publishing them as an MBean
+  * the first time.
+  *
+  * @return Shared metrics
+  *
+  */
+ public static synchronized LatencyMetrics get() {
+  if (instance == null) {
+   instance = new LatencyMetrics();
+   try {
+    ManagementFactory.getPlatformMBeanServer().registerMBean(instance, new ObjectName(OBJECT_NAME));
+   } catch (JMException e) {
+    throw new IllegalStateException("Cannot publish " + OBJECT_NAME, e);
+   }
+  }
+  return instance;
+ }
+
+ /**
+  * Records how long a stage took.
+  *
+  * @param stage Stage that was measured
+  *
+  * @param nanos Time in nanoseconds
+  *
+  */
+ public void record(Stage stage, long nanos) {
+  this.histograms[stage.ordinal()].record(nanos);
+ }
+
+ /**
+  * Records how long a stage took since the given start time.
+  *
+  * @param stage Stage that was measured
+  *
+  * @param start Value of <code>System.nanoTime()</code> when the
+  *   stage started
+  *
+  */
+ public void recordSince(Stage stage, long start) {
+  this.record(stage, System.nanoTime() - start);
+ }
+
+ /**
+  * Returns the histogram of a stage
+  *
+  * @param stage Stage that was measured
+  *
+  * @return Histogram of its times
+  *
+  */
+ public LatencyHistogram getHistogram(Stage stage) {
+  return this.histograms[stage.ordinal()];
+ }
+
+ @Override public String[] getStages() {
+  Stage[] stages = Stage.values();
+  String[] names = new String[stages.length];
+  for (int i = 0; i < stages.length; i++) {
+   names[i] = stages[i].name();
+  }
+  return names;
+ }
+
+ @Override public String[] getSummary() {
+  Stage[] stages = Stage.values();
+  String[] lines = new String[stages.length + 1];
+  lines[0] = CSV_HEADER;
+  for (int i = 0; i < stages.length; i++) {
+   lines[i + 1] = this.csvLine(stages[i]);
+  }
+  return lines;
+ }
+
+ /**
+  * Returns the CSV line of a stage
+  */
+ private String csvLine(Stage stage) {
+  LatencyHistogram h = this.getHistogram(stage);
+  return String.format("%s,%d,%.1f,%.1f,%.1f,%.1f,%.1f", stage.name(), h.getCount(), h.getMean() / 1e3,
+          h.getPercentile(50) / 1e3, h.getPercentile(90) / 1e3, h.getPercentile(99) / 1e3, h.getMax() / 1e3);
+ }
+
+ @Override public long getCount(String stage) {
+  return this.getHistogram(Stage.valueOf(stage)).getCount();
+ }
+
+ @Override public double getMeanMicros(String stage) {
+  return this.getHistogram(Stage.valueOf(stage)).getMean() / 1e3;
+ }
+
+ @Override public double getPercentileMicros(String stage, double percentile) {
+  return this.getHistogram(Stage.valueOf(stage)).getPercentile(percentile) / 1e3;
+ }
+
+ @Override public double getMaxMicros(String stage) {
+  return this.getHistogram(Stage.valueOf(stage)).getMax() / 1e3;
+ }
+
+ @Override public void reset() {
+  for (LatencyHistogram h : this.histograms) {
+   h.reset();
+  }
+ }
+
+ /**
+  * Starts appending the summary of every stage to a CSV file at a
+  * fixed period, on a daemon thread. Each line starts with the time
+  * of the dump in milliseconds since the epoch. The histograms are
+  * not reset, so each dump covers everything since the start. A dump
+  * that cannot be written is reported on the error stream and the
+  * next one is tried as planned.
+  *
+  * @param file File to append to, made if missing
+  *
+  * @param periodMillis Time between two dumps in milliseconds
+  *
+  */
+ public synchronized void startCsvDump(Path file, long periodMillis) {
+  if (periodMillis <= 0) {
+   throw new IllegalArgumentException("Period must be positive: " + periodMillis);
+  }
+  this.stopCsvDump();
+  this.dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+   Thread thread = new Thread(r, "latency-csv");
+   thread.setDaemon(true);
+   return thread;
+  });
+  this.dumper.scheduleAtFixedRate(() -> {
+   //An exception would cancel every later dump, so a failed write is only reported
+   try {
+    this.dumpCsv(file);
+   } catch (RuntimeException e) {
+    System.err.println("Latency metrics not dumped: " + e.getMessage());
+   }
+  }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+ }
+
+ /**
+  * Stops the CSV dump, if there is one.
+  */
+ public synchronized void stopCsvDump() {
+  if (this.dumper != null) {
+   this.dumper.shutdown();
+   this.dumper = null;
+  }
+ }
+
+ /**
+  * Appends the summary of every stage to a CSV file, with a header
+  * when the file is new.
+  *
+  * @param file File to append to
+  *
+  */
+ public void dumpCsv(Path file) {
+  boolean header = !Files.exists(file);
+  long now = System.currentTimeMillis();
+  try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+          StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+   if (header) {
+    out.write("time_ms," + CSV_HEADER);
+    out.newLine();
+   }
+   for (Stage stage : Stage.values()) {
+    out.write(now + "," + this.csvLine(stage));
+    out.newLine();
+   }
+  } catch (IOException e) {
+   throw new UncheckedIOException(e);
+  }
+ }
+}
@@ -0,0 +1,75 @@
+/**
+ * @(#)LatencyMetricsMBean.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+
+/**
+ * Management interface of the {@link LatencyMetrics}, as seen in
+ * JConsole or any other JMX client. Times are in microseconds. A stage
+ * is named by the name of a {@link LatencyMetrics.Stage}.
+ *
+ */
+public interface LatencyMetricsMBean {
+
+ /**
+  * Return names of the stages that are measured
+  */
+ String[] getStages();
+
+ /**
+  * Return one CSV line per stage with its count, mean, median,
+  * 90th, 99th percentile and maximum, after a header line
+  */
+ String[] getSummary();
+
+ /**
+  * Returns how many times a stage was measured
+  *
+  * @param stage Name of the stage
+  *
+  * @return Number of times
+  *
+  */
+ long getCount(String stage);
+
+ /**
+  * Returns the mean time of a stage
+  *
+  * @param stage Name of the stage
+  *
+  * @return Mean time in microseconds
+  *
+  */
+ double getMeanMicros(String stage);
+
+ /**
+  * Returns a percentile of the times of a stage
+  *
+  * @param stage Name of the stage
+  *
+  * @param percentile Percentile from 0 to 100
+  *
+  * @return Time in microseconds
+  *
+  */
+ double getPercentileMicros(String stage, double percentile);
+
+ /**
+  * Returns the longest time of a stage
+  *
+  * @param stage Name of the stage
+  *
+  * @return Time in microseconds
+  *
+  */
+ double getMaxMicros(String stage);
+
+ /**
+  * Forgets every time measured so far
+  */
+ void reset();
+}
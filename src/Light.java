@@ -13,6 +13,7 @@ import javax.swing.border.BevelBorder;
 //AWT package GUI details
 import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.Graphics;
 
 
 /**
@@ -30,26 +31,39 @@ import java.awt.Dimension;
  * A light is a button in the game, thus we are extending
  * the JButton class so a Light has the same abilities as
  * a JButton.
+ * <p>
+ * The background and border of a Light are not drawn by the
+ * button itself. Instead a Light copies the pre-rendered
+ * {@link TileSprites} image for its state, so painting it is a
+ * single image copy.
  *
  */
 public class Light extends JButton {
  
- /** Size of a Light will be size of one cell in LightGrid */
- public static final int SIZE = LightGrid.SIZE / LightGrid.CELLS;
- 
  /** Color of Light when it is OFF */
  public static final Color OFF = Color.BLACK;
  /** Color of Light when it is ON */
  public static final Color ON = Color.WHITE;
+ /**
+  * Color of a Light in each state, for games whose lights have more
+  * than two states. State 0 is OFF and state 1 is ON, so the two state
+  * game looks the same; the other states go round the color wheel.
+  */
+ public static final Color[] PALETTE = palette(MultiBoard.MAX_STATES);
  
  /** Border to appear "raised" when light is off (not pressed) */
  public static final BevelBorder OFF_BORDER = new BevelBorder(BevelBorder.RAISED, new Color(45, 33, 33) , new Color(107, 46, 46) );
  /** Border to appear "pressed" when light is on */
  public static final BevelBorder ON_BORDER = new BevelBorder(BevelBorder.LOWERED, new Color(255, 242, 249), new Color(141, 0, 70));
+ /** Border to mark a light that the solver says should be pressed */
+ public static final BevelBorder HINT_BORDER = new BevelBorder(BevelBorder.RAISED, new Color(120, 255, 120), new Color(0, 140, 0));
  
  
- /** Switch to determine if light is on */
- private boolean isOn;
+ /** State of the light, 0 when it is off */
+ private int state;
+ 
+ /** Switch to determine if light is marked as a hint */
+ private boolean isHinted;
  
  
  
@@ -61,7 +75,7 @@ public class Light extends JButton {
   * <p>
   * A Light will be instantiated inside of a grid layout.
   * Therefore, it is important to set the preferred size
-  * to a Dimension to a square with given size above.
+  * to a Dimension to a square the size of one cell.
   * 
   */
  public Light() {
@@ -75,12 +89,35 @@ public class Light extends JButton {
    ********************************************************/
    this.setBackground(OFF);
    this.setBorder(OFF_BORDER);
-   this.isOn = false;
+   this.state = 0;
    this.setOpaque(true);
    //this.setLight(OFF); //start the Light in the 'off' state
-   this.setPreferredSize(new Dimension (SIZE, SIZE));
+   this.setPreferredSize(cellDimension());
  }
 
+ /**
+  * Size of a Light will be size of one cell in LightGrid. Worked
+  * out when a Light is made, so loading this class does not need
+  * the screen (see {@link Display}).
+  */
+ private static Dimension cellDimension() {
+  int size = Display.GRID_SIZE / LightGrid.CELLS;
+  return new Dimension(size, size);
+ }
+
+ /**
+  * Builds the palette: off, on, then evenly spread hues
+  */
+ private static Color[] palette(int states) {
+  Color[] colors = new Color[states];
+  colors[0] = OFF;
+  colors[1] = ON;
+  for (int i = 2; i < states; i++) {
+   colors[i] = Color.getHSBColor((i - 2) / (float) (states - 2), .75f, .95f);
+  }
+  return colors;
+ }
+ 
  /**
   * Returns true if the light is on
   *
@@ -88,7 +125,35 @@ public class Light extends JButton {
   *
   */
  public boolean isOn() {
-   return this.isOn;
+   return this.state != 0;
+ }
+ 
+ /**
+  * Returns the state of the light
+  *
+  * @return State from 0 (off) to the last index of PALETTE
+  *
+  */
+ public int getState() {
+   return this.state;
+ }
+ 
+ /**
+  * Puts the Light into a state and sets its color from
+  * the palette and its border to match.
+  *
+  * @param state State from 0 (off) to the last index of PALETTE
+  *
+  */
+ public void setState(int state) {
+   if (state < 0 || state >= PALETTE.length) {
+     throw new IllegalArgumentException("State must be from 0 to " + (PALETTE.length - 1) + ": " + state);
+   }
+   if (this.state != state) {
+     this.state = state;
+     this.setBackground(PALETTE[state]);
+     this.setBorder(this.currentBorder());
+   }
  }
  
  /**
@@ -103,10 +168,68 @@ public class Light extends JButton {
    * Correctly switch the state of the light *
    * and update the color and border   *
    ********************************************/
-   
-   //if (onLeftClick clicks the isON) {
-   //  turnOff();
-   //}
+   this.setState(this.state == 0 ? 1 : 0);
+ }
+ 
+ /**
+  * Returns true if the light is marked as a hint
+  *
+  * @return true when light should be pressed to solve the game
+  *
+  */
+ public boolean isHinted() {
+   return this.isHinted;
+ }
+ 
+ /**
+  * Marks or unmarks the Light as one of the presses
+  * found by the solver. A hinted Light keeps its color
+  * but gets the hint border.
+  *
+  * @param hinted true to show the hint, false to hide it
+  *
+  */
+ public void setHinted(boolean hinted) {
+   if (this.isHinted != hinted) {
+     this.isHinted = hinted;
+     this.setBorder(this.currentBorder());
+   }
+ }
+ 
+ /**
+  * Returns the border matching the current state of the Light
+  */
+ private BevelBorder currentBorder() {
+   if (this.isHinted) {
+     return HINT_BORDER;
+   }
+   return this.state != 0 ? ON_BORDER : OFF_BORDER;
+ }
+ 
+ /**
+  * Paints the sprite for the current state of the Light, which
+  * already holds both the background and the border.
+  *
+  * @param g the specified Graphics window
+  *
+  */
+ @Override protected void paintComponent(Graphics g) {
+   long start = System.nanoTime();
+   int kind = TileSprites.kind(this.state, this.isHinted);
+   if (this.getModel().isArmed() && this.getModel().isPressed()) {
+     kind = TileSprites.PRESSED;
+   }
+   g.drawImage(TileSprites.tile(this, kind, this.getWidth(), this.getHeight()), 0, 0, null);
+   LatencyMetrics.get().recordSince(LatencyMetrics.Stage.PAINT, start);
+ }
+ 
+ /**
+  * The border is part of the sprite, so it is not painted again
+  *
+  * @param g the specified Graphics window
+  *
+  */
+ @Override protected void paintBorder(Graphics g) {
  }
  
  /**
@@ -120,13 +243,13 @@ public class Light extends JButton {
    * Correctly switch the button to the off *
    * state and set color and border   *
    ********************************************/
-   if (isOn) {
+   if (this.state != 0) {
      this.setBackground(OFF);
-     this.isOn = false;
+     this.state = 0;
      this.setOpaque(true);
      //this.setLight(OFF); //start the Light in the 'off' state
-     this.setPreferredSize(new Dimension (SIZE, SIZE));
-     this.setBorder(OFF_BORDER);
+     this.setPreferredSize(cellDimension());
+     this.setBorder(this.currentBorder());
    }
  }
  
@@ -15,10 +15,11 @@ import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.GridLayout;
+import java.awt.Rectangle;
 
 //AWT Listener Events
+import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.awt.event.MouseListener;
 
 
 /**
@@ -28,41 +29,60 @@ import java.awt.event.MouseListener;
  * state, organize them into a GridLayout, and once a Light has
  * been clicked determine which of the Lights it was.
  * <p>
- * Once the Light that was clicked is found, the LightGrid should
- * handle finding all adjacent Lights and toggling each of them
- * on/off, and count the number of lights that are still on each
- * turn.
+ * Every Light has its own ActionListener that knows its cell, so a
+ * click tells the {@link CellListener} of the grid which cell it was
+ * without looking for the source. Toggling the adjacent lights is left
+ * to the {@link GameModel}, which runs off the event dispatch thread.
  * <p>
  * LightGrid extends a JPanel in order to implement all of the
  * properties of a simple container object including the Layout
  * features so a GridLayout can be created to organize the Lights.
+ * <p>
+ * The actual state of the game lives in the {@link GameModel}. The
+ * LightGrid only renders copies of its board: whenever a new
+ * {@link GameSnapshot} arrives, the Lights that changed are brought
+ * in line with it.
+ * <p>
+ * A grid of one JButton per Light gets very heavy on large boards, so
+ * the LightGrid can also paint every cell itself. In that mode there
+ * are no Light components at all: the grid draws each cell with the
+ * same colors and borders a Light would use, and a click is mapped to
+ * its cell straight from the mouse coordinates.
  *
  */
 public class LightGrid extends JPanel {
  
- /** Size of square grid as percent of height of the GameWindow */
- public static final int SIZE = (int)(GameWindow.HEIGHT * .8);
-
  /** Number of cells in a row/column of the grid (Lights Out is a 5x5 grid) */
  public static final int CELLS = 5;
  
- /** Underlying 2D array for grid of lights */
+ /** Largest number of cells in a row/column still shown as Light buttons */
+ public static final int MAX_BUTTON_CELLS = 20;
+ 
+ /** Number of cells in a row/column of this grid */
+ private final int cells;
+ 
+ /** Size in pixels of one cell of the grid */
+ private final int cellSize;
+ 
+ /** True when the grid paints the cells itself instead of using Lights */
+ private final boolean painted;
+ 
+ /** Underlying 2D array for grid of lights, null when the grid is painted */
  private Light[][] grid;
  
- /** Game Listener passed from the top level JFrame */
- private MouseListener gameListener;
+ /** Presses marked as a hint, or null */
+ private Board hint;
  
- /** 
-  * Counter for number of lights that are currently on. Player
-  * wins the game once all lights are off (i.e. counter == 0)
-  */
- private int lightCounter;
+ /** Told which cell was clicked */
+ private final CellListener listener;
+ 
+ /** Lights that are shown right now, a copy of the model's board */
+ private Board board;
  
  
  /**
-  * Creates a new LightGrid object and assigns the specified
-  * MouseListener passed from the top level JFrame to the
-  * gameListener field for use with the Lights in the game.
+  * Creates a new LightGrid object that tells the given
+  * listener which of its Lights were clicked.
   * <p>
   * The default implementation should establish the listener
   * field, set the size to that specified above, set the
@@ -71,8 +91,26 @@ public class LightGrid extends JPanel {
   * and finally invoke the process for initializing those
   * Lights in the grid.
   *
+  * @param listener Told which cell was clicked
+  *
+  */
+ public LightGrid(CellListener listener) {
+  this(listener, CELLS, false);
+ }
+ 
+ /**
+  * Creates a new LightGrid with the given number of cells in
+  * each row and column.
+  *
+  * @param listener Told which cell was clicked
+  *
+  * @param cells Number of cells in a row/column of the grid
+  *
+  * @param painted true to paint every cell in this panel, false
+  *   to use one Light button per cell
+  *
   */
- public LightGrid(MouseListener listener) {
+ public LightGrid(CellListener listener, int cells, boolean painted) {
   /************************************************
    * Correctly assign the listener, set the size *
    * of the LightGrid, assign a GridLayout with *
@@ -81,18 +119,37 @@ public class LightGrid extends JPanel {
    * invoke the initialization of the individual *
    * lights.          *
    ************************************************/
-  this.gameListener = listener;
-  this.initializeLights();
+  this.listener = listener;
+  this.cells = cells;
+  this.cellSize = Math.max(1, Display.GRID_SIZE / cells);
+  this.painted = painted;
+  this.setSize(Display.GRID_SIZE, Display.GRID_SIZE);
+  this.board = new Board(cells, cells);
+  if (painted) {
+   this.setLayout(null);
+   this.setOpaque(false);
+   this.addMouseListener(new MouseAdapter() {
+    @Override public void mouseClicked(MouseEvent e) {
+     int cell = cellAt(e);
+     if (e.getButton() == MouseEvent.BUTTON1 && cell >= 0) {
+      LightGrid.this.listener.cellPressed(cell, e.getWhen());
+     }
+    }
+   });
+  } else {
+   this.setLayout(new GridLayout(cells, cells));
+   this.grid = new Light[cells][cells];
+   this.initializeLights();
+  }
  }
  
  /**
   * Correctly instantiates a Light object for each spot
-  * in the grid with a 50% chance for that light to start
-  * in the ON state. If a Light gets switched to ON, be
-  * sure to correctly increment the light counter. Each
-  * light needs to be instantiated, on/off state determined,
-  * added to the grid in the proper location, assigned the
-  * mouse listener passed from the top level JFrame, and 
+  * in the grid, starting in the OFF state until the first
+  * lights are shown (see {@link #show(Board, Board)}). Each
+  * light needs to be instantiated, added to the grid in the
+  * proper location, given an action listener that
+  * reports its own cell, and 
   * finally (which is the easiest to forget) it must be added
   * to 'this' LightGrid (JPanel) itself. 
   * <p>
@@ -112,108 +169,167 @@ private void initializeLights() {
   /****************************************************
    * Correctly create a Light for each spot in the *
    * grid, toggle the light on with a 50% chance,  *
-   * assign the listener from the top level JFrame to *
-   * each Light, and count the total number of Lights *
+   * give each Light a listener that reports its own *
+   * cell, and count the total number of Lights  *
    * that are switched on        * 
    ****************************************************/
-   this.grid = new Light[this.CELLS][this.CELLS];
    for (int i = 0; i < this.grid.length; i++) {
      for (int j = 0; j < this.grid[i].length; j++) {
+       int cell = i * this.cells + j;
        this.grid[i][j] = new Light();
        this.add(this.grid[i][j]);
-       this.grid[i][j].addMouseListener(this.gameListener);
-       if (Math.random() < .5) {
-         this.grid[i][j].toggle();
-         this.lightCounter++;
-       }
+       this.grid[i][j].addActionListener(e -> this.listener.cellPressed(cell, e.getWhen()));
      }
    }
  }
  
  /**
-  * Invoked by top level JFrame class when it is determined
-  * a left mouse click has occurred on one of the Lights in
-  * the grid. This method must correctly find the source of
-  * the mouse click (which Light was clicked) by invoking
-  * the correct information from the passed MouseEvent.
-  * <p>
-  * Once the Light source is found, this method should pass
-  * the required information for which Light was clicked to
-  * the method that handles toggling the Light and all of
-  * the adjacent lights.
+  * Finds the cell under a click on a grid that paints its own
+  * cells, straight from the coordinates of the click.
+  *
+  * @param e MouseEvent on this grid
+  *
+  * @return Packed cell <code>r * cells + c</code> that was
+  *   clicked, or -1 if the click missed every cell
+  *
+  */
+ public int cellAt(MouseEvent e) {
+   int i = e.getY() / this.cellSize;
+   int j = e.getX() / this.cellSize;
+   if (e.getX() < 0 || e.getY() < 0 || i >= this.cells || j >= this.cells) {
+     return -1;
+   }
+   return i * this.cells + j;
+ }
+ 
+ /**
+  * Brings the grid in line with the given lights and hint.
   * <p>
-  * Once this process is complete, it is here we will invoke
-  * the repaint method for the JPanel in order for the 
-  * screen to update the changes, then for efficiency exit
-  * the method before the loop finishes.
+  * The new lights are compared with the shown ones a word at a
+  * time, so only the Lights that really changed are touched, and
+  * only the box around them is repainted. This is called once per
+  * frame by the {@link EventPipeline}, however many presses were
+  * made since the last one.
   *
-  * @param e MouseEvent that occurred in the game passed
-  *   from the top level JFrame class when it is
-  *   determined the event was triggered by a left
-  *   mouse click on one of the lights in the grid.
+  * @param lights Lights to show, of the same size as the grid
   *
+  * @param presses Presses to mark as a hint, or null for none
   *
   */
- public void onLeftClick(MouseEvent e) {
-  /********************************************
-   * Correctly determine which Light was the *
-   * source of the click, then correctly use *
-   * that information to toggle the Light and *
-   * all adjacent lights. Then, invoke the *
-   * repaint and exit the method early.  *
-   ********************************************/
-   //DO NOT OVERRIDE REPAINT -> IT WILL JACK/MESS WITH YOUR CODE
-//   for(every light on LightGrid/check column & row on 5x5 grid) {
-//     search for the light that was clicked;
-//     toggleAdjacentLights();
-//     repaint();
-//   }
+ public void show(Board lights, Board presses) {
+   this.board.checkSameSize(lights);
+   int top = Integer.MAX_VALUE, left = Integer.MAX_VALUE, bottom = -1, right = -1;
+   for (int i = 0; i < this.cells; i++) {
+     for (int w = 0; w < this.board.getWordsPerRow(); w++) {
+       long changed = this.board.getWord(i, w) ^ lights.getWord(i, w);
+       if (changed == 0) {
+         continue;
+       }
+       this.board.xorWord(i, w, changed);
+       int base = w * Board.WORD_BITS;
+       top = Math.min(top, i);
+       bottom = i;
+       left = Math.min(left, base + Long.numberOfTrailingZeros(changed));
+       right = Math.max(right, base + Board.WORD_BITS - 1 - Long.numberOfLeadingZeros(changed));
+       if (!this.painted) {
+         for (long bits = changed; bits != 0; bits &= bits - 1) {
+           this.grid[i][base + Long.numberOfTrailingZeros(bits)].toggle();
+         }
+       }
+     }
+   }
+   if (presses != this.hint) {
+     this.setHint(presses);
+   } else if (this.painted && bottom >= 0) {
+     int s = this.cellSize;
+     this.repaint(left * s, top * s, (right - left + 1) * s, (bottom - top + 1) * s);
+   }
  }
  
  /**
-  * Uses the specified coordinates to correctly toggle
-  * the given light and each adjacent light. A Light is
-  * adjacent to another if it is directly above/below
-  * or to the side of the first Light. Diagonals are
-  * NOT adjacent.
+  * Marks every Light that is on in the given press set as
+  * a hint, and unmarks all others.
   *
-  * @param r Row number of the Light that was
-  *   determined to be clicked
+  * @param presses Board with a light on for each cell the
+  *   player should press, or null to clear the hint
   *
-  * @param c Column number of the Light that was
-  *   determined to be clicked
+  */
+ private void setHint(Board presses) {
+   this.hint = presses;
+   if (this.painted) {
+     this.repaint();
+     return;
+   }
+   for (int i = 0; i < this.cells; i++) {
+     for (int j = 0; j < this.cells; j++) {
+       this.grid[i][j].setHinted(presses != null && presses.isOn(i, j));
+     }
+   }
+ }
+ 
+ /**
+  * Paints every cell of the grid when the grid is painted, with the
+  * same sprites as a Light. Only the cells that overlap the clip
+  * area are drawn. A grid of Light buttons leaves painting
+  * to the Lights.
   *
+  * @param g the specified Graphics window
   *
   */
- public void toggleAdjacentLights(int r, int c) {
-  /********************************************
-   * Correctly toggle the Light at the given *
-   * location and all adjacent lights while *
-   * also tracking the total number of lights *
-   * that are on with the counter.   *
-   ********************************************/
-   //before toggling lights, check bounds/check if its within bounds
-	 //THE 1st  FOR-LOOP CHECKS/SEARCHES FOR THE LIGHT CLICKED( onLeftClick() )
-   //change state of tile touching the tile clicked
-   //if (tile clicked is out-of-bounds/(Out-Of-Bound Exception)) {
-     //change only the tiles within the bounds
-     //Light.toggle();
-   //}
+ @Override protected void paintComponent(Graphics g) {
+   super.paintComponent(g);
+   if (!this.painted) {
+     return;
+   }
+   long start = System.nanoTime();
+   Rectangle clip = g.getClipBounds();
+   if (clip == null) {
+     clip = new Rectangle(0, 0, this.getWidth(), this.getHeight());
+   }
+   int s = this.cellSize;
+   int firstRow = Math.max(0, clip.y / s);
+   int lastRow = Math.min(this.cells - 1, (clip.y + clip.height - 1) / s);
+   int firstCol = Math.max(0, clip.x / s);
+   int lastCol = Math.min(this.cells - 1, (clip.x + clip.width - 1) / s);
+   for (int i = firstRow; i <= lastRow; i++) {
+     for (int j = firstCol; j <= lastCol; j++) {
+       boolean hinted = this.hint != null && this.hint.isOn(i, j);
+       int kind = TileSprites.kind(this.board.isOn(i, j), hinted);
+       g.drawImage(TileSprites.tile(this, kind, s, s), j * s, i * s, null);
+     }
+   }
+   LatencyMetrics.get().recordSince(LatencyMetrics.Stage.PAINT, start);
  }
  
  /**
-  * Resets the light grid by switching each light off
-  * and correctly randomizing which lights are on with
-  * a 50% chance and correctly updates the light counter.
+  * Returns true if the grid paints its cells itself instead of
+  * using a Light button per cell
+  *
+  * @return true when the grid is painted
   *
   */
- public void reset() {
-  /********************************************************
-   * Reset the counter and each Light in the grid with *
-   * a 50% chance of being switched on, and keep track of *
-   * total number switched on.       *
-   ********************************************************/
-  this.initializeLights();
+ public boolean isPainted() {
+   return this.painted;
+ }
+ 
+ /**
+  * Return number of cells in a row/column of this grid
+  *
+  * @return Number of cells
+  *
+  */
+ public int getCells() {
+   return this.cells;
+ }
+ 
+ /**
+  * Return the lights that this grid shows right now
+  *
+  * @return Board holding the shown lights, do not change it
+  *
+  */
+ public Board getBoard() {
+   return this.board;
  }
  
  /**
@@ -224,7 +340,23 @@ private void initializeLights() {
   *
   */
  public int getNumberOfLightsOn() {
-   return this.lightCounter;
+   return this.board.getNumberOfLightsOn();
  }
  
-}
\ No newline at end of file
+ 
+ /**
+  * Told which cell of a grid was clicked
+  */
+ public interface CellListener {
+ 
+  /**
+   * Called on the event dispatch thread when a cell was clicked
+   *
+   * @param cell Packed cell <code>r * cells + c</code>
+   *
+   * @param when Time of the click in milliseconds since the epoch
+   *
+   */
+  void cellPressed(int cell, long when);
+ }
+}
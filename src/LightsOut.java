@@ -12,18 +12,18 @@ import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.awt.Toolkit;
 
 //AWT Listener Events
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.awt.event.MouseEvent;
-import java.awt.event.MouseListener;
 
 //Swing package GUI components
 import javax.swing.JButton;
 import javax.swing.JFrame;
 
+//Java input/output
+import java.nio.file.Paths;
+
 
 
 /**
@@ -45,11 +45,6 @@ import javax.swing.JFrame;
  */
 public class LightsOut extends JFrame {
  
- /** Set width of game window to 70% width of computer screen */
- public static final int WIDTH = (int)(Toolkit.getDefaultToolkit().getScreenSize().getWidth() * .6);
- /** Set height of game window to 70% height of computer screen */
- public static final int HEIGHT = (int)(Toolkit.getDefaultToolkit().getScreenSize().getHeight() * .8);
- 
  /** Text color for logo */
  public static final Color LOGO  =  Color.RED;
  /** Shadow color for logo */
@@ -64,6 +59,12 @@ public class LightsOut extends JFrame {
  /** Font for text */
  public static final Font FONT = new Font("Serif", Font.BOLD, 40);
  
+ /** System property naming a CSV file to dump the latency metrics to */
+ public static final String METRICS_CSV = "lightsout.metrics.csv";
+ 
+ /** System property with the period of the CSV dump in milliseconds */
+ public static final String METRICS_PERIOD = "lightsout.metrics.period";
+ 
  
  /** GameWindow for game containing the grid and control panel **/
  private GameWindow gameWindow;
@@ -72,13 +73,37 @@ public class LightsOut extends JFrame {
 //================================================================================================================================================================= 
  /**
   * Initialize and start LightsOut game window
+  * <p>
+  * Setting the system property {@value #METRICS_CSV} to a file name
+  * appends the {@link LatencyMetrics} to that file at the period in
+  * milliseconds given by {@value #METRICS_PERIOD}, 10 seconds by
+  * default. Setting {@value InverseCache#CACHE_FILE} to a file name
+  * loads the inverses of earlier runs from it before the first board
+  * is solved, and saves them back when the game exits.
+  *
+  * @param args Optional number of cells in a row/column of the grid,
+  *   then an optional ID of the puzzle to play
+  *
   */
  public static void main(String[] args) {
   
   /********************************************************
    * Initialize and activate the Lights Out JFrame here *
    ********************************************************/
-   
+   int cells = args.length > 0 ? Integer.parseInt(args[0]) : LightGrid.CELLS;
+   String csv = System.getProperty(METRICS_CSV);
+   if (csv != null) {
+     LatencyMetrics.get().startCsvDump(Paths.get(csv), Long.getLong(METRICS_PERIOD, 10000L));
+   }
+   String cache = System.getProperty(InverseCache.CACHE_FILE);
+   if (cache != null) {
+     InverseCache.shared().persistTo(Paths.get(cache));
+   }
+   LightsOut game = new LightsOut(cells);
+   if (args.length > 1) {
+     game.startPuzzle(Long.parseLong(args[1]));
+   }
+   game.play();
  }
 //================================================================================================================================================================= 
  
@@ -90,6 +115,17 @@ public class LightsOut extends JFrame {
   * the Lights Out game needs to run.
   */
  public LightsOut() {
+  this(LightGrid.CELLS);
+ }
+ 
+ /**
+  * Creates a lights out window whose grid has the given number of
+  * cells in each row and column.
+  *
+  * @param cells Number of cells in a row/column of the grid
+  *
+  */
+ public LightsOut(int cells) {
   /********************************************************************
    * Set the size of the window, deactivate the resizable option so *
    * the window cannot be resized, set the JFrame window to stop the *
@@ -98,7 +134,13 @@ public class LightsOut extends JFrame {
    * a the GameWindow with bounds that will cover the entire JFrame *
    * and add it to the JFrame           *
    ********************************************************************/
+  this.setSize(Display.WIDTH, Display.HEIGHT);
+  this.setResizable(false);
   this.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+  this.setLayout(null);
+  this.gameWindow = new GameWindow(cells);
+  this.gameWindow.setBounds(0, 0, Display.WIDTH, Display.HEIGHT);
+  this.add(this.gameWindow);
  }
  
  /**
@@ -110,7 +152,18 @@ public class LightsOut extends JFrame {
   /********************************
    * Activate the JFrame window *
    ********************************/
-   
+   this.setVisible(true);
+ }
+ 
+ /**
+  * Starts the puzzle with the given ID from the catalogue
+  * instead of the random puzzle the game started with.
+  *
+  * @param puzzleId ID of the puzzle to play
+  *
+  */
+ public void startPuzzle(long puzzleId) {
+   this.gameWindow.reset(puzzleId);
  }
  
  /**
@@ -147,8 +200,8 @@ public class LightsOut extends JFrame {
   
   /* Paint logo after other components painted */
   g2.setFont(this.FONT);
-  int x = (int)(this.WIDTH * .5 - g2.getFontMetrics().stringWidth(this.TITLE) / 2);
-  int y = (int)(this.HEIGHT * .001 + g2.getFontMetrics().getHeight());
+  int x = (int)(Display.WIDTH * .5 - g2.getFontMetrics().stringWidth(this.TITLE) / 2);
+  int y = (int)(Display.HEIGHT * .001 + g2.getFontMetrics().getHeight());
   //Draw shadow first
   g2.setColor(this.LOGO_SHADOW);
   g2.drawString(this.TITLE, x, y + this.DEPTH);
@@ -159,82 +212,4 @@ public class LightsOut extends JFrame {
   g2.drawString(this.TITLE, x - 1, y - 1);
   
  }
-
-//=================================================================================================================================================================
-//    Listener For Game
-//=================================================================================================================================================================
-
- /**
-  * Implements an inner class to the LightsOut game to handle
-  * MouseEvents by implementing the MouseListener class. The
-  * MouseListener interface handles receiving mouse events on
-  * a component (press, release, click, enter, exit). The class 
-  * that is interested in processing a mouse event must implement 
-  * the MouseListener interface.
-  * <p>
-  * Most of the time as beginner programmers we want our top level
-  * class to implement our listener interfaces because they will
-  * have reference to all parts of the program (panels, buttons,
-  * text fields, images, etc.) by accessing the getters or those
-  * objects created inside of it.
-  * <p>
-  * Note, for larger programs this is not the best design as many
-  * different parts of the program will likely listen to for the
-  * same events. Like in a game with the arrow keys doing one thing
-  * when you're in the level, and a totally different thing when
-  * you're in the main menu.
-  *
-  */
- private class GameListener implements MouseListener  { 
-  /**
-   * Invoked when the mouse button has been clicked (pressed
-   * and released) on a component.
-   *
-   * @param e MouseEvent that took place on the component.
-   *   Note, a MouseEvent object has multiple properties
-   *   that are very useful to invoke, a couple of them
-   *   are described below in the comments in which you
-   *   will implement.
-   */
-  public void mouseClicked(MouseEvent e)  {
-   
-   /************************************************************
-    * Correctly determine which mouse button threw the event. *
-    * We only care about the left mouse button (info found in *
-    * MouseEvent class). If the mouse button was not the left *
-    * one then go ahead and exit the method now. Otherwise, *
-    * you need to determine the source of the click. Was it *
-    * one of the Lights or the reset button. Once the source *
-    * is found, correctly invoke the method that performs  *
-    * the appropriate task in the GameWindow.     *
-    ************************************************************/
-      
-  }
-  
-  
-  /********************************************************************
-   * The following methods are unused methods of the MouseListener *
-   * interface. However, by "law" we must implement these methods  *
-   * when we enter into the contract of using the MouseListener  *
-   * interface. In our Lights Out game, these buttons don't do  *
-   * anything, thus we will just leave these methods with empty  *
-   * implementations. No different than any other program not using *
-   * a key that's on the keyboard.         *
-   *                 *
-   * NOTE: IF YOU WOULD LIKE TO AFTER YOUR GAME WORKS TO IMPLEMENT *
-   *    THESE TO DO SOMETHING IN YOUR GAME FEEL FREE! FOR EXAMPLE, *
-   *       PERHAPS MOUSING OVER A LIGHT CHANGES IT'S COLOR.   *
-   ********************************************************************/
-  
-  
-  /** Invoked when a mouse button has been pressed down */
-  public void mousePressed(MouseEvent e) {}
-  /** Invoked when a mouse button has been let up */
-  public void mouseReleased(MouseEvent e) {}
-  /** Invoked when a mouse hovers over a component */
-  public void mouseEntered(MouseEvent e) {}
-  /** Invoked when a mouse is moved off of a component */
-  public void mouseExited(MouseEvent e) {}
-  
- }
-}
\ No newline at end of file
+}
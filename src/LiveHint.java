@@ -0,0 +1,311 @@
+/**
+ * @(#)LiveHint.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+
+/**
+ * Keeps a solution of a board up to date while the board is played, so
+ * the hint and the number of presses still needed are known after every
+ * click without running the solver again.
+ * <p>
+ * If <code>x</code> solves the lights <code>b</code>, pressing cell
+ * <code>j</code> changes the lights to <code>b + A e_j</code>, which
+ * <code>x + e_j</code> solves. Through the pseudo-inverse that is
+ * <code>P (b + A e_j) = x + P A e_j</code>, and <code>P A e_j</code>
+ * only differs from <code>e_j</code> by a quiet pattern. So a click
+ * flips one bit of the solution, and the solver only runs when the
+ * lights are replaced as a whole: a new game or a loaded one. Whether a
+ * board can be solved never changes with a press either.
+ * <p>
+ * The fewest presses are the lowest popcount over <code>x</code> plus
+ * any sum of the <code>k</code> quiet patterns. The popcount of each of
+ * the <code>2^k</code> sums is kept in a table; a click moves every
+ * entry up or down by one, depending on whether that sum had the bit
+ * set, so the minimum stays exact at <code>2^k</code> steps per click.
+ * The quiet patterns of a classic board are found by light chasing, so
+ * they are cheap even on a 200x200 board; other topologies take them
+ * from the {@link InverseCache} when the board is small enough. When
+ * the quiet patterns are not known, or there are more than
+ * {@link #MAX_NULLITY} of them, the popcount of <code>x</code> is kept
+ * as an upper bound instead.
+ *
+ */
+public class LiveHint {
+
+ /** Largest null space dimension whose sums are all tracked */
+ public static final int MAX_NULLITY = 16;
+
+ /** Most cells of a board of another topology than the classic one whose inverse is worked out */
+ public static final int MAX_INVERSE_CELLS = InverseCache.MAX_CELLS;
+
+ /** Topology of the boards */
+ private final Topology topology;
+
+ /** Number of columns on the board */
+ private final int cols;
+
+ /** Quiet patterns as vectors numbered like Board.toVector() */
+ private final long[][] quiet;
+
+ /** True if the minimum is exact, false if it is an upper bound */
+ private final boolean exact;
+
+ /** Current solution, or null if the board cannot be solved */
+ private long[] solution;
+
+ /** Popcount of the solution plus each sum of quiet patterns */
+ private int[] counts;
+
+ /** Sum of quiet patterns with the lowest popcount */
+ private int best;
+
+
+ /**
+  * Creates a live hint for boards of the given topology, working out
+  * its quiet patterns. There is no solution until {@link #reset(Board, Solver)}.
+  *
+  * @param topology Topology of the boards
+  *
+  */
+ public LiveHint(Topology topology) {
+  this.topology = topology;
+  this.cols = topology.getCols();
+  long[][] patterns = quietPatterns(topology);
+  this.exact = patterns != null && patterns.length <= MAX_NULLITY;
+  this.quiet = this.exact ? patterns : new long[0][];
+ }
+
+ /**
+  * Returns the quiet patterns of a topology, or null if working them
+  * out would cost too much
+  */
+ private static long[][] quietPatterns(Topology topology) {
+  int rows = topology.getRows();
+  int cols = topology.getCols();
+  if (topology.isClassic()) {
+   return chasedPatterns(rows, cols);
+  }
+  if ((long) rows * cols > MAX_INVERSE_CELLS) {
+   return null;
+  }
+  BitMatrix nullSpace = InverseCache.shared().get(topology).getNullSpace();
+  long[][] patterns = new long[nullSpace.getRows()][];
+  int words = nullSpace.getWordsPerRow();
+  for (int q = 0; q < patterns.length; q++) {
+   patterns[q] = new long[words];
+   System.arraycopy(nullSpace.getData(), q * words, patterns[q], 0, words);
+  }
+  return patterns;
+ }
+
+ /**
+  * Finds the quiet patterns of a classic board by light chasing. The
+  * presses of the first row decide all the others; the lights they
+  * leave on in the last row are a linear function of them, and the
+  * first rows that leave no light on are the kernel of that function.
+  */
+ private static long[][] chasedPatterns(int rows, int cols) {
+  //Column f holds the last row left on by pressing only cell f of the first row
+  BitMatrix m = new BitMatrix(cols, cols);
+  for (int f = 0; f < cols; f++) {
+   Board lights = new Board(rows, cols);
+   lights.toggleAdjacentLights(0, f);
+   chase(lights, new Board(rows, cols));
+   for (int c = 0; c < cols; c++) {
+    if (lights.isOn(rows - 1, c)) {
+     m.set(c, f, true);
+    }
+   }
+  }
+  int[] pivotCols = new int[cols];
+  int rank = m.reducedEchelon(cols, pivotCols);
+  boolean[] isPivot = new boolean[cols];
+  for (int i = 0; i < rank; i++) {
+   isPivot[pivotCols[i]] = true;
+  }
+
+  //One quiet first row per free column, chased into a whole pattern
+  long[][] patterns = new long[cols - rank][];
+  int q = 0;
+  for (int f = 0; f < cols; f++) {
+   if (isPivot[f]) {
+    continue;
+   }
+   Board lights = new Board(rows, cols);
+   Board presses = new Board(rows, cols);
+   lights.toggleAdjacentLights(0, f);
+   presses.toggle(0, f);
+   for (int i = 0; i < rank; i++) {
+    if (m.get(i, f)) {
+     lights.toggleAdjacentLights(0, pivotCols[i]);
+     presses.toggle(0, pivotCols[i]);
+    }
+   }
+   chase(lights, presses);
+   patterns[q++] = presses.toVector();
+  }
+  return patterns;
+ }
+
+ /**
+  * Presses under every light that is on, row after row, a word of
+  * cells at a time, and records the presses
+  */
+ private static void chase(Board lights, Board presses) {
+  for (int r = 0; r + 1 < lights.getRows(); r++) {
+   for (int w = 0; w < lights.getWordsPerRow(); w++) {
+    long word = lights.getWord(r, w);
+    if (word != 0) {
+     lights.pressWord(r + 1, w, word);
+     presses.xorWord(r + 1, w, word);
+    }
+   }
+  }
+ }
+
+ /**
+  * Solves the board from scratch, after its lights were replaced as
+  * a whole. The time the solver takes is recorded in the
+  * {@link LatencyMetrics}.
+  *
+  * @param board Lights of the game
+  *
+  * @param solver Solver to run
+  *
+  */
+ public void reset(Board board, Solver solver) {
+  long start = System.nanoTime();
+  Board presses = solver.solve(board);
+  LatencyMetrics.get().recordSince(LatencyMetrics.Stage.SOLVER, start);
+  if (presses == null) {
+   this.solution = null;
+   this.counts = null;
+   return;
+  }
+  this.solution = presses.toVector();
+
+  //Popcount of every sum of quiet patterns, one pattern added per Gray code step
+  int k = this.quiet.length;
+  this.counts = new int[1 << k];
+  long[] current = this.solution.clone();
+  this.counts[0] = popcount(current);
+  for (int i = 1; i < this.counts.length; i++) {
+   long[] pattern = this.quiet[Integer.numberOfTrailingZeros(i)];
+   for (int w = 0; w < current.length; w++) {
+    current[w] ^= pattern[w];
+   }
+   this.counts[i ^ (i >>> 1)] = popcount(current);
+  }
+  this.findBest();
+ }
+
+ /**
+  * Brings the solution up to date after a press of the given cell.
+  *
+  * @param r Row number of the pressed cell
+  *
+  * @param c Column number of the pressed cell
+  *
+  */
+ public void press(int r, int c) {
+  if (this.solution == null) {
+   return;
+  }
+  int j = r * this.cols + c;
+  int word = j >>> 6;
+  long bit = 1L << j;
+
+  //Sums whose patterns hold bit j an odd number of times see it flipped
+  int mask = 0;
+  for (int q = 0; q < this.quiet.length; q++) {
+   if ((this.quiet[q][word] & bit) != 0) {
+    mask |= 1 << q;
+   }
+  }
+  int on = (this.solution[word] & bit) != 0 ? 1 : 0;
+  for (int s = 0; s < this.counts.length; s++) {
+   //Bit j of the sum s was on: the press takes it off, otherwise puts it on
+   this.counts[s] += ((on ^ Integer.bitCount(s & mask)) & 1) != 0 ? -1 : 1;
+  }
+  this.solution[word] ^= bit;
+  this.findBest();
+ }
+
+ /**
+  * Finds the sum with the lowest popcount
+  */
+ private void findBest() {
+  int b = 0;
+  for (int s = 1; s < this.counts.length; s++) {
+   if (this.counts[s] < this.counts[b]) {
+    b = s;
+   }
+  }
+  this.best = b;
+ }
+
+ /**
+  * Returns true if the board can be solved
+  *
+  * @return false if the last reset found no solution
+  *
+  */
+ public boolean isSolvable() {
+  return this.solution != null;
+ }
+
+ /**
+  * Return true if the minimum presses are exact, false if they are
+  * an upper bound
+  */
+ public boolean isExact() {
+  return this.exact;
+ }
+
+ /**
+  * Returns the fewest presses that solve the board
+  *
+  * @return Number of presses, or -1 if the board cannot be solved
+  *
+  */
+ public int getMinimumPresses() {
+  return this.solution == null ? -1 : this.counts[this.best];
+ }
+
+ /**
+  * Returns the presses of a solution with the fewest presses
+  *
+  * @return Board with a light on for every cell to press, or
+  *   <code>null</code> if the board cannot be solved
+  *
+  */
+ public Board getHint() {
+  if (this.solution == null) {
+   return null;
+  }
+  long[] x = this.solution.clone();
+  for (int q = 0; q < this.quiet.length; q++) {
+   if (((this.best >>> q) & 1) != 0) {
+    for (int w = 0; w < x.length; w++) {
+     x[w] ^= this.quiet[q][w];
+    }
+   }
+  }
+  return Board.fromVector(this.topology, x);
+ }
+
+ /**
+  * Counts the bits set in a bitset
+  */
+ private static int popcount(long[] bits) {
+  int count = 0;
+  for (long word : bits) {
+   count += Long.bitCount(word);
+  }
+  return count;
+ }
+}
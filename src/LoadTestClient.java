@@ -0,0 +1,237 @@
+/**
+ * @(#)LoadTestClient.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+//Java input/output
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+//Java utilities
+import java.util.SplittableRandom;
+
+//Concurrency
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Puts load on a {@link GameServer} from the same machine and reports
+ * the throughput and the round trip times of its commands.
+ * <p>
+ * All connections are opened first, so the server holds every session
+ * at once. A few worker threads then take turns over the connections,
+ * each sending one command and waiting for its reply before moving on
+ * to its next connection. Most commands press a random cell; every
+ * <code>HINT_EVERY</code>-th asks for a hint and every
+ * <code>STATE_EVERY</code>-th for the state. Round trips are recorded
+ * in a {@link LatencyHistogram}.
+ * <p>
+ * Without a port the client starts a server of its own in the same
+ * JVM, so a load test needs nothing else running.
+ * <p>
+ * Usage:
+ * <pre>
+ *   java LoadTestClient [connections] [commands] [threads] [port]
+ * </pre>
+ * where <code>commands</code> is the number sent on each connection.
+ *
+ */
+public class LoadTestClient {
+
+ /** Every this many commands on a connection is a hint */
+ public static final int HINT_EVERY = 50;
+
+ /** Every this many commands on a connection is a state */
+ public static final int STATE_EVERY = 10;
+
+ /** Port of the server */
+ private final int port;
+
+ /** Round trip times of the commands */
+ private final LatencyHistogram latency = new LatencyHistogram();
+
+ /** Number of replies that were errors */
+ private final LongAdder errors = new LongAdder();
+
+
+ /**
+  * Runs a load test from the command line and prints the results.
+  *
+  * @param args Connections, commands per connection, threads and
+  *   port, each of them optional
+  *
+  */
+ public static void main(String[] args) throws IOException, InterruptedException {
+  int connections = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+  int commands = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+  int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+  GameServer server = null;
+  int port;
+  if (args.length > 3) {
+   port = Integer.parseInt(args[3]);
+  } else {
+   server = new GameServer(0, LightGrid.CELLS);
+   server.start();
+   port = server.getPort();
+  }
+
+  LoadTestClient client = new LoadTestClient(port);
+  long start = System.nanoTime();
+  client.run(connections, commands, threads, System.nanoTime());
+  double seconds = (System.nanoTime() - start) / 1e9;
+
+  LatencyHistogram h = client.getLatency();
+  System.out.printf("%d connections, %d commands, %d errors in %.2f s%n",
+          connections, h.getCount(), client.getErrors(), seconds);
+  System.out.printf("%.0f commands/s%n", h.getCount() / seconds);
+  System.out.printf("round trip us: mean %.1f, p50 %.1f, p90 %.1f, p99 %.1f, max %.1f%n",
+          h.getMean() / 1e3, h.getPercentile(50) / 1e3, h.getPercentile(90) / 1e3,
+          h.getPercentile(99) / 1e3, h.getMax() / 1e3);
+  if (server != null) {
+   System.out.println("server sessions started: " + server.getSessionsStarted());
+   server.close();
+  }
+ }
+
+ /**
+  * Creates a client for a server on this machine.
+  *
+  * @param port Port of the server
+  *
+  */
+ public LoadTestClient(int port) {
+  this.port = port;
+ }
+
+ /**
+  * Return round trip times of the commands
+  */
+ public LatencyHistogram getLatency() {
+  return this.latency;
+ }
+
+ /**
+  * Return number of replies that were errors
+  */
+ public long getErrors() {
+  return this.errors.sum();
+ }
+
+ /**
+  * Opens the connections, sends the commands and closes the
+  * connections again.
+  *
+  * @param connections Number of connections, each one a session
+  *
+  * @param commands Number of commands sent on each connection
+  *
+  * @param threads Number of worker threads sending commands
+  *
+  * @param seed Seed of the random cells
+  *
+  * @throws IOException if a connection cannot be opened
+  *
+  */
+ public void run(int connections, int commands, int threads, long seed) throws IOException, InterruptedException {
+  Connection[] open = new Connection[connections];
+  try {
+   for (int i = 0; i < connections; i++) {
+    open[i] = new Connection(new Socket(InetAddress.getLoopbackAddress(), this.port));
+   }
+   //The board size is whatever the server plays
+   int size = Integer.parseInt(open[0].send("state").split(" ")[1]);
+   SplittableRandom root = new SplittableRandom(seed);
+   Thread[] workers = new Thread[threads];
+   for (int t = 0; t < threads; t++) {
+    int first = t;
+    SplittableRandom random = root.split();
+    workers[t] = new Thread(() -> this.work(open, first, threads, commands, size, random), "load-" + t);
+    workers[t].start();
+   }
+   for (Thread worker : workers) {
+    worker.join();
+   }
+  } finally {
+   for (Connection c : open) {
+    if (c != null) {
+     c.close();
+    }
+   }
+  }
+ }
+
+ /**
+  * Sends the commands on every threads-th connection from first on,
+  * one connection after the other
+  */
+ private void work(Connection[] open, int first, int threads, int commands, int size, SplittableRandom random) {
+  try {
+   for (int i = 1; i <= commands; i++) {
+    for (int j = first; j < open.length; j += threads) {
+     String command;
+     if (i % HINT_EVERY == 0) {
+      command = "hint";
+     } else if (i % STATE_EVERY == 0) {
+      command = "state";
+     } else {
+      command = "press " + random.nextInt(size) + " " + random.nextInt(size);
+     }
+     long start = System.nanoTime();
+     String reply = open[j].send(command);
+     this.latency.record(System.nanoTime() - start);
+     if (reply == null || reply.startsWith("ERR")) {
+      this.errors.increment();
+     }
+    }
+   }
+  } catch (IOException e) {
+   throw new UncheckedIOException(e);
+  }
+ }
+
+ /**
+  * One open connection to the server, with its reader and writer.
+  */
+ private static final class Connection {
+
+  private final Socket socket;
+  private final BufferedReader in;
+  private final Writer out;
+
+  Connection(Socket socket) throws IOException {
+   this.socket = socket;
+   socket.setTcpNoDelay(true);
+   this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+   this.out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII));
+  }
+
+  /**
+   * Sends a command and waits for its reply
+   */
+  String send(String command) throws IOException {
+   this.out.write(command);
+   this.out.write('\n');
+   this.out.flush();
+   return this.in.readLine();
+  }
+
+  void close() {
+   try {
+    this.socket.close();
+   } catch (IOException e) {
+    //Closing anyway
+   }
+  }
+ }
+}
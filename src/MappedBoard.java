@@ -0,0 +1,745 @@
+/**
+ * @(#)MappedBoard.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+//Java input/output
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+//Java utilities
+import java.util.Random;
+
+
+/**
+ * Implements the headless state of a classic board too large for the
+ * heap, for research runs on boards with billions of cells. The cells
+ * are packed like those of a {@link Board}, one bit per cell and
+ * <code>(cols + 63) / 64</code> words per row, but the words live
+ * outside the heap: in direct buffers, or in a memory-mapped file that
+ * keeps the board across runs and is paged in by the operating system
+ * only where it is touched.
+ * <p>
+ * A single buffer holds at most 2 GiB, so the rows are spread over
+ * chunks of up to {@link #CHUNK_BYTES} bytes, each holding whole rows.
+ * The heap only keeps the chunk handles and, during a pass over the
+ * board, a few rows, so its footprint does not grow with the number of
+ * rows. Passes over the whole board, such as {@link #chase(MappedBoard)}
+ * and {@link #randomize(Random)}, stream through it row by row.
+ * <p>
+ * A board file is written little-endian, the order x86 and ARM keep
+ * words in:
+ * <pre>
+ *   int   MAGIC
+ *   short VERSION
+ *   byte  1 if the board was closed cleanly, 0 while it is open
+ *   byte  0
+ *   int   rows
+ *   int   cols
+ *   long  number of lights that are on
+ *   then, from byte HEADER_BYTES on, the words of each row, row after row
+ * </pre>
+ * The light counter in the header is only written when the board is
+ * flushed. The first change after a flush clears the clean flag again,
+ * so a file changed by a process that died before its next flush has
+ * its lights counted again when it is next opened.
+ * <p>
+ * A board is not safe for use by several threads at once.
+ *
+ */
+public class MappedBoard implements Closeable {
+
+ /** First int of a board file, "LOMB" */
+ public static final int MAGIC = 0x4C4F4D42;
+
+ /** Version of the board file format */
+ public static final short VERSION = 1;
+
+ /** Bytes before the first row of a board file */
+ public static final int HEADER_BYTES = 64;
+
+ /** Largest number of bytes of rows in one buffer, 1 GiB */
+ public static final int CHUNK_BYTES = 1 << 30;
+
+ /** Offset of the clean flag in the header */
+ private static final int CLEAN_OFFSET = 6;
+
+ /** Offset of the light counter in the header */
+ private static final int LIGHTS_OFFSET = 16;
+
+ /** Number of rows on the board */
+ private final int rows;
+
+ /** Number of columns on the board */
+ private final int cols;
+
+ /** Number of long words used to store a single row */
+ private final int wordsPerRow;
+
+ /** Mask of the bits that are real cells in the last word of a row */
+ private final long lastWordMask;
+
+ /** Number of rows held by each chunk */
+ private final int rowsPerChunk;
+
+ /** Words of the rows, chunk after chunk */
+ private final LongBuffer[] chunks;
+
+ /** Buffers behind the chunks, kept to force mapped ones to disk */
+ private final ByteBuffer[] buffers;
+
+ /** Header of the board file, or null if the board is not mapped */
+ private final MappedByteBuffer header;
+
+ /** File the board is mapped from, or null */
+ private final FileChannel channel;
+
+ /** Number of lights that are on */
+ private long lightCounter;
+
+ /** True while the file is marked clean, until the next change */
+ private boolean clean;
+
+
+ /**
+  * Creates a board of the given size whose cells live in direct
+  * buffers outside the heap. Every light starts off. The buffers
+  * count against the JVM's limit on direct memory, which
+  * <code>-XX:MaxDirectMemorySize</code> raises.
+  *
+  * @param rows Number of rows on the board
+  *
+  * @param cols Number of columns on the board
+  *
+  * @return Board that goes away with the process
+  *
+  */
+ public static MappedBoard allocate(int rows, int cols) {
+  checkSize(rows, cols);
+  return new MappedBoard(rows, cols, allocateChunks(rows, cols), null, null);
+ }
+
+ /**
+  * Creates a board file of the given size and maps it. Every light
+  * starts off; the file is grown without writing its rows, so on most
+  * file systems it only takes disk space where lights are switched on.
+  *
+  * @param file File to create, it is replaced if it exists
+  *
+  * @param rows Number of rows on the board
+  *
+  * @param cols Number of columns on the board
+  *
+  * @return Board kept in the file
+  *
+  * @throws IOException if the file cannot be created or mapped
+  *
+  */
+ public static MappedBoard create(Path file, int rows, int cols) throws IOException {
+  checkSize(rows, cols);
+  FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+          StandardOpenOption.READ, StandardOpenOption.WRITE);
+  try {
+   //Writing the last byte grows the file with holes in between
+   long size = HEADER_BYTES + (long) rows * words(cols) * 8;
+   channel.write(ByteBuffer.wrap(new byte[1]), size - 1);
+   MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+   header.order(ByteOrder.LITTLE_ENDIAN);
+   header.putInt(0, MAGIC);
+   header.putShort(4, VERSION);
+   header.putInt(8, rows);
+   header.putInt(12, cols);
+   return new MappedBoard(rows, cols, mapChunks(channel, rows, cols), header, channel);
+  } catch (IOException | RuntimeException e) {
+   channel.close();
+   throw e;
+  }
+ }
+
+ /**
+  * Maps an existing board file, with the lights it held when it was
+  * last flushed.
+  *
+  * @param file File to open
+  *
+  * @return Board kept in the file
+  *
+  * @throws IOException if the file cannot be mapped or is not a
+  *   board file of a known version
+  *
+  */
+ public static MappedBoard open(Path file) throws IOException {
+  FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+  try {
+   if (channel.size() < HEADER_BYTES) {
+    throw new IOException(file + " is not a Lights Out board file");
+   }
+   MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+   header.order(ByteOrder.LITTLE_ENDIAN);
+   if (header.getInt(0) != MAGIC) {
+    throw new IOException(file + " is not a Lights Out board file");
+   }
+   short version = header.getShort(4);
+   if (version != VERSION) {
+    throw new IOException(file + " has unknown board version " + version);
+   }
+   int rows = header.getInt(8);
+   int cols = header.getInt(12);
+   if (rows <= 0 || cols <= 0 || channel.size() < HEADER_BYTES + (long) rows * words(cols) * 8) {
+    throw new IOException(file + " is corrupt: " + rows + "x" + cols + " board in " + channel.size() + " bytes");
+   }
+   boolean clean = header.get(CLEAN_OFFSET) != 0;
+   MappedBoard board = new MappedBoard(rows, cols, mapChunks(channel, rows, cols), header, channel);
+   if (clean) {
+    board.lightCounter = header.getLong(LIGHTS_OFFSET);
+   } else {
+    board.recount();
+   }
+   return board;
+  } catch (IOException | RuntimeException e) {
+   channel.close();
+   throw e;
+  }
+ }
+
+ /**
+  * Creates a board over the given buffers, which hold its rows chunk
+  * after chunk
+  */
+ private MappedBoard(int rows, int cols, ByteBuffer[] buffers, MappedByteBuffer header, FileChannel channel) {
+  this.rows = rows;
+  this.cols = cols;
+  this.wordsPerRow = words(cols);
+  this.lastWordMask = (cols % Board.WORD_BITS == 0) ? -1L : (1L << (cols % Board.WORD_BITS)) - 1;
+  this.rowsPerChunk = rowsPerChunk(cols);
+  this.buffers = buffers;
+  this.chunks = new LongBuffer[buffers.length];
+  for (int k = 0; k < buffers.length; k++) {
+   buffers[k].order(ByteOrder.LITTLE_ENDIAN);
+   this.chunks[k] = buffers[k].asLongBuffer();
+  }
+  this.header = header;
+  this.channel = channel;
+  if (header != null) {
+   //Marked unclean until flushed, so a crash leads to a recount
+   header.put(CLEAN_OFFSET, (byte) 0);
+   header.force();
+  }
+ }
+
+ /**
+  * Allocates the chunks of a board outside the heap
+  */
+ private static ByteBuffer[] allocateChunks(int rows, int cols) {
+  ByteBuffer[] buffers = new ByteBuffer[chunkCount(rows, cols)];
+  for (int k = 0; k < buffers.length; k++) {
+   buffers[k] = ByteBuffer.allocateDirect(chunkBytes(rows, cols, k));
+  }
+  return buffers;
+ }
+
+ /**
+  * Maps the chunks of a board from its file
+  */
+ private static ByteBuffer[] mapChunks(FileChannel channel, int rows, int cols) throws IOException {
+  ByteBuffer[] buffers = new ByteBuffer[chunkCount(rows, cols)];
+  long chunkSpan = (long) rowsPerChunk(cols) * words(cols) * 8;
+  for (int k = 0; k < buffers.length; k++) {
+   buffers[k] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + k * chunkSpan, chunkBytes(rows, cols, k));
+  }
+  return buffers;
+ }
+
+ /**
+  * Returns the number of whole rows of the given number of columns
+  * that fit into a chunk
+  */
+ private static int rowsPerChunk(int cols) {
+  return CHUNK_BYTES / (words(cols) * 8);
+ }
+
+ /**
+  * Returns the number of chunks of a board
+  */
+ private static int chunkCount(int rows, int cols) {
+  int perChunk = rowsPerChunk(cols);
+  return (rows + perChunk - 1) / perChunk;
+ }
+
+ /**
+  * Returns the number of bytes of chunk k of a board
+  */
+ private static int chunkBytes(int rows, int cols, int k) {
+  int perChunk = rowsPerChunk(cols);
+  return Math.min(perChunk, rows - k * perChunk) * words(cols) * 8;
+ }
+
+ /**
+  * Returns the number of words of a row of the given number of columns
+  */
+ private static int words(int cols) {
+  return (cols + Board.WORD_BITS - 1) / Board.WORD_BITS;
+ }
+
+ /**
+  * Checks that a board of the given size can be made
+  */
+ private static void checkSize(int rows, int cols) {
+  if (rows <= 0 || cols <= 0) {
+   throw new IllegalArgumentException("Board must have at least one cell: " + rows + "x" + cols);
+  }
+ }
+
+ /**
+  * Return number of rows on the board
+  */
+ public int getRows() {
+  return this.rows;
+ }
+
+ /**
+  * Return number of columns on the board
+  */
+ public int getCols() {
+  return this.cols;
+ }
+
+ /**
+  * Return number of long words used to store a single row
+  */
+ public int getWordsPerRow() {
+  return this.wordsPerRow;
+ }
+
+ /**
+  * Return true if the board is kept in a file
+  */
+ public boolean isMapped() {
+  return this.channel != null;
+ }
+
+ /**
+  * Returns the mask of valid cell bits for the given word of a row.
+  * Every word is full except possibly the last one.
+  *
+  * @param w Index of the word within a row
+  *
+  * @return Mask of the bits that are cells of the board
+  *
+  */
+ public long getWordMask(int w) {
+  return (w == this.wordsPerRow - 1) ? this.lastWordMask : -1L;
+ }
+
+ /**
+  * Returns the chunk that holds a row
+  */
+ private LongBuffer chunk(int r) {
+  return this.chunks[r / this.rowsPerChunk];
+ }
+
+ /**
+  * Returns the index of a word within the chunk of its row
+  */
+ private int index(int r, int w) {
+  return (r % this.rowsPerChunk) * this.wordsPerRow + w;
+ }
+
+ /**
+  * Returns the word that holds the given part of a row.
+  *
+  * @param r Row number
+  *
+  * @param w Index of the word within the row
+  *
+  * @return The 64 cells of that word as bits
+  *
+  */
+ public long getWord(int r, int w) {
+  return this.chunk(r).get(this.index(r, w));
+ }
+
+ /**
+  * Toggles every cell whose bit is set in the mask for the given
+  * word of a row, keeping the light counter current. Bits past the
+  * last column of the board are ignored.
+  *
+  * @param r Row number
+  *
+  * @param w Index of the word within the row
+  *
+  * @param mask Bits of the cells to toggle
+  *
+  */
+ public void xorWord(int r, int w, long mask) {
+  LongBuffer chunk = this.chunk(r);
+  int i = this.index(r, w);
+  long old = chunk.get(i);
+  long now = old ^ (mask & this.getWordMask(w));
+  if (now == old) {
+   return;
+  }
+  this.markChanged();
+  chunk.put(i, now);
+  this.lightCounter += Long.bitCount(now) - Long.bitCount(old);
+ }
+
+ /**
+  * Copies a whole row into an array.
+  *
+  * @param r Row number
+  *
+  * @param dst Array of at least {@link #getWordsPerRow()} words
+  *
+  */
+ public void readRow(int r, long[] dst) {
+  LongBuffer chunk = this.chunk(r);
+  chunk.position(this.index(r, 0));
+  chunk.get(dst, 0, this.wordsPerRow);
+ }
+
+ /**
+  * Replaces a whole row with the words of an array, keeping the light
+  * counter current. Bits past the last column are cleared in the array
+  * before it is written.
+  *
+  * @param r Row number
+  *
+  * @param src Array of at least {@link #getWordsPerRow()} words
+  *
+  */
+ public void writeRow(int r, long[] src) {
+  src[this.wordsPerRow - 1] &= this.lastWordMask;
+  LongBuffer chunk = this.chunk(r);
+  int base = this.index(r, 0);
+  this.markChanged();
+  for (int w = 0; w < this.wordsPerRow; w++) {
+   this.lightCounter += Long.bitCount(src[w]) - Long.bitCount(chunk.get(base + w));
+  }
+  chunk.position(base);
+  chunk.put(src, 0, this.wordsPerRow);
+ }
+
+ /**
+  * Returns true if the light in the given cell is on
+  *
+  * @param r Row number of the cell
+  *
+  * @param c Column number of the cell
+  *
+  * @return true when the light is on
+  *
+  */
+ public boolean isOn(int r, int c) {
+  this.checkBounds(r, c);
+  return ((this.getWord(r, c >>> 6) >>> c) & 1L) != 0;
+ }
+
+ /**
+  * Switches the light in the given cell on or off
+  *
+  * @param r Row number of the cell
+  *
+  * @param c Column number of the cell
+  *
+  * @param on true to switch the light on, false to switch it off
+  *
+  */
+ public void setOn(int r, int c, boolean on) {
+  if (this.isOn(r, c) != on) {
+   this.xorWord(r, c >>> 6, 1L << c);
+  }
+ }
+
+ /**
+  * Toggles only the light in the given cell, without its neighbours
+  *
+  * @param r Row number of the cell
+  *
+  * @param c Column number of the cell
+  *
+  */
+ public void toggle(int r, int c) {
+  this.checkBounds(r, c);
+  this.xorWord(r, c >>> 6, 1L << c);
+ }
+
+ /**
+  * Presses the given cell, toggling it and the cells above, below,
+  * left and right of it that are on the board.
+  *
+  * @param r Row number of the light that was pressed
+  *
+  * @param c Column number of the light that was pressed
+  *
+  */
+ public void toggleAdjacentLights(int r, int c) {
+  this.checkBounds(r, c);
+  this.pressWord(r, c >>> 6, 1L << c);
+ }
+
+ /**
+  * Presses every cell whose bit is set in the mask for the given word
+  * of a row, the same as calling {@link #toggleAdjacentLights(int, int)}
+  * for each of them but with a handful of word XORs.
+  *
+  * @param r Row number
+  *
+  * @param w Index of the word within the row
+  *
+  * @param presses Bits of the cells to press
+  *
+  */
+ public void pressWord(int r, int w, long presses) {
+  presses &= this.getWordMask(w);
+  if (presses == 0) {
+   return;
+  }
+  this.xorWord(r, w, presses ^ (presses << 1) ^ (presses >>> 1));
+  if (w + 1 < this.wordsPerRow) {
+   this.xorWord(r, w + 1, presses >>> 63);
+  }
+  if (w > 0) {
+   this.xorWord(r, w - 1, presses << 63);
+  }
+  if (r > 0) {
+   this.xorWord(r - 1, w, presses);
+  }
+  if (r + 1 < this.rows) {
+   this.xorWord(r + 1, w, presses);
+  }
+ }
+
+ /**
+  * Chases the lights down the board: row after row, every light that
+  * is on is switched off by pressing the cell below it. Afterwards only
+  * the last row can have lights on, and the board is solved exactly
+  * when that row is dark too.
+  * <p>
+  * The pass streams through the board with three rows on the heap:
+  * the row being cleared and the two below it, which its presses
+  * change. Each row is read once and written once.
+  *
+  * @param presses Board of the same size that gets every press made
+  *   toggled into it, or <code>null</code>
+  *
+  * @return Number of lights left on in the last row
+  *
+  */
+ public long chase(MappedBoard presses) {
+  if (presses != null && (presses.rows != this.rows || presses.cols != this.cols)) {
+   throw new IllegalArgumentException("Presses are " + presses.rows + "x" + presses.cols
+           + ", board is " + this.rows + "x" + this.cols);
+  }
+  int n = this.wordsPerRow;
+  long[] row = new long[n];
+  long[] next = new long[n];
+  long[] after = new long[n];
+  long[] pressed = presses == null ? null : new long[n];
+  long[] zero = new long[n];
+  this.readRow(0, row);
+  if (this.rows > 1) {
+   this.readRow(1, next);
+  }
+  for (int r = 0; r + 1 < this.rows; r++) {
+   if (r + 2 < this.rows) {
+    this.readRow(r + 2, after);
+   }
+   //Pressing below each light clears the row, spreads along the next one and reaches the one after
+   for (int w = 0; w < n; w++) {
+    long p = row[w];
+    next[w] ^= p ^ (p << 1) ^ (p >>> 1);
+    if (w > 0) {
+     next[w - 1] ^= p << 63;
+    }
+    if (w + 1 < n) {
+     next[w + 1] ^= p >>> 63;
+    }
+    after[w] ^= p;
+   }
+   next[n - 1] &= this.lastWordMask;
+   if (presses != null) {
+    presses.readRow(r + 1, pressed);
+    for (int w = 0; w < n; w++) {
+     pressed[w] ^= row[w];
+    }
+    presses.writeRow(r + 1, pressed);
+   }
+   this.writeRow(r, zero);
+   long[] t = row;
+   row = next;
+   next = after;
+   after = t;
+  }
+  this.writeRow(this.rows - 1, row);
+  return this.lightCounter;
+ }
+
+ /**
+  * Switches every light off, streaming through the board row by row
+  */
+ public void clear() {
+  long[] zero = new long[this.wordsPerRow];
+  for (int r = 0; r < this.rows; r++) {
+   this.writeRow(r, zero);
+  }
+  this.lightCounter = 0;
+ }
+
+ /**
+  * Switches every light on or off at random, streaming through the
+  * board row by row.
+  *
+  * @param random Source of the lights
+  *
+  */
+ public void randomize(Random random) {
+  long[] row = new long[this.wordsPerRow];
+  for (int r = 0; r < this.rows; r++) {
+   for (int w = 0; w < this.wordsPerRow; w++) {
+    row[w] = random.nextLong();
+   }
+   this.writeRow(r, row);
+  }
+ }
+
+ /**
+  * Counts the lights again from the rows, after a file was left
+  * without its counter being written
+  */
+ private void recount() {
+  long[] row = new long[this.wordsPerRow];
+  long count = 0;
+  for (int r = 0; r < this.rows; r++) {
+   this.readRow(r, row);
+   row[this.wordsPerRow - 1] &= this.lastWordMask;
+   for (long word : row) {
+    count += Long.bitCount(word);
+   }
+  }
+  this.lightCounter = count;
+ }
+
+ /**
+  * Return current number of lights that are on
+  */
+ public long getNumberOfLightsOn() {
+  return this.lightCounter;
+ }
+
+ /**
+  * Return true if every light is off
+  */
+ public boolean isSolved() {
+  return this.lightCounter == 0;
+ }
+
+ /**
+  * Copies a rectangle of the board into a classic board, to look at
+  * or play part of it.
+  *
+  * @param top Row that becomes row 0 of the board
+  *
+  * @param left Column that becomes column 0 of the board
+  *
+  * @param rows Number of rows to copy
+  *
+  * @param cols Number of columns to copy
+  *
+  * @return Classic board holding the lights of the rectangle
+  *
+  */
+ public Board window(int top, int left, int rows, int cols) {
+  if (top < 0 || left < 0 || rows < 0 || cols < 0
+          || (long) top + rows > this.rows || (long) left + cols > this.cols) {
+   throw new IndexOutOfBoundsException("Window " + rows + "x" + cols + " at (" + top + ", " + left
+           + ") is outside a " + this.rows + "x" + this.cols + " board");
+  }
+  Board board = new Board(rows, cols);
+  for (int r = 0; r < rows; r++) {
+   for (int c = 0; c < cols; c++) {
+    if (this.isOn(top + r, left + c)) {
+     board.toggle(r, c);
+    }
+   }
+  }
+  return board;
+ }
+
+ /**
+  * Writes the light counter and, for a mapped board, every changed
+  * page to the file, and marks the file clean.
+  *
+  * @throws IOException if the file cannot be written
+  *
+  */
+ public void flush() throws IOException {
+  if (this.channel == null) {
+   return;
+  }
+  for (ByteBuffer buffer : this.buffers) {
+   ((MappedByteBuffer) buffer).force();
+  }
+  this.header.putLong(LIGHTS_OFFSET, this.lightCounter);
+  this.header.put(CLEAN_OFFSET, (byte) 1);
+  this.header.force();
+  this.clean = true;
+ }
+
+ /**
+  * Marks the file unclean again before the first change after a
+  * flush, and forces that to disk, so a process that dies before the
+  * next flush leaves a file whose lights are counted again
+  */
+ private void markChanged() {
+  if (this.clean) {
+   this.header.put(CLEAN_OFFSET, (byte) 0);
+   this.header.force();
+   this.clean = false;
+  }
+ }
+
+ /**
+  * Flushes a mapped board and closes its file. The buffers are freed
+  * once the board is garbage collected; the board must not be used
+  * after it is closed.
+  *
+  * @throws IOException if the file cannot be written
+  *
+  */
+ @Override public void close() throws IOException {
+  if (this.channel == null || !this.channel.isOpen()) {
+   return;
+  }
+  try {
+   this.flush();
+  } finally {
+   this.channel.close();
+  }
+ }
+
+ /**
+  * Throws an exception if the cell is not on the board
+  */
+ private void checkBounds(int r, int c) {
+  if (r < 0 || r >= this.rows || c < 0 || c >= this.cols) {
+   throw new IndexOutOfBoundsException("Cell (" + r + ", " + c + ") is outside a "
+           + this.rows + "x" + this.cols + " board");
+  }
+ }
+
+ @Override public String toString() {
+  return "MappedBoard[" + this.rows + "x" + this.cols + ", " + this.lightCounter + " lights on"
+          + (this.channel != null ? ", mapped" : "") + "]";
+ }
+}
@@ -0,0 +1,283 @@
+/**
+ * @(#)ModularSolver.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+//Java utilities
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Implements a solver for {@link MultiBoard}s, whose lights have
+ * <code>k</code> states.
+ * <p>
+ * Pressing a cell <code>k</code> times does nothing and the order of
+ * presses does not matter, so a solution is a number of presses from
+ * <code>0</code> to <code>k - 1</code> for every cell. With
+ * <code>A</code> the press matrix of the {@link Topology} and
+ * <code>b</code> the states of the lights, the board is solved when
+ * <code>b + A x = 0</code>, that is <code>A x = -b</code> modulo
+ * <code>k</code>. The system is solved by Gaussian elimination over the
+ * integers modulo <code>k</code>, one <code>int</code> per entry.
+ * <p>
+ * When <code>k</code> is prime every non-zero number has an inverse,
+ * so elimination works just like over the real numbers; that is the
+ * fast path, with the inverses looked up in a table. Otherwise a pivot
+ * can be a zero divisor. The pivot of a column is then made the gcd of
+ * the column with extended Euclid steps, which are invertible row
+ * operations, and the multiple of the pivot row that the pivot turns
+ * to zero is put back into the system as a new row. That keeps enough
+ * rows for back substitution to find a solution whenever there is one
+ * (the matrix ends up in Howell form).
+ *
+ */
+public class ModularSolver {
+
+ /**
+  * Finds a number of presses for every cell that switches off every
+  * light on the given board.
+  *
+  * @param board Board to solve, it is not changed
+  *
+  * @return Board of the same shape whose state in each cell is the
+  *   number of times to press that cell, or <code>null</code> if the
+  *   board cannot be solved at all.
+  *
+  */
+ public MultiBoard solve(MultiBoard board) {
+  Topology topology = board.getTopology();
+  int rows = topology.getRows();
+  int cols = topology.getCols();
+  int n = rows * cols;
+  int k = board.getStates();
+
+  //Press matrix with minus the states as the augmented column
+  List<int[]> system = new ArrayList<int[]>(n);
+  for (int i = 0; i < n; i++) {
+   system.add(new int[n + 1]);
+  }
+  for (int j = 0; j < n; j++) {
+   for (int i : topology.neighbours(j / cols, j % cols)) {
+    system.get(i)[j] = 1;
+   }
+  }
+  for (int i = 0; i < n; i++) {
+   system.get(i)[n] = (k - board.get(i / cols, i % cols)) % k;
+  }
+
+  int[] pivotCols = new int[n];
+  int rank = isPrime(k) ? eliminatePrime(system, n, k, pivotCols) : eliminate(system, n, k, pivotCols);
+
+  //Every row past the pivots is zero on the left, so must be on the right
+  for (int i = rank; i < system.size(); i++) {
+   if (system.get(i)[n] != 0) {
+    return null;
+   }
+  }
+
+  //Back substitution, free variables stay 0
+  int[] x = new int[n];
+  for (int i = rank - 1; i >= 0; i--) {
+   int[] row = system.get(i);
+   int p = pivotCols[i];
+   long rest = row[n];
+   for (int j = p + 1; j < n; j++) {
+    rest -= (long) row[j] * x[j];
+   }
+   int rhs = (int) Math.floorMod(rest, (long) k);
+   //The pivot divides k, and must divide what is left as well
+   if (rhs % row[p] != 0) {
+    return null;
+   }
+   x[p] = rhs / row[p];
+  }
+
+  MultiBoard presses = new MultiBoard(topology, k);
+  for (int i = 0; i < n; i++) {
+   if (x[i] != 0) {
+    presses.set(i / cols, i % cols, x[i]);
+   }
+  }
+  return presses;
+ }
+
+ /**
+  * Brings the system to row echelon form modulo a prime, with every
+  * pivot scaled to 1.
+  *
+  * @return Number of pivot rows
+  */
+ private static int eliminatePrime(List<int[]> system, int n, int k, int[] pivotCols) {
+  int[] inverse = new int[k];
+  for (int a = 1; a < k; a++) {
+   for (int b = 1; b < k; b++) {
+    if (a * b % k == 1) {
+     inverse[a] = b;
+     break;
+    }
+   }
+  }
+  int rank = 0;
+  for (int c = 0; c < n && rank < system.size(); c++) {
+   int p = rank;
+   while (p < system.size() && system.get(p)[c] == 0) {
+    p++;
+   }
+   if (p == system.size()) {
+    continue;
+   }
+   int[] pivot = system.get(p);
+   system.set(p, system.get(rank));
+   system.set(rank, pivot);
+   scale(pivot, c, inverse[pivot[c]], k);
+   for (int i = rank + 1; i < system.size(); i++) {
+    int[] row = system.get(i);
+    if (row[c] != 0) {
+     addMultiple(row, pivot, c, k - row[c], k);
+    }
+   }
+   pivotCols[rank++] = c;
+  }
+  return rank;
+ }
+
+ /**
+  * Brings the system to Howell form modulo any k: every pivot divides
+  * k, and the multiple of each pivot row that clears its pivot is
+  * reduced along with the other rows.
+  *
+  * @return Number of pivot rows
+  */
+ private static int eliminate(List<int[]> system, int n, int k, int[] pivotCols) {
+  int rank = 0;
+  for (int c = 0; c < n && rank < system.size(); c++) {
+   int p = rank;
+   while (p < system.size() && system.get(p)[c] == 0) {
+    p++;
+   }
+   if (p == system.size()) {
+    continue;
+   }
+   int[] pivot = system.get(p);
+   system.set(p, system.get(rank));
+   system.set(rank, pivot);
+   //Fold every other entry of the column into the pivot with Euclid steps
+   for (int i = rank + 1; i < system.size(); i++) {
+    int[] row = system.get(i);
+    if (row[c] == 0) {
+     continue;
+    }
+    int a = pivot[c];
+    int b = row[c];
+    int[] st = extendedGcd(a, b);
+    int g = st[0];
+    int[] top = new int[n + 1];
+    int[] bottom = new int[n + 1];
+    for (int j = c; j <= n; j++) {
+     top[j] = (int) Math.floorMod((long) st[1] * pivot[j] + (long) st[2] * row[j], (long) k);
+     bottom[j] = (int) Math.floorMod((long) (a / g) * row[j] - (long) (b / g) * pivot[j], (long) k);
+    }
+    System.arraycopy(top, c, pivot, c, n + 1 - c);
+    System.arraycopy(bottom, c, row, c, n + 1 - c);
+   }
+   //Scale the pivot by a unit so it becomes a divisor of k
+   int d = gcd(pivot[c], k);
+   scale(pivot, c, unitFor(pivot[c], d, k), k);
+   //The multiple that clears the pivot still says something about the other columns
+   int[] annihilated = new int[n + 1];
+   boolean any = false;
+   for (int j = c + 1; j <= n; j++) {
+    annihilated[j] = (int) ((long) (k / d) * pivot[j] % k);
+    any |= annihilated[j] != 0;
+   }
+   if (any) {
+    system.add(annihilated);
+   }
+   pivotCols[rank++] = c;
+  }
+  return rank;
+ }
+
+ /**
+  * Returns a unit u with u * a = d modulo k, where d = gcd(a, k)
+  */
+ private static int unitFor(int a, int d, int k) {
+  for (int u = 1; u < k; u++) {
+   if (gcd(u, k) == 1 && (long) u * a % k == d) {
+    return u;
+   }
+  }
+  throw new IllegalStateException("No unit takes " + a + " to " + d + " modulo " + k);
+ }
+
+ /**
+  * Multiplies a row by a factor, from column c on
+  */
+ private static void scale(int[] row, int c, int factor, int k) {
+  for (int j = c; j < row.length; j++) {
+   row[j] = (int) ((long) row[j] * factor % k);
+  }
+ }
+
+ /**
+  * Adds a multiple of the pivot row to a row, from column c on
+  */
+ private static void addMultiple(int[] row, int[] pivot, int c, int factor, int k) {
+  for (int j = c; j < row.length; j++) {
+   if (pivot[j] != 0) {
+    row[j] = (int) ((row[j] + (long) factor * pivot[j]) % k);
+   }
+  }
+ }
+
+ /**
+  * Returns {g, s, t} with g = gcd(a, b) = s * a + t * b
+  */
+ private static int[] extendedGcd(int a, int b) {
+  int s0 = 1, s1 = 0, t0 = 0, t1 = 1;
+  while (b != 0) {
+   int q = a / b;
+   int r = a - q * b;
+   a = b;
+   b = r;
+   int s = s0 - q * s1;
+   s0 = s1;
+   s1 = s;
+   int t = t0 - q * t1;
+   t0 = t1;
+   t1 = t;
+  }
+  return new int[] { a, s0, t0 };
+ }
+
+ /**
+  * Returns the greatest common divisor of two numbers
+  */
+ private static int gcd(int a, int b) {
+  while (b != 0) {
+   int t = a % b;
+   a = b;
+   b = t;
+  }
+  return a;
+ }
+
+ /**
+  * Returns true if k is prime
+  */
+ static boolean isPrime(int k) {
+  if (k < 2) {
+   return false;
+  }
+  for (int d = 2; d * d <= k; d++) {
+   if (k % d == 0) {
+    return false;
+   }
+  }
+  return true;
+ }
+}
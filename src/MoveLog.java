@@ -0,0 +1,206 @@
+/**
+ * @(#)MoveLog.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+//Java utilities
+import java.util.Arrays;
+
+
+/**
+ * Remembers the moves of a game so they can be undone and redone.
+ * <p>
+ * Pressing a cell is its own undo, so a move only needs to remember
+ * which cell was pressed. Each move is stored as the packed cell index
+ * <code>r * cols + c</code> in an <code>int[]</code>, with no object per
+ * move. The array doubles in size when it fills up, until it reaches its
+ * capacity; after that it works as a ring, and the oldest moves are
+ * forgotten to make room for new ones.
+ * <p>
+ * The log has a position: moves before it have been played, moves from
+ * it onwards have been undone and can be redone. Recording a new move
+ * throws away the moves that could have been redone.
+ *
+ */
+public class MoveLog {
+
+ /** Default largest number of moves remembered */
+ public static final int DEFAULT_CAPACITY = 1 << 20;
+
+ /** Number of moves the log starts with room for */
+ private static final int INITIAL_SIZE = 64;
+
+ /** Largest number of moves remembered */
+ private final int capacity;
+
+ /** Packed cells of the moves, oldest at index head */
+ private int[] moves;
+
+ /** Index in moves of the oldest remembered move */
+ private int head;
+
+ /** Number of moves remembered, played or undone */
+ private int size;
+
+ /** Number of remembered moves that are played */
+ private int position;
+
+
+ /**
+  * Creates an empty log with the default capacity.
+  */
+ public MoveLog() {
+  this(DEFAULT_CAPACITY);
+ }
+
+ /**
+  * Creates an empty log.
+  *
+  * @param capacity Largest number of moves remembered
+  *
+  */
+ public MoveLog(int capacity) {
+  if (capacity <= 0) {
+   throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+  }
+  this.capacity = capacity;
+  this.moves = new int[Math.min(INITIAL_SIZE, capacity)];
+ }
+
+ /**
+  * Records a new move at the current position. Moves that were
+  * undone can no longer be redone afterwards.
+  *
+  * @param cell Packed cell that was pressed
+  *
+  */
+ public void record(int cell) {
+  this.size = this.position;
+  if (this.size == this.moves.length) {
+   if (this.moves.length < this.capacity) {
+    this.grow();
+   } else {
+    //Full ring, forget the oldest move
+    this.head = (this.head + 1) % this.moves.length;
+    this.size--;
+    this.position--;
+   }
+  }
+  this.moves[(this.head + this.size) % this.moves.length] = cell;
+  this.size++;
+  this.position++;
+ }
+
+ /**
+  * Doubles the room for moves, unwrapping the ring
+  */
+ private void grow() {
+  int[] bigger = new int[(int) Math.min((long) this.moves.length * 2, this.capacity)];
+  for (int i = 0; i < this.size; i++) {
+   bigger[i] = this.moves[(this.head + i) % this.moves.length];
+  }
+  this.moves = bigger;
+  this.head = 0;
+ }
+
+ /**
+  * Returns true if there is a played move to undo
+  */
+ public boolean canUndo() {
+  return this.position > 0;
+ }
+
+ /**
+  * Returns true if there is an undone move to redo
+  */
+ public boolean canRedo() {
+  return this.position < this.size;
+ }
+
+ /**
+  * Steps back over the last played move.
+  *
+  * @return Packed cell to press again to undo it
+  *
+  */
+ public int undo() {
+  if (!this.canUndo()) {
+   throw new IllegalStateException("Nothing to undo");
+  }
+  this.position--;
+  return this.get(this.position);
+ }
+
+ /**
+  * Steps forward over the next undone move.
+  *
+  * @return Packed cell to press again to redo it
+  *
+  */
+ public int redo() {
+  if (!this.canRedo()) {
+   throw new IllegalStateException("Nothing to redo");
+  }
+  this.position++;
+  return this.get(this.position - 1);
+ }
+
+ /**
+  * Returns a remembered move.
+  *
+  * @param i Index of the move, 0 is the oldest remembered one
+  *
+  * @return Packed cell of the move
+  *
+  */
+ public int get(int i) {
+  if (i < 0 || i >= this.size) {
+   throw new IndexOutOfBoundsException("Move " + i + " of " + this.size);
+  }
+  return this.moves[(this.head + i) % this.moves.length];
+ }
+
+ /**
+  * Return the number of remembered moves that are played
+  */
+ public int getPosition() {
+  return this.position;
+ }
+
+ /**
+  * Return the number of remembered moves, played or undone
+  */
+ public int getSize() {
+  return this.size;
+ }
+
+ /**
+  * Forgets every move.
+  */
+ public void clear() {
+  this.head = 0;
+  this.size = 0;
+  this.position = 0;
+ }
+
+ /**
+  * Returns the played moves, oldest first
+  *
+  * @return Packed cells of the played moves
+  *
+  */
+ public int[] toArray() {
+  int[] played = new int[this.position];
+  for (int i = 0; i < this.position; i++) {
+   played[i] = this.get(i);
+  }
+  return played;
+ }
+
+ @Override public String toString() {
+  return "MoveLog" + Arrays.toString(this.toArray()) + " at " + this.position + " of " + this.size;
+ }
+}
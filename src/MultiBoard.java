@@ -0,0 +1,373 @@
+/**
+ * @(#)MultiBoard.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+//Java utilities
+import java.util.Arrays;
+
+
+/**
+ * Implements the headless state of a board whose lights have more than
+ * two states, like Lights Out 2000 with its three colours. A press moves
+ * every cell it reaches one state forward, from the last state back to
+ * state 0 (off), so it works modulo the number of states <code>k</code>.
+ * The game is won when every cell is back in state 0.
+ * <p>
+ * Cells are packed into <code>long</code> words in fields of 2 bits when
+ * there are at most 3 states and of 4 bits for up to 15 states, so 32 or
+ * 16 cells share a word. A field is always wide enough to hold
+ * <code>k</code> itself, so adding one to a whole word of fields at once
+ * never carries into the next field. The fields that reached
+ * <code>k</code> are then found with a SIMD-within-a-register zero test
+ * and cleared, which makes a press a few word operations per word it
+ * touches, however many of its cells are in that word.
+ * <p>
+ * Which cells a press reaches is set by a {@link Topology}, compiled
+ * into per-cell <code>(word, increment)</code> tables when the board is
+ * made; copies of a board share the tables.
+ *
+ */
+public class MultiBoard {
+
+ /** Most states a light can have */
+ public static final int MAX_STATES = 15;
+
+ /** Size of the board and which cells a press reaches */
+ private final Topology topology;
+
+ /** Number of states of a light */
+ private final int states;
+
+ /** Number of bits of one cell */
+ private final int bitsPerCell;
+
+ /** Number of cells in one word */
+ private final int cellsPerWord;
+
+ /** Number of long words used to store a single row */
+ private final int wordsPerRow;
+
+ /** Lowest bit of every field of a word */
+ private final long low;
+
+ /** Highest bit of every field of a word */
+ private final long high;
+
+ /** The number of states in every field of a word */
+ private final long full;
+
+ /** Cell fields, row after row, each row taking wordsPerRow words */
+ private final long[] words;
+
+ /** Press tables: entries cellStart[i] to cellStart[i + 1] - 1 belong to cell i */
+ private final int[] cellStart;
+
+ /** Word of each table entry */
+ private final int[] maskIndex;
+
+ /** Increment of each table entry, a 1 in the lowest bit of each field it reaches */
+ private final long[] maskInc;
+
+ /** Number of cells that are not in state 0 */
+ private int lightCounter;
+
+
+ /**
+  * Creates a classic shaped board where every light starts off.
+  *
+  * @param rows Number of rows on the board
+  *
+  * @param cols Number of columns on the board
+  *
+  * @param states Number of states of a light, from 2 to MAX_STATES
+  *
+  */
+ public MultiBoard(int rows, int cols, int states) {
+  this(Topology.classic(rows, cols), states);
+ }
+
+ /**
+  * Creates a board of the given topology where every light starts off.
+  *
+  * @param topology Size of the board and which cells a press reaches
+  *
+  * @param states Number of states of a light, from 2 to MAX_STATES
+  *
+  */
+ public MultiBoard(Topology topology, int states) {
+  if (states < 2 || states > MAX_STATES) {
+   throw new IllegalArgumentException("States must be from 2 to " + MAX_STATES + ": " + states);
+  }
+  this.topology = topology;
+  this.states = states;
+  this.bitsPerCell = states <= 3 ? 2 : 4;
+  this.cellsPerWord = Board.WORD_BITS / this.bitsPerCell;
+  int cols = topology.getCols();
+  this.wordsPerRow = (cols + this.cellsPerWord - 1) / this.cellsPerWord;
+  this.low = Long.divideUnsigned(-1L, (1L << this.bitsPerCell) - 1);
+  this.high = this.low << (this.bitsPerCell - 1);
+  this.full = this.low * states;
+  this.words = new long[topology.getRows() * this.wordsPerRow];
+
+  //Neighbours come sorted, so cells of the same word are next to each other
+  int n = topology.getRows() * cols;
+  this.cellStart = new int[n + 1];
+  int[] index = new int[n * 9];
+  long[] inc = new long[n * 9];
+  int k = 0;
+  for (int i = 0; i < n; i++) {
+   this.cellStart[i] = k;
+   for (int cell : topology.neighbours(i / cols, i % cols)) {
+    int word = this.wordOf(cell / cols, cell % cols);
+    long bit = 1L << this.shiftOf(cell % cols);
+    if (k > this.cellStart[i] && index[k - 1] == word) {
+     inc[k - 1] |= bit;
+    } else {
+     index[k] = word;
+     inc[k] = bit;
+     k++;
+    }
+   }
+  }
+  this.cellStart[n] = k;
+  this.maskIndex = Arrays.copyOf(index, k);
+  this.maskInc = Arrays.copyOf(inc, k);
+ }
+
+ /**
+  * Creates a new MultiBoard that is an exact copy of the given board.
+  *
+  * @param other Board to copy
+  *
+  */
+ public MultiBoard(MultiBoard other) {
+  this.topology = other.topology;
+  this.states = other.states;
+  this.bitsPerCell = other.bitsPerCell;
+  this.cellsPerWord = other.cellsPerWord;
+  this.wordsPerRow = other.wordsPerRow;
+  this.low = other.low;
+  this.high = other.high;
+  this.full = other.full;
+  this.words = other.words.clone();
+  this.cellStart = other.cellStart;
+  this.maskIndex = other.maskIndex;
+  this.maskInc = other.maskInc;
+  this.lightCounter = other.lightCounter;
+ }
+
+ /**
+  * Return size of the board and which cells a press reaches
+  */
+ public Topology getTopology() {
+  return this.topology;
+ }
+
+ /**
+  * Return number of rows on the board
+  */
+ public int getRows() {
+  return this.topology.getRows();
+ }
+
+ /**
+  * Return number of columns on the board
+  */
+ public int getCols() {
+  return this.topology.getCols();
+ }
+
+ /**
+  * Return number of states of a light
+  */
+ public int getStates() {
+  return this.states;
+ }
+
+ /**
+  * Return number of bits of one cell in a word
+  */
+ public int getBitsPerCell() {
+  return this.bitsPerCell;
+ }
+
+ /**
+  * Returns the word index of a cell
+  */
+ private int wordOf(int r, int c) {
+  return r * this.wordsPerRow + c / this.cellsPerWord;
+ }
+
+ /**
+  * Returns the shift of the field of a cell within its word
+  */
+ private int shiftOf(int c) {
+  return (c % this.cellsPerWord) * this.bitsPerCell;
+ }
+
+ /**
+  * Returns the state of the light in the given cell
+  *
+  * @param r Row number of the cell
+  *
+  * @param c Column number of the cell
+  *
+  * @return State from 0 (off) to states - 1
+  *
+  */
+ public int get(int r, int c) {
+  this.checkBounds(r, c);
+  return (int) (this.words[this.wordOf(r, c)] >>> this.shiftOf(c)) & ((1 << this.bitsPerCell) - 1);
+ }
+
+ /**
+  * Puts the light in the given cell into a state, none of its
+  * neighbours are changed.
+  *
+  * @param r Row number of the cell
+  *
+  * @param c Column number of the cell
+  *
+  * @param state State from 0 (off) to states - 1
+  *
+  */
+ public void set(int r, int c, int state) {
+  this.checkBounds(r, c);
+  if (state < 0 || state >= this.states) {
+   throw new IllegalArgumentException("State must be from 0 to " + (this.states - 1) + ": " + state);
+  }
+  int i = this.wordOf(r, c);
+  int shift = this.shiftOf(c);
+  long old = this.words[i];
+  long now = (old & ~(((1L << this.bitsPerCell) - 1) << shift)) | ((long) state << shift);
+  this.words[i] = now;
+  this.lightCounter += this.nonZero(now) - this.nonZero(old);
+ }
+
+ /**
+  * Presses a cell: the cell and its neighbours each move one state
+  * forward, wrapping from the last state back to off.
+  *
+  * @param r Row number of the cell
+  *
+  * @param c Column number of the cell
+  *
+  */
+ public void press(int r, int c) {
+  this.checkBounds(r, c);
+  int cell = r * this.topology.getCols() + c;
+  for (int k = this.cellStart[cell]; k < this.cellStart[cell + 1]; k++) {
+   int i = this.maskIndex[k];
+   long old = this.words[i];
+   long now = this.addOne(old, this.maskInc[k]);
+   this.words[i] = now;
+   this.lightCounter += this.nonZero(now) - this.nonZero(old);
+  }
+ }
+
+ /**
+  * Presses a cell the given number of times.
+  *
+  * @param r Row number of the cell
+  *
+  * @param c Column number of the cell
+  *
+  * @param times Number of presses, taken modulo the number of states
+  *
+  */
+ public void press(int r, int c, int times) {
+  for (int t = Math.floorMod(times, this.states); t > 0; t--) {
+   this.press(r, c);
+  }
+ }
+
+ /**
+  * Adds one, modulo the number of states, to every field of a word
+  * that has a 1 in the increment.
+  *
+  * @param x Word of fields
+  *
+  * @param inc 1 in the lowest bit of each field to step
+  *
+  * @return Word with the fields stepped
+  *
+  */
+ private long addOne(long x, long inc) {
+  //A field holds at most states, so the sum never carries out of it
+  long y = x + inc;
+  //Fields that reached states are zero in t; only stepped fields can
+  long t = y ^ this.full;
+  long zero = ~(((t & ~this.high) + ~this.high) | t) & (inc << (this.bitsPerCell - 1));
+  return y & ~((zero >>> (this.bitsPerCell - 1)) * ((1L << this.bitsPerCell) - 1));
+ }
+
+ /**
+  * Counts the fields of a word that are not zero
+  */
+ private int nonZero(long x) {
+  return Long.bitCount((((x & ~this.high) + ~this.high) | x) & this.high);
+ }
+
+ /**
+  * Return current number of lights that are not off
+  */
+ public int getNumberOfLightsOn() {
+  return this.lightCounter;
+ }
+
+ /**
+  * Returns true once every light on the board is off
+  *
+  * @return true when the board has been solved
+  *
+  */
+ public boolean isSolved() {
+  return this.lightCounter == 0;
+ }
+
+ /**
+  * Switches every light on the board off.
+  */
+ public void clear() {
+  Arrays.fill(this.words, 0L);
+  this.lightCounter = 0;
+ }
+
+ /**
+  * Makes sure the given cell is on the board.
+  */
+ private void checkBounds(int r, int c) {
+  if (r < 0 || r >= this.getRows() || c < 0 || c >= this.getCols()) {
+   throw new IndexOutOfBoundsException("Cell (" + r + ", " + c + ") is outside a "
+           + this.getRows() + "x" + this.getCols() + " board");
+  }
+ }
+
+ @Override public boolean equals(Object o) {
+  if (!(o instanceof MultiBoard)) {
+   return false;
+  }
+  MultiBoard other = (MultiBoard) o;
+  return other.topology.equals(this.topology) && other.states == this.states
+          && Arrays.equals(other.words, this.words);
+ }
+
+ @Override public int hashCode() {
+  return 31 * (31 * this.topology.hashCode() + this.states) + Arrays.hashCode(this.words);
+ }
+
+ @Override public String toString() {
+  StringBuilder sb = new StringBuilder(this.getRows() * (this.getCols() + 1));
+  for (int r = 0; r < this.getRows(); r++) {
+   for (int c = 0; c < this.getCols(); c++) {
+    sb.append(Character.forDigit(this.get(r, c), 16));
+   }
+   sb.append('\n');
+  }
+  return sb.toString();
+ }
+}
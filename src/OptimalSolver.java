@@ -0,0 +1,190 @@
+/**
+ * @(#)OptimalSolver.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+
+/**
+ * Implements a solver that finds a solution with the fewest presses.
+ * <p>
+ * When the press matrix is singular, as on 4x4 and 5x5 boards, a board
+ * that can be solved has more than one solution: adding any quiet
+ * pattern to a solution gives another. The plain {@link Solver} returns
+ * whichever solution back substitution lands on. This solver takes that
+ * solution and walks through all <code>2^k</code> sums of the
+ * <code>k</code> quiet patterns in Gray code order, so each step only
+ * XORs in one pattern, and keeps the sum with the lowest popcount.
+ * <p>
+ * The {@link PressInverse} of each board size and {@link Topology} is
+ * worked out once and kept in an {@link InverseCache}, and only the
+ * words where some quiet pattern has bits are touched while
+ * enumerating, since no other word can change.
+ *
+ */
+public class OptimalSolver extends Solver {
+
+ /** Largest null space dimension that is enumerated */
+ public static final int MAX_NULLITY = 24;
+
+ /** Inverses worked out so far, by topology */
+ private final InverseCache inverses;
+
+
+ /**
+  * Creates a solver that keeps its inverses in the shared cache.
+  */
+ public OptimalSolver() {
+  this(InverseCache.shared());
+ }
+
+ /**
+  * Creates a solver that keeps its inverses in the given cache.
+  *
+  * @param inverses Cache of inverses by topology
+  *
+  */
+ public OptimalSolver(InverseCache inverses) {
+  this.inverses = inverses;
+ }
+
+ /**
+  * Finds a set of presses with as few presses as possible that
+  * switches off every light on the given board.
+  *
+  * @param board Board to solve, it is not changed
+  *
+  * @return Board with a light on for every cell that needs to be
+  *   pressed once, or <code>null</code> if the board cannot
+  *   be solved at all.
+  *
+  */
+ @Override public Board solve(Board board) {
+  long[] x = this.solveVector(board);
+  return x == null ? null : Board.fromVector(board.getTopology(), x);
+ }
+
+ /**
+  * Returns the fewest presses that solve the given board.
+  *
+  * @param board Board to rate, it is not changed
+  *
+  * @return Number of presses of an optimal solution, or -1 if
+  *   the board cannot be solved
+  *
+  */
+ public int minimumPresses(Board board) {
+  long[] x = this.solveVector(board);
+  if (x == null) {
+   return -1;
+  }
+  return popcount(x);
+ }
+
+ /**
+  * Returns the inverse for the given board size, working it out
+  * the first time the size is seen.
+  *
+  * @param rows Number of rows on the board
+  *
+  * @param cols Number of columns on the board
+  *
+  * @return Inverse of the press matrix for that size
+  *
+  */
+ public PressInverse getInverse(int rows, int cols) {
+  return this.getInverse(Topology.classic(rows, cols));
+ }
+
+ /**
+  * Returns the inverse for the given topology, working it out
+  * if the cache does not hold it.
+  *
+  * @param topology Size and neighbourhood of the board
+  *
+  * @return Inverse of the press matrix for that topology
+  *
+  */
+ public PressInverse getInverse(Topology topology) {
+  return this.inverses.get(topology);
+ }
+
+ /**
+  * Finds an optimal solution as a bitset numbered like
+  * {@link Board#toVector()}, or null if there is none.
+  */
+ private long[] solveVector(Board board) {
+  PressInverse inverse = this.getInverse(board.getTopology());
+  long[] x = applyInverse(inverse, board.toVector());
+  if (x == null) {
+   return null;
+  }
+
+  BitMatrix quiet = inverse.getNullSpace();
+  int k = quiet.getRows();
+  if (k == 0) {
+   return x;
+  }
+  if (k > MAX_NULLITY) {
+   throw new IllegalArgumentException("Null space of dimension " + k + " is too large to enumerate");
+  }
+
+  //Only words where some quiet pattern has bits can change
+  int words = quiet.getWordsPerRow();
+  int[] touched = new int[words];
+  int t = 0;
+  for (int w = 0; w < words; w++) {
+   for (int q = 0; q < k; q++) {
+    if (quiet.getWord(q, w) != 0) {
+     touched[t++] = w;
+     break;
+    }
+   }
+  }
+  long[] patterns = new long[k * t];
+  long[] current = new long[t];
+  for (int j = 0; j < t; j++) {
+   current[j] = x[touched[j]];
+   for (int q = 0; q < k; q++) {
+    patterns[q * t + j] = quiet.getWord(q, touched[j]);
+   }
+  }
+
+  //Gray code walk, step i adds the pattern of its lowest set bit
+  int best = popcount(current);
+  long bestCode = 0L;
+  for (long i = 1; i < (1L << k); i++) {
+   int base = Long.numberOfTrailingZeros(i) * t;
+   int count = 0;
+   for (int j = 0; j < t; j++) {
+    current[j] ^= patterns[base + j];
+    count += Long.bitCount(current[j]);
+   }
+   if (count < best) {
+    best = count;
+    bestCode = i ^ (i >>> 1);
+   }
+  }
+  for (int q = 0; q < k; q++) {
+   if (((bestCode >>> q) & 1L) != 0) {
+    for (int j = 0; j < t; j++) {
+     x[touched[j]] ^= patterns[q * t + j];
+    }
+   }
+  }
+  return x;
+ }
+
+ /**
+  * Counts the bits set in a bitset
+  */
+ private static int popcount(long[] bits) {
+  int count = 0;
+  for (long word : bits) {
+   count += Long.bitCount(word);
+  }
+  return count;
+ }
+}
@@ -0,0 +1,217 @@
+/**
+ * @(#)ParallelSolver.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+//Fork/join parallelism
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * Implements a solver for very large boards that spreads its work over
+ * a fork/join pool.
+ * <p>
+ * The full press matrix of an <code>R x C</code> board has
+ * <code>(R C)^2</code> bits, which for a 1000x1000 board is far more
+ * than any heap. So instead of eliminating that matrix, this solver uses
+ * "light chasing": once the presses of the first row are known, the
+ * press under each light that is still on in a row is forced, all the
+ * way down the board. Writing the first row presses as <code>C</code>
+ * unknowns, every forced press is an affine function of them, and the
+ * board is solved exactly when the forced presses below the last row
+ * are all zero. That leaves a system of only <code>C</code> equations,
+ * which is eliminated with {@link BitMatrix#echelon(int, int[], ForkJoinPool)}.
+ * Working out the forced presses of one row is independent for every
+ * cell, so that is split over the pool as well.
+ * <p>
+ * Light chasing relies on the classic neighbourhood, where the cell
+ * below is the only new cell a press reaches. Boards of any other
+ * {@link Topology} are solved with the cached inverse of their topology
+ * up to {@link InverseCache#MAX_CELLS} cells, and above that by
+ * eliminating their whole press matrix, still in parallel on the pool.
+ * <p>
+ * Boards with fewer cells than the parallel threshold are handed to
+ * the plain {@link Solver}, where the cost of forking is not worth it.
+ *
+ */
+public class ParallelSolver extends Solver {
+
+ /** Default number of cells from which a board is solved in parallel */
+ public static final int DEFAULT_THRESHOLD = 32 * 32;
+
+ /** Fewest cells of a row worth handing to their own fork/join task */
+ public static final int MIN_TASK_CELLS = 64;
+
+ /** Pool that runs the parallel work */
+ private final ForkJoinPool pool;
+
+ /** Number of cells from which a board is solved in parallel */
+ private final int threshold;
+
+
+ /**
+  * Creates a parallel solver on the common pool with the
+  * default threshold.
+  */
+ public ParallelSolver() {
+  this(ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+ }
+
+ /**
+  * Creates a parallel solver.
+  *
+  * @param pool Pool that runs the parallel work
+  *
+  * @param threshold Number of cells from which a board is solved
+  *   in parallel, smaller boards use the sequential solver
+  *
+  */
+ public ParallelSolver(ForkJoinPool pool, int threshold) {
+  if (threshold < 0) {
+   throw new IllegalArgumentException("Threshold must not be negative: " + threshold);
+  }
+  this.pool = pool;
+  this.threshold = threshold;
+ }
+
+ /**
+  * Return number of cells from which a board is solved in parallel
+  */
+ public int getThreshold() {
+  return this.threshold;
+ }
+
+ /**
+  * Finds a set of presses that switches off every light on the
+  * given board, in parallel when the board is at least as large
+  * as the threshold.
+  *
+  * @param board Board to solve, it is not changed
+  *
+  * @return Board with a light on for every cell that needs to be
+  *   pressed once, or <code>null</code> if the board cannot
+  *   be solved at all.
+  *
+  */
+ @Override public Board solve(Board board) {
+  if ((long) board.getRows() * board.getCols() < this.threshold) {
+   return super.solve(board);
+  }
+  if (!board.getTopology().isClassic()) {
+   if ((long) board.getRows() * board.getCols() <= InverseCache.MAX_CELLS) {
+    return this.invert(board);
+   }
+   return this.eliminate(board, this.pool);
+  }
+  int rows = board.getRows();
+  int cols = board.getCols();
+
+  //Each forced press is a bitset of cols coefficients plus a constant bit
+  int words = (cols + 1 + 63) >>> 6;
+  long[] above = new long[cols * words];
+  long[] row = new long[cols * words];
+  long[] below = new long[cols * words];
+  for (int c = 0; c < cols; c++) {
+   row[c * words + (c >>> 6)] = 1L << c;
+  }
+  for (int r = 0; r < rows; r++) {
+   this.pool.invoke(new Chase(board, r, words, above, row, below, 0, cols));
+   long[] t = above;
+   above = row;
+   row = below;
+   below = t;
+  }
+
+  //Presses forced below the last row must all be zero
+  BitMatrix m = new BitMatrix(cols, cols + 1);
+  System.arraycopy(row, 0, m.getData(), 0, cols * words);
+  int[] pivotCols = new int[cols];
+  int rank = m.echelon(cols, pivotCols, this.pool);
+  if (!isConsistent(m, cols, rank)) {
+   return null;
+  }
+  long[] x = backSubstitute(m, cols, rank, pivotCols);
+
+  //Press the first row, then chase the lights down for real
+  Board lights = new Board(board);
+  Board presses = new Board(rows, cols);
+  for (int c = 0; c < cols; c++) {
+   if (((x[c >>> 6] >>> c) & 1L) != 0) {
+    lights.toggleAdjacentLights(0, c);
+    presses.toggle(0, c);
+   }
+  }
+  for (int r = 0; r + 1 < rows; r++) {
+   for (int w = 0; w < lights.getWordsPerRow(); w++) {
+    long word = lights.getWord(r, w);
+    while (word != 0) {
+     int c = (w << 6) + Long.numberOfTrailingZeros(word);
+     lights.toggleAdjacentLights(r + 1, c);
+     presses.toggle(r + 1, c);
+     word &= word - 1;
+    }
+   }
+  }
+  return presses;
+ }
+
+ /**
+  * Fork/join task that works out the presses forced in row
+  * <code>r + 1</code> for a range of columns. The press under cell
+  * <code>(r, c)</code> has to undo the light itself and every press
+  * that already toggled it: the one above, the one on it and the ones
+  * to its left and right.
+  */
+ private static final class Chase extends RecursiveAction {
+
+  private final Board board;
+  private final int r;
+  private final int words;
+  private final long[] above;
+  private final long[] row;
+  private final long[] below;
+  private final int from;
+  private final int to;
+
+  Chase(Board board, int r, int words, long[] above, long[] row, long[] below, int from, int to) {
+   this.board = board;
+   this.r = r;
+   this.words = words;
+   this.above = above;
+   this.row = row;
+   this.below = below;
+   this.from = from;
+   this.to = to;
+  }
+
+  @Override protected void compute() {
+   if (this.to - this.from > MIN_TASK_CELLS) {
+    int mid = (this.from + this.to) >>> 1;
+    invokeAll(new Chase(this.board, this.r, this.words, this.above, this.row, this.below, this.from, mid),
+              new Chase(this.board, this.r, this.words, this.above, this.row, this.below, mid, this.to));
+    return;
+   }
+   int cols = this.board.getCols();
+   for (int c = this.from; c < this.to; c++) {
+    int base = c * this.words;
+    for (int k = 0; k < this.words; k++) {
+     long v = this.row[base + k] ^ this.above[base + k];
+     if (c > 0) {
+      v ^= this.row[base - this.words + k];
+     }
+     if (c + 1 < cols) {
+      v ^= this.row[base + this.words + k];
+     }
+     this.below[base + k] = v;
+    }
+    if (this.board.isOn(this.r, c)) {
+     this.below[base + (cols >>> 6)] ^= 1L << cols;
+    }
+   }
+  }
+ }
+}
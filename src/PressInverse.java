@@ -0,0 +1,216 @@
+/**
+ * @(#)PressInverse.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+
+/**
+ * Holds everything the solver needs to know about the press matrix of
+ * one board size, worked out once so that each board of that size can
+ * be solved without running elimination again. Boards of another
+ * {@link Topology} than the classic one have an inverse of their own.
+ * <p>
+ * Gauss-Jordan elimination of the press matrix <code>A</code> next to
+ * the identity gives three things:
+ * <ul>
+ * <li> The (pseudo-)inverse <code>P</code>. When the board can be
+ *   solved, <code>x = P b</code> is a press set for the lights
+ *   <code>b</code>. For sizes where <code>A</code> is invertible
+ *   this is the real inverse.
+ *
+ * <li> The check rows <code>K</code>. A board can be solved exactly
+ *   when <code>K b = 0</code>. There are none when <code>A</code>
+ *   is invertible.
+ *
+ * <li> A basis of the null space, the "quiet patterns". Pressing all
+ *   cells of a quiet pattern changes nothing, so adding one to a
+ *   solution gives another solution.
+ * </ul>
+ * Vectors use the same cell numbering as the {@link Solver}: cell
+ * <code>(r, c)</code> is bit <code>r * cols + c</code>.
+ *
+ */
+public class PressInverse {
+
+ /** Topology the press matrix belongs to */
+ private final Topology topology;
+
+ /** Number of rows of the board size */
+ private final int rows;
+
+ /** Number of columns of the board size */
+ private final int cols;
+
+ /** Pseudo-inverse of the press matrix, n x n */
+ private final BitMatrix inverse;
+
+ /** Rows that must be orthogonal to a solvable board, k x n */
+ private final BitMatrix checks;
+
+ /** Basis of the null space of the press matrix, k x n */
+ private final BitMatrix nullSpace;
+
+
+ /**
+  * Runs the elimination for the press matrix of the given board size.
+  *
+  * @param rows Number of rows on the board
+  *
+  * @param cols Number of columns on the board
+  *
+  */
+ public PressInverse(int rows, int cols) {
+  this(Topology.classic(rows, cols));
+ }
+
+ /**
+  * Runs the elimination for the press matrix of the given topology.
+  *
+  * @param topology Size and neighbourhood of the boards
+  *
+  */
+ public PressInverse(Topology topology) {
+  this.topology = topology;
+  this.rows = topology.getRows();
+  this.cols = topology.getCols();
+  int n = this.rows * this.cols;
+
+  //[ A | I ] so every row operation is also recorded on the right
+  BitMatrix m = topology.pressMatrix(n);
+  for (int i = 0; i < n; i++) {
+   m.set(i, n + i, true);
+  }
+  int[] pivotCols = new int[n];
+  int rank = m.reducedEchelon(n, pivotCols);
+  int k = n - rank;
+
+  this.inverse = new BitMatrix(n, n);
+  this.checks = new BitMatrix(k, n);
+  this.nullSpace = new BitMatrix(k, n);
+
+  //Pivot variable p_i is row i of the recorded operations applied to b
+  boolean[] isPivot = new boolean[n];
+  for (int i = 0; i < rank; i++) {
+   isPivot[pivotCols[i]] = true;
+   copyBits(m, i, n, this.inverse, pivotCols[i]);
+  }
+  //Rows that eliminated to zero say which combinations of b must be 0
+  for (int i = rank; i < n; i++) {
+   copyBits(m, i, n, this.checks, i - rank);
+  }
+  //One quiet pattern per free variable
+  int q = 0;
+  for (int f = 0; f < n; f++) {
+   if (isPivot[f]) {
+    continue;
+   }
+   this.nullSpace.set(q, f, true);
+   for (int i = 0; i < rank; i++) {
+    if (m.get(i, f)) {
+     this.nullSpace.set(q, pivotCols[i], true);
+    }
+   }
+   q++;
+  }
+ }
+
+ /**
+  * Creates an inverse from matrices that were worked out before, for
+  * example read back from an {@link InverseCache} file.
+  *
+  * @param topology Topology the press matrix belongs to
+  *
+  * @param inverse Pseudo-inverse of the press matrix, n x n
+  *
+  * @param checks Check rows, k x n
+  *
+  * @param nullSpace Basis of the null space, k x n
+  *
+  */
+ PressInverse(Topology topology, BitMatrix inverse, BitMatrix checks, BitMatrix nullSpace) {
+  int n = topology.getRows() * topology.getCols();
+  if (inverse.getRows() != n || inverse.getCols() != n || checks.getCols() != n || nullSpace.getCols() != n
+          || checks.getRows() != nullSpace.getRows()) {
+   throw new IllegalArgumentException("Matrices do not fit a " + topology + " board");
+  }
+  this.topology = topology;
+  this.rows = topology.getRows();
+  this.cols = topology.getCols();
+  this.inverse = inverse;
+  this.checks = checks;
+  this.nullSpace = nullSpace;
+ }
+
+ /**
+  * Copies columns <code>from .. from + n</code> of a row of one matrix
+  * into a whole row of another.
+  */
+ private static void copyBits(BitMatrix src, int srcRow, int from, BitMatrix dst, int dstRow) {
+  int n = dst.getCols();
+  for (int j = 0; j < n; j++) {
+   if (src.get(srcRow, from + j)) {
+    dst.set(dstRow, j, true);
+   }
+  }
+ }
+
+ /**
+  * Return topology the press matrix belongs to
+  */
+ public Topology getTopology() {
+  return this.topology;
+ }
+
+ /**
+  * Return number of rows of the board size
+  */
+ public int getRows() {
+  return this.rows;
+ }
+
+ /**
+  * Return number of columns of the board size
+  */
+ public int getCols() {
+  return this.cols;
+ }
+
+ /**
+  * Return the pseudo-inverse of the press matrix
+  */
+ public BitMatrix getInverse() {
+  return this.inverse;
+ }
+
+ /**
+  * Return the check rows that every solvable board satisfies
+  */
+ public BitMatrix getChecks() {
+  return this.checks;
+ }
+
+ /**
+  * Return the basis of quiet patterns, one pattern per row
+  */
+ public BitMatrix getNullSpace() {
+  return this.nullSpace;
+ }
+
+ /**
+  * Return the dimension of the null space. Only one in every
+  * 2^dimension random boards can be solved.
+  */
+ public int getNullity() {
+  return this.nullSpace.getRows();
+ }
+
+ /**
+  * Return the number of bytes the three matrices take
+  */
+ public long getBytes() {
+  return 8L * (this.inverse.getData().length + this.checks.getData().length + this.nullSpace.getData().length);
+ }
+}
@@ -0,0 +1,139 @@
+/**
+ * @(#)PuzzleCatalogue.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+//Java time
+import java.time.LocalDate;
+
+
+/**
+ * A catalogue of puzzles where every 64-bit puzzle ID stands for one
+ * fixed board. Nothing is stored: the board is worked out from the ID
+ * each time it is asked for, so any machine finds the same board for
+ * the same ID straight away.
+ * <p>
+ * The random bits come from a counter-based generator. Word
+ * <code>k</code> of a puzzle is a hash of the ID and the counter
+ * <code>k</code>, made with the SplitMix64 finalizer, so any word can be
+ * worked out on its own without running through the ones before it.
+ * Like the {@link PuzzleGenerator}, those bits are used as presses on
+ * a dark board, 64 cells per word, so every puzzle in the catalogue can
+ * be solved and every solvable board is equally likely.
+ * <p>
+ * The same ID gives different boards in catalogues of different sizes
+ * or with different keys. Changing the key starts a new catalogue.
+ *
+ */
+public class PuzzleCatalogue {
+
+ /** Key of the default catalogue */
+ public static final long DEFAULT_KEY = 0x4C696768744F7574L;
+
+ /** Odd constant of the golden ratio used to step the counter */
+ private static final long GAMMA = 0x9E3779B97F4A7C15L;
+
+ /** Number of rows of every puzzle */
+ private final int rows;
+
+ /** Number of columns of every puzzle */
+ private final int cols;
+
+ /** Key mixed into every ID */
+ private final long key;
+
+
+ /**
+  * Creates the default catalogue for boards of the given size.
+  *
+  * @param rows Number of rows of every puzzle
+  *
+  * @param cols Number of columns of every puzzle
+  *
+  */
+ public PuzzleCatalogue(int rows, int cols) {
+  this(rows, cols, DEFAULT_KEY);
+ }
+
+ /**
+  * Creates a catalogue for boards of the given size.
+  *
+  * @param rows Number of rows of every puzzle
+  *
+  * @param cols Number of columns of every puzzle
+  *
+  * @param key Key of the catalogue
+  *
+  */
+ public PuzzleCatalogue(int rows, int cols, long key) {
+  if (rows <= 0 || cols <= 0) {
+   throw new IllegalArgumentException("Board must have at least one cell: " + rows + "x" + cols);
+  }
+  this.rows = rows;
+  this.cols = cols;
+  this.key = key;
+ }
+
+ /**
+  * Returns the puzzle with the given ID.
+  *
+  * @param id Puzzle ID
+  *
+  * @return Board of the puzzle
+  *
+  */
+ public Board get(long id) {
+  Board board = new Board(this.rows, this.cols);
+  this.fill(board, id);
+  return board;
+ }
+
+ /**
+  * Replaces the lights of the given board with the puzzle with
+  * the given ID.
+  *
+  * @param board Board of this size to fill
+  *
+  * @param id Puzzle ID
+  *
+  */
+ public void fill(Board board, long id) {
+  if (board.getRows() != this.rows || board.getCols() != this.cols) {
+   throw new IllegalArgumentException("Board size " + board.getRows() + "x" + board.getCols()
+           + " does not match " + this.rows + "x" + this.cols);
+  }
+  board.clear();
+  long seed = mix(id ^ this.key);
+  long counter = 0;
+  for (int r = 0; r < this.rows; r++) {
+   for (int w = 0; w < board.getWordsPerRow(); w++) {
+    board.pressWord(r, w, mix(seed + ++counter * GAMMA));
+   }
+  }
+ }
+
+ /**
+  * Returns the ID of the daily challenge of the given day
+  *
+  * @param date Day of the challenge
+  *
+  * @return Puzzle ID of that day
+  *
+  */
+ public static long dailyId(LocalDate date) {
+  return date.toEpochDay();
+ }
+
+ /**
+  * SplitMix64 finalizer: spreads every bit of the input over
+  * every bit of the output.
+  */
+ static long mix(long z) {
+  z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+  z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+  return z ^ (z >>> 31);
+ }
+}
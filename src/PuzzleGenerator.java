@@ -0,0 +1,392 @@
+/**
+ * @(#)PuzzleGenerator.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+//Java input/output
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+//Java utilities
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+//Fork/join parallelism
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * Generates Lights Out puzzles that can always be solved.
+ * <p>
+ * Switching each light on with a 50% chance gives boards that often
+ * have no solution at all; on a 5x5 grid only one in four can be
+ * solved. Instead of drawing the lights, the generator draws the
+ * presses and starts from a board with every light off. Pressing is
+ * its own undo, so pressing the same cells again switches every light
+ * back off, which means the result can always be solved.
+ * <p>
+ * Pressing each cell with a 50% chance gives every solvable board the
+ * same chance. For a target difficulty, the fewest presses that solve
+ * the puzzle, exactly that many distinct cells are pressed instead.
+ * That is the length of one known solution, so it is only an upper
+ * bound: other presses may solve the board in fewer. On boards of at
+ * most {@link #MAX_RATED_CELLS} cells whose null space is small enough,
+ * each candidate is rated with the {@link OptimalSolver} and drawn
+ * again until its fewest presses are the target. On larger boards the
+ * difficulty stays an upper bound.
+ * <p>
+ * The presses follow the {@link Topology} of the generator, so puzzles
+ * of any neighbourhood can be solved on boards of the same topology.
+ * <p>
+ * Puzzles can also be written in bulk to a binary file. The file
+ * starts with a header:
+ * <pre>
+ *   int   MAGIC
+ *   short VERSION
+ *   int   rows
+ *   int   cols
+ *   int   difficulty (UNIFORM for uniform puzzles)
+ *   long  count
+ * </pre>
+ * followed by <code>count</code> records of <code>(rows * cols + 7) / 8</code>
+ * bytes. Cell <code>(r, c)</code> of a record is bit <code>i % 8</code>
+ * of byte <code>i / 8</code>, where <code>i = r * cols + c</code>.
+ *
+ */
+public class PuzzleGenerator {
+
+ /** Difficulty that presses each cell with a 50% chance */
+ public static final int UNIFORM = -1;
+
+ /** First int of a puzzle file, "LOPZ" */
+ public static final int MAGIC = 0x4C4F505A;
+
+ /** Version of the puzzle file format */
+ public static final short VERSION = 1;
+
+ /** Bytes of puzzles generated in memory before they are written out, 16 MiB */
+ public static final int BATCH_BYTES = 16 << 20;
+
+ /** Most cells of a board whose puzzles are rated with the optimal solver */
+ public static final int MAX_RATED_CELLS = Simulation.MAX_OPTIMAL_SIZE * Simulation.MAX_OPTIMAL_SIZE;
+
+ /** Largest null space dimension of a board whose puzzles are rated */
+ public static final int MAX_RATED_NULLITY = LiveHint.MAX_NULLITY;
+
+ /** Most candidates drawn for a rated puzzle before giving up */
+ public static final int MAX_ATTEMPTS = 10000;
+
+ /** Fewest puzzles worth handing to their own fork/join task */
+ public static final int MIN_TASK_PUZZLES = 1024;
+
+ /** Size and neighbourhood of every puzzle */
+ private final Topology topology;
+
+ /** Number of rows of every puzzle */
+ private final int rows;
+
+ /** Number of columns of every puzzle */
+ private final int cols;
+
+ /** Rates the candidates of a target difficulty */
+ private final OptimalSolver rater = new OptimalSolver();
+
+ /** True if candidates are rated, null until a difficulty is first asked for */
+ private volatile Boolean rated;
+
+
+ /**
+  * Creates a generator for puzzles of the given size.
+  *
+  * @param rows Number of rows of every puzzle
+  *
+  * @param cols Number of columns of every puzzle
+  *
+  */
+ public PuzzleGenerator(int rows, int cols) {
+  this(Topology.classic(rows, cols));
+ }
+
+ /**
+  * Creates a generator for puzzles of the given topology.
+  *
+  * @param topology Size and neighbourhood of every puzzle
+  *
+  */
+ public PuzzleGenerator(Topology topology) {
+  this.topology = topology;
+  this.rows = topology.getRows();
+  this.cols = topology.getCols();
+ }
+
+ /**
+  * Return size and neighbourhood of every puzzle
+  */
+ public Topology getTopology() {
+  return this.topology;
+ }
+
+ /**
+  * Return number of rows of every puzzle
+  */
+ public int getRows() {
+  return this.rows;
+ }
+
+ /**
+  * Return number of columns of every puzzle
+  */
+ public int getCols() {
+  return this.cols;
+ }
+
+ /**
+  * Returns the number of bytes of one puzzle in a puzzle file
+  */
+ public int getRecordBytes() {
+  return (int) (((long) this.rows * this.cols + 7) >>> 3);
+ }
+
+ /**
+  * Generates a new puzzle where every solvable board has the
+  * same chance.
+  *
+  * @param random Source of random bits
+  *
+  * @return Board that can be solved
+  *
+  */
+ public Board generate(SplittableRandom random) {
+  return this.generate(UNIFORM, random);
+ }
+
+ /**
+  * Generates a new puzzle of the given difficulty.
+  *
+  * @param difficulty Fewest presses that solve the puzzle, an upper
+  *   bound on boards too large to rate, or UNIFORM
+  *
+  * @param random Source of random bits
+  *
+  * @return Board that can be solved
+  *
+  */
+ public Board generate(int difficulty, SplittableRandom random) {
+  Board board = new Board(this.topology);
+  this.fill(board, difficulty, random);
+  return board;
+ }
+
+ /**
+  * Replaces the lights of the given board with a new puzzle.
+  *
+  * @param board Board of this topology to fill
+  *
+  * @param difficulty Fewest presses that solve the puzzle, an upper
+  *   bound on boards too large to rate, or UNIFORM
+  *
+  * @param random Source of random bits
+  *
+  */
+ public void fill(Board board, int difficulty, SplittableRandom random) {
+  this.fill(board, difficulty < 0 ? null : new Board(this.rows, this.cols), difficulty, random);
+ }
+
+ /**
+  * Replaces the lights of the given board with a new puzzle, using
+  * <code>chosen</code> to remember which cells were already pressed.
+  * Candidates of a rated board are drawn until one has the target as
+  * its fewest presses.
+  */
+ private void fill(Board board, Board chosen, int difficulty, SplittableRandom random) {
+  if (!board.getTopology().equals(this.topology)) {
+   throw new IllegalArgumentException("Board " + board.getTopology() + " does not match " + this.topology);
+  }
+  if (difficulty < 0) {
+   board.clear();
+   //64 coin flips per nextLong, pressed a word at a time
+   for (int r = 0; r < this.rows; r++) {
+    for (int w = 0; w < board.getWordsPerRow(); w++) {
+     board.pressWord(r, w, random.nextLong());
+    }
+   }
+   return;
+  }
+  int n = this.rows * this.cols;
+  if (difficulty > n) {
+   throw new IllegalArgumentException("Cannot press " + difficulty + " distinct cells of " + n);
+  }
+  boolean rate = this.isRated();
+  for (int attempt = 1; ; attempt++) {
+   //Floyd's sampling of distinct cells
+   board.clear();
+   chosen.clear();
+   for (int j = n - difficulty; j < n; j++) {
+    int t = random.nextInt(j + 1);
+    if (chosen.isOn(t / this.cols, t % this.cols)) {
+     t = j;
+    }
+    chosen.toggle(t / this.cols, t % this.cols);
+    board.toggleAdjacentLights(t / this.cols, t % this.cols);
+   }
+   if (!rate || this.rater.minimumPresses(board) == difficulty) {
+    return;
+   }
+   if (attempt == MAX_ATTEMPTS) {
+    throw new IllegalArgumentException("No puzzle of difficulty " + difficulty + " found in "
+            + MAX_ATTEMPTS + " tries on " + this.topology);
+   }
+  }
+ }
+
+ /**
+  * Returns true if puzzles of a target difficulty are rated with the
+  * optimal solver, working out the inverse the first time
+  *
+  * @return false if the board is too large to rate
+  *
+  */
+ public boolean isRated() {
+  Boolean r = this.rated;
+  if (r == null) {
+   r = (long) this.rows * this.cols <= MAX_RATED_CELLS
+           && this.rater.getInverse(this.topology).getNullity() <= MAX_RATED_NULLITY;
+   this.rated = r;
+  }
+  return r;
+ }
+
+ /**
+  * Writes puzzles to a binary file, generating them in parallel. The
+  * same seed always gives the same file, whatever the pool size.
+  *
+  * @param file File to write, replaced if it exists
+  *
+  * @param count Number of puzzles to write
+  *
+  * @param difficulty Fewest presses that solve each puzzle, an upper
+  *   bound on boards too large to rate, or UNIFORM
+  *
+  * @param seed Seed of the random bits
+  *
+  * @param pool Pool that generates the puzzles
+  *
+  * @throws IOException if the file cannot be written
+  *
+  */
+ public void export(Path file, long count, int difficulty, long seed, ForkJoinPool pool) throws IOException {
+  int recordBytes = this.getRecordBytes();
+  SplittableRandom root = new SplittableRandom(seed);
+  //Whole records up to the byte budget, and at least one
+  int perBatch = Math.max(1, BATCH_BYTES / recordBytes);
+  byte[] buffer = new byte[perBatch * recordBytes];
+  try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+   out.writeInt(MAGIC);
+   out.writeShort(VERSION);
+   out.writeInt(this.rows);
+   out.writeInt(this.cols);
+   out.writeInt(difficulty);
+   out.writeLong(count);
+   for (long done = 0; done < count; done += perBatch) {
+    int batch = (int) Math.min(perBatch, count - done);
+    Arrays.fill(buffer, 0, batch * recordBytes, (byte) 0);
+    pool.invoke(new Export(this, buffer, difficulty, root.split(), 0, batch));
+    out.write(buffer, 0, batch * recordBytes);
+   }
+  }
+ }
+
+ /**
+  * Reads one puzzle back from the records of a puzzle file.
+  *
+  * @param data Bytes holding the record
+  *
+  * @param offset Index of the first byte of the record
+  *
+  * @return Board holding the puzzle
+  *
+  */
+ public Board unpack(byte[] data, int offset) {
+  Board board = new Board(this.topology);
+  for (int i = 0; i < this.rows * this.cols; i++) {
+   if (((data[offset + (i >>> 3)] >>> (i & 7)) & 1) != 0) {
+    board.toggle(i / this.cols, i % this.cols);
+   }
+  }
+  return board;
+ }
+
+ /**
+  * Writes a board into the record that starts at the given byte,
+  * which must be all zeros.
+  */
+ private void pack(Board board, byte[] data, int offset) {
+  long bit = (long) offset << 3;
+  for (int r = 0; r < this.rows; r++) {
+   for (int w = 0; w < board.getWordsPerRow(); w++) {
+    int bits = Math.min(64, this.cols - (w << 6));
+    long word = board.getWord(r, w);
+    long pos = bit + (long) r * this.cols + (w << 6);
+    while (bits > 0) {
+     int i = (int) (pos >>> 3);
+     int shift = (int) (pos & 7);
+     int take = Math.min(8 - shift, bits);
+     data[i] |= (byte) ((word & ((1 << take) - 1)) << shift);
+     word >>>= take;
+     pos += take;
+     bits -= take;
+    }
+   }
+  }
+ }
+
+ /**
+  * Fork/join task that fills a range of records of a batch. Each half
+  * of a split gets its own branch of the random generator, so the
+  * puzzles only depend on the seed and not on which thread runs them.
+  */
+ private static final class Export extends RecursiveAction {
+
+  private final PuzzleGenerator generator;
+  private final byte[] buffer;
+  private final int difficulty;
+  private final SplittableRandom random;
+  private final int from;
+  private final int to;
+
+  Export(PuzzleGenerator generator, byte[] buffer, int difficulty, SplittableRandom random, int from, int to) {
+   this.generator = generator;
+   this.buffer = buffer;
+   this.difficulty = difficulty;
+   this.random = random;
+   this.from = from;
+   this.to = to;
+  }
+
+  @Override protected void compute() {
+   if (this.to - this.from > MIN_TASK_PUZZLES) {
+    int mid = (this.from + this.to) >>> 1;
+    SplittableRandom right = this.random.split();
+    invokeAll(new Export(this.generator, this.buffer, this.difficulty, this.random, this.from, mid),
+              new Export(this.generator, this.buffer, this.difficulty, right, mid, this.to));
+    return;
+   }
+   int rows = this.generator.rows;
+   int cols = this.generator.cols;
+   int recordBytes = this.generator.getRecordBytes();
+   Board board = new Board(this.generator.topology);
+   Board chosen = this.difficulty < 0 ? null : new Board(rows, cols);
+   for (int i = this.from; i < this.to; i++) {
+    this.generator.fill(board, chosen, this.difficulty, this.random);
+    this.generator.pack(board, this.buffer, i * recordBytes);
+   }
+  }
+ }
+}
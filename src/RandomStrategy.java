@@ -0,0 +1,27 @@
+/**
+ * @(#)RandomStrategy.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+//Java utilities
+import java.util.SplittableRandom;
+
+
+/**
+ * Plays by pressing any cell at random, every cell with the same
+ * chance. This is the baseline the other strategies are measured
+ * against.
+ *
+ */
+public class RandomStrategy implements Strategy {
+
+ @Override public void newGame(Board board, SplittableRandom random) {
+ }
+
+ @Override public int nextMove(Board board, SplittableRandom random) {
+  return random.nextInt(board.getRows() * board.getCols());
+ }
+}
@@ -0,0 +1,228 @@
+/**
+ * @(#)ReplayReader.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+//Java input/output
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * Reads a replay written by the {@link ReplayWriter} through a
+ * memory-mapped <code>FileChannel</code>.
+ * <p>
+ * Only the starting board is copied onto the heap. The press records
+ * stay in the file and are paged in by the operating system as they are
+ * looked at, so a replay with millions of presses can be scrubbed back
+ * and forth with a constant amount of heap. The records are mapped in
+ * segments of {@link #RECORDS_PER_SEGMENT}, since one mapping cannot be
+ * larger than 2 GB.
+ * <p>
+ * Pressing a cell is its own undo, so moving a board from one point of
+ * the replay to another, forwards or backwards, is just pressing the
+ * cells of the records in between.
+ *
+ */
+public class ReplayReader implements Closeable {
+
+ /** Number of records in one mapped segment */
+ public static final int RECORDS_PER_SEGMENT = 1 << 26;
+
+ /** Channel of the replay file */
+ private final FileChannel channel;
+
+ /** Board the game starts from */
+ private final Board start;
+
+ /** Number of complete press records */
+ private final long moves;
+
+ /** Mapped segments of the press records */
+ private final MappedByteBuffer[] segments;
+
+
+ /**
+  * Maps a replay file
+  */
+ private ReplayReader(FileChannel channel, Board start, long moves, MappedByteBuffer[] segments) {
+  this.channel = channel;
+  this.start = start;
+  this.moves = moves;
+  this.segments = segments;
+ }
+
+ /**
+  * Opens a replay file.
+  *
+  * @param file Replay file
+  *
+  * @return Reader of the replay
+  *
+  * @throws IOException if the file cannot be read or is not a
+  *   replay file of a known version
+  *
+  */
+ public static ReplayReader open(Path file) throws IOException {
+  FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+  try {
+   long size = channel.size();
+   MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, ReplayWriter.HEADER_BYTES));
+   if (header.remaining() < ReplayWriter.HEADER_BYTES || header.getInt() != ReplayWriter.MAGIC) {
+    throw new IOException(file + " is not a Lights Out replay file");
+   }
+   short version = header.getShort();
+   if (version != ReplayWriter.VERSION) {
+    throw new IOException(file + " has unknown replay version " + version);
+   }
+   Board start = new Board(header.getInt(), header.getInt());
+   long first = ReplayWriter.headerBytes(start.getRows(), start.getWordsPerRow());
+   if (size < first) {
+    throw new IOException(file + " is corrupt: starting board cut short");
+   }
+   MappedByteBuffer board = channel.map(FileChannel.MapMode.READ_ONLY, ReplayWriter.HEADER_BYTES,
+           first - ReplayWriter.HEADER_BYTES);
+   for (int r = 0; r < start.getRows(); r++) {
+    for (int w = 0; w < start.getWordsPerRow(); w++) {
+     start.xorWord(r, w, board.getLong());
+    }
+   }
+
+   long moves = (size - first) / ReplayWriter.RECORD_BYTES;
+   int count = (int) ((moves + RECORDS_PER_SEGMENT - 1) / RECORDS_PER_SEGMENT);
+   MappedByteBuffer[] segments = new MappedByteBuffer[count];
+   for (int s = 0; s < count; s++) {
+    long records = Math.min(RECORDS_PER_SEGMENT, moves - (long) s * RECORDS_PER_SEGMENT);
+    segments[s] = channel.map(FileChannel.MapMode.READ_ONLY,
+            first + (long) s * RECORDS_PER_SEGMENT * ReplayWriter.RECORD_BYTES, records * ReplayWriter.RECORD_BYTES);
+   }
+   return new ReplayReader(channel, start, moves, segments);
+  } catch (IOException | RuntimeException e) {
+   channel.close();
+   if (e instanceof BufferUnderflowException || e instanceof IllegalArgumentException) {
+    throw new IOException(file + " is corrupt", e);
+   }
+   throw e;
+  }
+ }
+
+ /**
+  * Return number of rows of the board
+  */
+ public int getRows() {
+  return this.start.getRows();
+ }
+
+ /**
+  * Return number of columns of the board
+  */
+ public int getCols() {
+  return this.start.getCols();
+ }
+
+ /**
+  * Return a copy of the board the game starts from
+  */
+ public Board getStart() {
+  return new Board(this.start);
+ }
+
+ /**
+  * Return the number of presses in the replay
+  */
+ public long getMoveCount() {
+  return this.moves;
+ }
+
+ /**
+  * Returns the packed cell of a press.
+  *
+  * @param i Index of the press
+  *
+  * @return Packed cell <code>r * cols + c</code>
+  *
+  */
+ public int getCell(long i) {
+  this.checkIndex(i);
+  return this.segments[(int) (i / RECORDS_PER_SEGMENT)]
+          .getInt((int) (i % RECORDS_PER_SEGMENT) * ReplayWriter.RECORD_BYTES + 8);
+ }
+
+ /**
+  * Returns the time of a press.
+  *
+  * @param i Index of the press
+  *
+  * @return Time in milliseconds since the epoch
+  *
+  */
+ public long getTime(long i) {
+  this.checkIndex(i);
+  return this.segments[(int) (i / RECORDS_PER_SEGMENT)]
+          .getLong((int) (i % RECORDS_PER_SEGMENT) * ReplayWriter.RECORD_BYTES);
+ }
+
+ /**
+  * Returns the board after the given number of presses.
+  *
+  * @param position Number of presses played, 0 to getMoveCount()
+  *
+  * @return New board at that point of the replay
+  *
+  */
+ public Board boardAt(long position) {
+  Board board = this.getStart();
+  this.seek(board, 0, position);
+  return board;
+ }
+
+ /**
+  * Moves a board from one point of the replay to another, in either
+  * direction, by pressing the cells of the presses in between.
+  *
+  * @param board Board at point <code>from</code> of the replay
+  *
+  * @param from Number of presses the board has played
+  *
+  * @param to Number of presses the board should have played
+  *
+  */
+ public void seek(Board board, long from, long to) {
+  if (from < 0 || to < 0 || from > this.moves || to > this.moves) {
+   throw new IndexOutOfBoundsException("Seek from " + from + " to " + to + " of " + this.moves);
+  }
+  int cols = this.start.getCols();
+  for (long i = Math.min(from, to); i < Math.max(from, to); i++) {
+   int cell = this.getCell(i);
+   board.toggleAdjacentLights(cell / cols, cell % cols);
+  }
+ }
+
+ /**
+  * Makes sure a press is in the replay
+  */
+ private void checkIndex(long i) {
+  if (i < 0 || i >= this.moves) {
+   throw new IndexOutOfBoundsException("Press " + i + " of " + this.moves);
+  }
+ }
+
+ /**
+  * Closes the file. The mapped records are released once they are
+  * no longer reachable.
+  *
+  * @throws IOException if the file cannot be closed
+  *
+  */
+ @Override public void close() throws IOException {
+  this.channel.close();
+ }
+}
@@ -0,0 +1,184 @@
+/**
+ * @(#)ReplayWriter.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+//Java input/output
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * Writes a replay of a game: the board it started from, then every
+ * press with the time it happened, appended as the game goes on.
+ * <p>
+ * A replay file is written big-endian:
+ * <pre>
+ *   int   MAGIC
+ *   short VERSION
+ *   int   rows
+ *   int   cols
+ *   long  rows * wordsPerRow words of the starting board
+ * </pre>
+ * followed by one record of {@link #RECORD_BYTES} bytes per press: a
+ * <code>long</code> time in milliseconds since the epoch and the
+ * <code>int</code> packed cell <code>r * cols + c</code>. All records have
+ * the same size, so the {@link ReplayReader} can find any press straight
+ * away. A record cut short by a crash is ignored when reading.
+ *
+ */
+public class ReplayWriter implements Closeable {
+
+ /** First int of a replay file, "LORP" */
+ public static final int MAGIC = 0x4C4F5250;
+
+ /** Version of the replay file format */
+ public static final short VERSION = 1;
+
+ /** Number of bytes of the header before the starting board */
+ public static final int HEADER_BYTES = 14;
+
+ /** Number of bytes of one press record */
+ public static final int RECORD_BYTES = 12;
+
+ /** Number of records buffered before they are written */
+ private static final int BUFFERED_RECORDS = 1024;
+
+ /** Channel of the replay file */
+ private final FileChannel channel;
+
+ /** Records that are not written yet */
+ private final ByteBuffer buffer = ByteBuffer.allocate(BUFFERED_RECORDS * RECORD_BYTES);
+
+
+ /**
+  * Opens a replay file for writing
+  */
+ private ReplayWriter(FileChannel channel) {
+  this.channel = channel;
+ }
+
+ /**
+  * Starts a new replay file.
+  *
+  * @param file File to write, replaced if it exists
+  *
+  * @param start Board the game starts from
+  *
+  * @return Writer that appends the presses
+  *
+  * @throws IOException if the file cannot be written
+  *
+  */
+ public static ReplayWriter create(Path file, Board start) throws IOException {
+  FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+          StandardOpenOption.TRUNCATE_EXISTING);
+  ByteBuffer header = ByteBuffer.allocate((int) headerBytes(start.getRows(), start.getWordsPerRow()));
+  header.putInt(MAGIC);
+  header.putShort(VERSION);
+  header.putInt(start.getRows());
+  header.putInt(start.getCols());
+  for (int r = 0; r < start.getRows(); r++) {
+   for (int w = 0; w < start.getWordsPerRow(); w++) {
+    header.putLong(start.getWord(r, w));
+   }
+  }
+  header.flip();
+  while (header.hasRemaining()) {
+   channel.write(header);
+  }
+  return new ReplayWriter(channel);
+ }
+
+ /**
+  * Opens an existing replay file to add more presses to it. A record
+  * cut short at the end of the file is dropped first.
+  *
+  * @param file Replay file
+  *
+  * @return Writer that appends the presses
+  *
+  * @throws IOException if the file cannot be opened or is not a
+  *   replay file of a known version
+  *
+  */
+ public static ReplayWriter append(Path file) throws IOException {
+  long records;
+  long header;
+  try (ReplayReader reader = ReplayReader.open(file)) {
+   records = reader.getMoveCount();
+   header = headerBytes(reader.getRows(), reader.getStart().getWordsPerRow());
+  }
+  FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE);
+  channel.truncate(header + records * RECORD_BYTES);
+  channel.position(header + records * RECORD_BYTES);
+  return new ReplayWriter(channel);
+ }
+
+ /**
+  * Returns the number of bytes before the first record
+  *
+  * @param rows Number of rows of the board
+  *
+  * @param wordsPerRow Number of words per row of the board
+  *
+  * @return Size of the header with the starting board
+  *
+  */
+ static long headerBytes(int rows, int wordsPerRow) {
+  return HEADER_BYTES + 8L * rows * wordsPerRow;
+ }
+
+ /**
+  * Adds a press to the replay.
+  *
+  * @param cell Packed cell that was pressed
+  *
+  * @param timeMillis Time of the press in milliseconds since the epoch
+  *
+  * @throws IOException if the file cannot be written
+  *
+  */
+ public void write(int cell, long timeMillis) throws IOException {
+  if (!this.buffer.hasRemaining()) {
+   this.flush();
+  }
+  this.buffer.putLong(timeMillis);
+  this.buffer.putInt(cell);
+ }
+
+ /**
+  * Writes every buffered press to the file.
+  *
+  * @throws IOException if the file cannot be written
+  *
+  */
+ public void flush() throws IOException {
+  this.buffer.flip();
+  while (this.buffer.hasRemaining()) {
+   this.channel.write(this.buffer);
+  }
+  this.buffer.clear();
+ }
+
+ /**
+  * Writes the buffered presses and closes the file.
+  *
+  * @throws IOException if the file cannot be written
+  *
+  */
+ @Override public void close() throws IOException {
+  try {
+   this.flush();
+  } finally {
+   this.channel.close();
+  }
+ }
+}
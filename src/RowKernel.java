@@ -0,0 +1,161 @@
+/**
+ * @(#)RowKernel.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+
+/**
+ * The inner loops of GF(2) linear algebra on rows of <code>long</code>
+ * words: adding one row into another and the parity of two rows ANDed
+ * together. {@link BitMatrix} runs its row reduction and its
+ * matrix-vector products through a kernel, so the loops can be swapped
+ * for SIMD code without touching the elimination itself.
+ * <p>
+ * Two back ends exist. {@link ScalarKernel} is plain <code>long</code>
+ * code and works on every JVM. <code>VectorKernel</code>, in the
+ * <code>vector</code> source folder, uses the <code>LongVector</code>
+ * of the incubating Vector API, so it needs Java 17 or later and the
+ * module <code>jdk.incubator.vector</code> both to compile and to run:
+ * <pre>
+ *   javac --release 17 --add-modules jdk.incubator.vector -cp bin -d bin vector/VectorKernel.java
+ *   java --add-modules jdk.incubator.vector -cp bin ...
+ * </pre>
+ * The system property {@value #KERNEL} picks the back end by name,
+ * <code>scalar</code> or <code>vector</code>. Without it the vector
+ * kernel is used when it can be loaded, and the scalar one otherwise.
+ *
+ */
+public interface RowKernel {
+
+ /** System property naming the back end */
+ String KERNEL = "lightsout.kernel";
+
+ /**
+  * Adds (XORs) a run of words into another: <code>dst[d + i] ^= src[s + i]</code>
+  * for every <code>i &lt; len</code>. The two runs may be in the same
+  * array but must not overlap.
+  *
+  * @param dst Array that is changed
+  *
+  * @param d First index in dst
+  *
+  * @param src Array that is added
+  *
+  * @param s First index in src
+  *
+  * @param len Number of words
+  *
+  */
+ void xor(long[] dst, int d, long[] src, int s, int len);
+
+ /**
+  * Writes the sum of two runs of words to a third:
+  * <code>out[o + i] = a[ai + i] ^ b[bi + i]</code>. The output must not
+  * overlap either input.
+  *
+  * @param out Array that is written
+  *
+  * @param o First index in out
+  *
+  * @param a First array that is added
+  *
+  * @param ai First index in a
+  *
+  * @param b Second array that is added
+  *
+  * @param bi First index in b
+  *
+  * @param len Number of words
+  *
+  */
+ void sum(long[] out, int o, long[] a, int ai, long[] b, int bi, int len);
+
+ /**
+  * ANDs two runs of words together and folds the result into one word
+  * with XOR. The parity of the whole dot product over GF(2) is the
+  * parity of the bits of that word.
+  *
+  * @param a First array
+  *
+  * @param ai First index in a
+  *
+  * @param b Second array
+  *
+  * @param bi First index in b
+  *
+  * @param len Number of words
+  *
+  * @return XOR of <code>a[ai + i] &amp; b[bi + i]</code> over every i
+  *
+  */
+ long andXor(long[] a, int ai, long[] b, int bi, int len);
+
+ /**
+  * Return name of the back end
+  */
+ String getName();
+
+ /**
+  * Returns the default kernel of this JVM: the one named by the
+  * system property {@value #KERNEL}, or else the vector kernel if it
+  * can be loaded, or else the scalar one.
+  *
+  * @return Shared default kernel
+  *
+  */
+ static RowKernel get() {
+  return Default.KERNEL;
+ }
+
+ /**
+  * Returns the kernel with the given name.
+  *
+  * @param name <code>scalar</code> or <code>vector</code>
+  *
+  * @return A kernel of that back end
+  *
+  * @throws IllegalStateException if the vector kernel is asked for
+  *   but cannot be loaded on this JVM
+  *
+  */
+ static RowKernel forName(String name) {
+  switch (name) {
+   case "scalar":
+    return new ScalarKernel();
+   case "vector":
+    try {
+     return (RowKernel) Class.forName("VectorKernel").getConstructor().newInstance();
+    } catch (ReflectiveOperationException | LinkageError e) {
+     throw new IllegalStateException("Vector kernel needs Java 17+ with --add-modules jdk.incubator.vector", e);
+    }
+   default:
+    throw new IllegalArgumentException("Unknown kernel " + name);
+  }
+ }
+
+ /**
+  * Holds the default kernel, picked the first time it is used
+  */
+ final class Default {
+
+  static final RowKernel KERNEL = pick();
+
+  private Default() {
+  }
+
+  private static RowKernel pick() {
+   String name = System.getProperty(RowKernel.KERNEL);
+   if (name != null) {
+    return forName(name);
+   }
+   try {
+    return forName("vector");
+   } catch (IllegalStateException e) {
+    return new ScalarKernel();
+   }
+  }
+ }
+}
@@ -0,0 +1,185 @@
+/**
+ * @(#)SavedGame.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+//Java input/output
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * The state of a game as it is saved to disk: the lights, the number
+ * of clicks and the move log, so undo and redo still work after the
+ * game is loaded again.
+ * <p>
+ * A save file is written big-endian:
+ * <pre>
+ *   int   MAGIC
+ *   short VERSION
+ *   int   rows
+ *   int   cols
+ *   int   lights that are on
+ *   int   clicks
+ *   long  rows * wordsPerRow words of the board, row after row
+ *   int   number of moves in the log
+ *   int   number of those moves that are played
+ *   int   packed cell of each move, oldest first
+ * </pre>
+ * Files are read through a memory-mapped <code>FileChannel</code>.
+ *
+ */
+public class SavedGame {
+
+ /** First int of a save file, "LOSV" */
+ public static final int MAGIC = 0x4C4F5356;
+
+ /** Version of the save file format */
+ public static final short VERSION = 1;
+
+ /** Lights of the game */
+ private final Board board;
+
+ /** Number of clicks the player made */
+ private final int clicks;
+
+ /** Moves of the game */
+ private final MoveLog moveLog;
+
+
+ /**
+  * Creates the saved state of a game.
+  *
+  * @param board Lights of the game
+  *
+  * @param clicks Number of clicks the player made
+  *
+  * @param moveLog Moves of the game
+  *
+  */
+ public SavedGame(Board board, int clicks, MoveLog moveLog) {
+  this.board = board;
+  this.clicks = clicks;
+  this.moveLog = moveLog;
+ }
+
+ /**
+  * Return lights of the game
+  */
+ public Board getBoard() {
+  return this.board;
+ }
+
+ /**
+  * Return number of clicks the player made
+  */
+ public int getClicks() {
+  return this.clicks;
+ }
+
+ /**
+  * Return moves of the game
+  */
+ public MoveLog getMoveLog() {
+  return this.moveLog;
+ }
+
+ /**
+  * Writes the game to a file.
+  *
+  * @param file File to write, replaced if it exists
+  *
+  * @throws IOException if the file cannot be written
+  *
+  */
+ public void write(Path file) throws IOException {
+  try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+   out.writeInt(MAGIC);
+   out.writeShort(VERSION);
+   out.writeInt(this.board.getRows());
+   out.writeInt(this.board.getCols());
+   out.writeInt(this.board.getNumberOfLightsOn());
+   out.writeInt(this.clicks);
+   for (int r = 0; r < this.board.getRows(); r++) {
+    for (int w = 0; w < this.board.getWordsPerRow(); w++) {
+     out.writeLong(this.board.getWord(r, w));
+    }
+   }
+   out.writeInt(this.moveLog.getSize());
+   out.writeInt(this.moveLog.getPosition());
+   for (int i = 0; i < this.moveLog.getSize(); i++) {
+    out.writeInt(this.moveLog.get(i));
+   }
+  }
+ }
+
+ /**
+  * Reads a game from a file.
+  *
+  * @param file File to read
+  *
+  * @return The saved game
+  *
+  * @throws IOException if the file cannot be read or is not a
+  *   save file of a known version
+  *
+  */
+ public static SavedGame read(Path file) throws IOException {
+  try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+   MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+   if (in.remaining() < 22 || in.getInt() != MAGIC) {
+    throw new IOException(file + " is not a Lights Out save file");
+   }
+   short version = in.getShort();
+   if (version != VERSION) {
+    throw new IOException(file + " has unknown save version " + version);
+   }
+   int rows = in.getInt();
+   int cols = in.getInt();
+   int lightsOn = in.getInt();
+   int clicks = in.getInt();
+   Board board = new Board(rows, cols);
+   for (int r = 0; r < rows; r++) {
+    for (int w = 0; w < board.getWordsPerRow(); w++) {
+     board.xorWord(r, w, in.getLong());
+    }
+   }
+   if (board.getNumberOfLightsOn() != lightsOn) {
+    throw new IOException(file + " is corrupt: " + board.getNumberOfLightsOn() + " lights on, " + lightsOn + " saved");
+   }
+   int size = in.getInt();
+   int position = in.getInt();
+   if (size < 0 || size > in.remaining() / 4) {
+    throw new IOException(file + " is corrupt: " + size + " moves");
+   }
+   if (position < 0 || position > size) {
+    throw new IOException(file + " is corrupt: position " + position + " of " + size + " moves");
+   }
+   MoveLog moveLog = new MoveLog(Math.max(MoveLog.DEFAULT_CAPACITY, size));
+   for (int i = 0; i < size; i++) {
+    int cell = in.getInt();
+    //Undo and redo press these cells, so each must be on the board
+    if (cell < 0 || cell >= rows * cols) {
+     throw new IOException(file + " is corrupt: move " + i + " presses cell " + cell + " of " + rows * cols);
+    }
+    moveLog.record(cell);
+   }
+   for (int i = position; i < size; i++) {
+    moveLog.undo();
+   }
+   return new SavedGame(board, clicks, moveLog);
+  } catch (RuntimeException e) {
+   //Short or damaged files show up as buffer underflows
+   throw new IOException(file + " is corrupt", e);
+  }
+ }
+}
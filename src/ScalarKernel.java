@@ -0,0 +1,41 @@
+/**
+ * @(#)ScalarKernel.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+
+/**
+ * The {@link RowKernel} written in plain <code>long</code> code, one
+ * word at a time. It runs on every JVM and is the fallback when the
+ * Vector API is not there.
+ *
+ */
+public class ScalarKernel implements RowKernel {
+
+ @Override public void xor(long[] dst, int d, long[] src, int s, int len) {
+  for (int i = 0; i < len; i++) {
+   dst[d + i] ^= src[s + i];
+  }
+ }
+
+ @Override public void sum(long[] out, int o, long[] a, int ai, long[] b, int bi, int len) {
+  for (int i = 0; i < len; i++) {
+   out[o + i] = a[ai + i] ^ b[bi + i];
+  }
+ }
+
+ @Override public long andXor(long[] a, int ai, long[] b, int bi, int len) {
+  long acc = 0L;
+  for (int i = 0; i < len; i++) {
+   acc ^= a[ai + i] & b[bi + i];
+  }
+  return acc;
+ }
+
+ @Override public String getName() {
+  return "scalar";
+ }
+}
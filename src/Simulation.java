@@ -0,0 +1,225 @@
+/**
+ * @(#)Simulation.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+//Java input/output
+import java.nio.file.Paths;
+
+//Java utilities
+import java.util.SplittableRandom;
+
+//Concurrency
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Plays many games of Lights Out without ever opening a window and
+ * counts how many clicks each game took to win.
+ * <p>
+ * Every game starts from a puzzle of the {@link PuzzleGenerator}, so
+ * it can always be won, and is played on a headless {@link Board} by a
+ * {@link Strategy}. The games are spread over worker threads, each with
+ * its own strategy and its own branch of the random generator. A game
+ * that is not won within the click limit counts as given up.
+ * <p>
+ * The clicks-to-win histogram is a row of <code>LongAdder</code>s, which
+ * spread the updates of different threads over separate cells instead of
+ * fighting over one counter, so the workers hardly ever wait on each
+ * other.
+ * <p>
+ * Usage:
+ * <pre>
+ *   java Simulation [strategy] [games] [size] [threads] [maxClicks] [seed]
+ * </pre>
+ * where the strategy is <code>random</code>, <code>chase</code> or
+ * <code>solver</code>. Setting the system property
+ * <code>lightsout.inverse.cache</code> to a file name keeps the
+ * {@link InverseCache} in that file from one run to the next.
+ *
+ */
+public class Simulation {
+
+ /** Default number of cells in a row/column, the size of the game grid */
+ public static final int DEFAULT_SIZE = 5;
+
+ /** Largest board size solved with the optimal solver */
+ public static final int MAX_OPTIMAL_SIZE = 20;
+
+ /** Number of rows and columns of every board */
+ private final int size;
+
+ /** Name of the strategy the games are played with */
+ private final String strategy;
+
+ /** Most clicks a game may take before it is given up */
+ private final int maxClicks;
+
+ /** Solver shared by the strategies that need one */
+ private final Solver solver;
+
+ /** Number of games won with each number of clicks */
+ private final LongAdder[] histogram;
+
+ /** Number of games given up */
+ private final LongAdder givenUp = new LongAdder();
+
+
+ /**
+  * Runs a simulation from the command line and prints the
+  * histogram and the throughput.
+  *
+  * @param args Strategy, games, size, threads, maxClicks and seed,
+  *   each of them optional
+  *
+  */
+ public static void main(String[] args) throws InterruptedException {
+  String strategy = args.length > 0 ? args[0] : "chase";
+  long games = args.length > 1 ? Long.parseLong(args[1]) : 1000000L;
+  int size = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_SIZE;
+  int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+  int maxClicks = args.length > 4 ? Integer.parseInt(args[4]) : 4 * size * size;
+  long seed = args.length > 5 ? Long.parseLong(args[5]) : System.nanoTime();
+  String cache = System.getProperty(InverseCache.CACHE_FILE);
+  if (cache != null) {
+   InverseCache.shared().persistTo(Paths.get(cache));
+  }
+
+  Simulation simulation = new Simulation(size, strategy, maxClicks);
+  long start = System.nanoTime();
+  simulation.run(games, threads, seed);
+  double seconds = (System.nanoTime() - start) / 1e9;
+
+  System.out.println("clicks\tgames");
+  long won = 0;
+  long clicks = 0;
+  for (int i = 0; i <= maxClicks; i++) {
+   long count = simulation.getGamesWon(i);
+   if (count != 0) {
+    System.out.println(i + "\t" + count);
+    won += count;
+    clicks += count * i;
+   }
+  }
+  System.out.println("given up\t" + simulation.getGamesGivenUp());
+  System.out.printf("won %d of %d, %.2f clicks on average%n", won, games, won == 0 ? 0.0 : (double) clicks / won);
+  System.out.printf("%.0f games/s, %.0f games/s per thread%n", games / seconds, games / seconds / threads);
+ }
+
+ /**
+  * Creates a simulation.
+  *
+  * @param size Number of rows and columns of every board
+  *
+  * @param strategy Name of the strategy: random, chase or solver
+  *
+  * @param maxClicks Most clicks a game may take before it is
+  *   given up
+  *
+  */
+ public Simulation(int size, String strategy, int maxClicks) {
+  this.size = size;
+  this.strategy = strategy;
+  this.maxClicks = maxClicks;
+  this.solver = size <= MAX_OPTIMAL_SIZE ? new OptimalSolver() : new ParallelSolver();
+  this.histogram = new LongAdder[maxClicks + 1];
+  for (int i = 0; i <= maxClicks; i++) {
+   this.histogram[i] = new LongAdder();
+  }
+  //Fail early on a bad name rather than in every worker
+  this.newStrategy();
+ }
+
+ /**
+  * Creates a new instance of the strategy for one worker
+  *
+  * @return The strategy named in the constructor
+  *
+  */
+ public Strategy newStrategy() {
+  switch (this.strategy) {
+   case "random":
+    return new RandomStrategy();
+   case "chase":
+    return new ChaseStrategy(this.solver);
+   case "solver":
+    return new SolverStrategy(this.solver);
+   default:
+    throw new IllegalArgumentException("Unknown strategy: " + this.strategy);
+  }
+ }
+
+ /**
+  * Plays the given number of games, spread evenly over the given
+  * number of threads, and adds them to the histogram.
+  *
+  * @param games Number of games to play
+  *
+  * @param threads Number of worker threads
+  *
+  * @param seed Seed of the random bits
+  *
+  * @throws InterruptedException if interrupted while waiting
+  *   for the workers
+  *
+  */
+ public void run(long games, int threads, long seed) throws InterruptedException {
+  SplittableRandom root = new SplittableRandom(seed);
+  Thread[] workers = new Thread[threads];
+  for (int t = 0; t < threads; t++) {
+   long share = games / threads + (t < games % threads ? 1 : 0);
+   SplittableRandom random = root.split();
+   Strategy player = this.newStrategy();
+   workers[t] = new Thread(() -> this.play(share, player, random), "simulation-" + t);
+   workers[t].start();
+  }
+  for (Thread worker : workers) {
+   worker.join();
+  }
+ }
+
+ /**
+  * Plays games on the current thread
+  */
+ private void play(long games, Strategy player, SplittableRandom random) {
+  PuzzleGenerator generator = new PuzzleGenerator(this.size, this.size);
+  Board board = new Board(this.size, this.size);
+  for (long g = 0; g < games; g++) {
+   generator.fill(board, PuzzleGenerator.UNIFORM, random);
+   player.newGame(board, random);
+   int clicks = 0;
+   while (!board.isSolved() && clicks < this.maxClicks) {
+    int cell = player.nextMove(board, random);
+    board.toggleAdjacentLights(cell / this.size, cell % this.size);
+    clicks++;
+   }
+   if (board.isSolved()) {
+    this.histogram[clicks].increment();
+   } else {
+    this.givenUp.increment();
+   }
+  }
+ }
+
+ /**
+  * Returns the number of games won with the given number of clicks
+  *
+  * @param clicks Number of clicks, up to maxClicks
+  *
+  * @return Number of games
+  *
+  */
+ public long getGamesWon(int clicks) {
+  return this.histogram[clicks].sum();
+ }
+
+ /**
+  * Return the number of games that were given up
+  */
+ public long getGamesGivenUp() {
+  return this.givenUp.sum();
+ }
+}
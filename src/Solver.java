@@ -0,0 +1,217 @@
+/**
+ * @(#)Solver.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+//Fork/join parallelism
+import java.util.concurrent.ForkJoinPool;
+
+
+/**
+ * Implements a solver for Lights Out boards of any size.
+ * <p>
+ * Pressing a cell twice does nothing and the order of presses does not
+ * matter, so a solution is just a set of cells to press once each. If
+ * <code>x</code> is that set written as a vector of 0s and 1s, and
+ * <code>b</code> is the vector of lights that are on, then the board is
+ * solved when <code>A x = b</code> over GF(2), where row <code>i</code>
+ * of the press matrix <code>A</code> says which presses toggle cell
+ * <code>i</code>. The solver builds that matrix from the {@link Topology}
+ * of the board, the same rule {@link Board#toggleAdjacentLights(int, int)}
+ * presses with, stores its rows as bitsets and runs Gaussian elimination
+ * with word-wide XORs.
+ * <p>
+ * Boards of up to {@link InverseCache#MAX_CELLS} cells are solved with
+ * the {@link PressInverse} of their topology from the shared
+ * {@link InverseCache}, so only the first solve of a topology runs the
+ * elimination and every later one is a matrix-vector product. Larger
+ * boards eliminate their press matrix on every solve.
+ * <p>
+ * Cells are numbered row after row, so cell <code>(r, c)</code> is
+ * variable <code>r * cols + c</code>.
+ *
+ */
+public class Solver {
+
+ /**
+  * Finds a set of presses that switches off every light on the
+  * given board.
+  *
+  * @param board Board to solve, it is not changed
+  *
+  * @return Board with a light on for every cell that needs to be
+  *   pressed once, or <code>null</code> if the board cannot
+  *   be solved at all.
+  *
+  */
+ public Board solve(Board board) {
+  if ((long) board.getRows() * board.getCols() <= InverseCache.MAX_CELLS) {
+   return this.invert(board);
+  }
+  return this.eliminate(board, null);
+ }
+
+ /**
+  * Solves a board with the cached inverse of its topology.
+  *
+  * @param board Board to solve, it is not changed
+  *
+  * @return Board of presses, or <code>null</code> if the board
+  *   cannot be solved at all.
+  *
+  */
+ protected Board invert(Board board) {
+  PressInverse inverse = InverseCache.shared().get(board.getTopology());
+  long[] x = applyInverse(inverse, board.toVector());
+  return x == null ? null : Board.fromVector(board.getTopology(), x);
+ }
+
+ /**
+  * Multiplies the lights by an inverse, after checking that they can
+  * be solved at all.
+  *
+  * @param inverse Inverse of the press matrix of the board
+  *
+  * @param b Lights that are on, numbered like {@link Board#toVector()}
+  *
+  * @return Presses as a bitset of n bits, or null if some check
+  *   of the inverse fails
+  *
+  */
+ static long[] applyInverse(PressInverse inverse, long[] b) {
+  for (long check : inverse.getChecks().multiply(b)) {
+   if (check != 0) {
+    return null;
+   }
+  }
+  return inverse.getInverse().multiply(b);
+ }
+
+ /**
+  * Solves a board by elimination of its whole press matrix.
+  *
+  * @param board Board to solve, it is not changed
+  *
+  * @param pool Pool to eliminate in parallel, or null to
+  *   eliminate on the calling thread
+  *
+  * @return Board of presses, or <code>null</code> if the board
+  *   cannot be solved at all.
+  *
+  */
+ protected Board eliminate(Board board, ForkJoinPool pool) {
+  int rows = board.getRows();
+  int cols = board.getCols();
+  int n = rows * cols;
+
+  //Press matrix with the lights that are on as the augmented column
+  BitMatrix m = board.getTopology().pressMatrix(1);
+  for (int r = 0; r < rows; r++) {
+   for (int c = 0; c < cols; c++) {
+    if (board.isOn(r, c)) {
+     m.set(r * cols + c, n, true);
+    }
+   }
+  }
+
+  int[] pivotCols = new int[n];
+  int rank = pool == null ? m.echelon(n, pivotCols) : m.echelon(n, pivotCols, pool);
+
+  if (!isConsistent(m, n, rank)) {
+   return null;
+  }
+  long[] x = backSubstitute(m, n, rank, pivotCols);
+
+  Board presses = new Board(board.getTopology());
+  for (int i = 0; i < n; i++) {
+   if (((x[i >>> 6] >>> i) & 1L) != 0) {
+    presses.toggle(i / cols, i % cols);
+   }
+  }
+  return presses;
+ }
+
+ /**
+  * Returns true if a system in row echelon form has a solution. A
+  * zero row with a 1 on the right hand side would mean 0 = 1.
+  *
+  * @param m Augmented matrix in row echelon form, the right hand
+  *   side is column n
+  *
+  * @param n Number of variables
+  *
+  * @param rank Number of pivot rows
+  *
+  * @return false when the system cannot be solved
+  *
+  */
+ static boolean isConsistent(BitMatrix m, int n, int rank) {
+  for (int r = rank; r < m.getRows(); r++) {
+   if (m.get(r, n)) {
+    return false;
+   }
+  }
+  return true;
+ }
+
+ /**
+  * Solves a consistent system in row echelon form by back
+  * substitution. Free variables are left at 0.
+  *
+  * @param m Augmented matrix in row echelon form, the right hand
+  *   side is column n
+  *
+  * @param n Number of variables
+  *
+  * @param rank Number of pivot rows
+  *
+  * @param pivotCols Pivot column of each pivot row
+  *
+  * @return Solution as a bitset of n bits
+  *
+  */
+ static long[] backSubstitute(BitMatrix m, int n, int rank, int[] pivotCols) {
+  long[] x = new long[(n + 63) >>> 6];
+  long[] data = m.getData();
+  int wordsPerRow = m.getWordsPerRow();
+  for (int i = rank - 1; i >= 0; i--) {
+   int p = pivotCols[i];
+   int base = i * wordsPerRow;
+   //Parity of the row past the pivot against the presses found so far
+   long parity = m.get(i, n) ? 1L : 0L;
+   int w = p >>> 6;
+   parity ^= Long.bitCount(data[base + w] & x[w] & (-2L << p)) & 1L;
+   for (w = w + 1; w < x.length; w++) {
+    parity ^= Long.bitCount(data[base + w] & x[w]) & 1L;
+   }
+   if (parity != 0) {
+    x[p >>> 6] |= 1L << p;
+   }
+  }
+  return x;
+ }
+
+ /**
+  * Builds the press matrix of a classic board of the given size,
+  * see {@link Topology#pressMatrix(int)}. Row and
+  * column <code>i</code> both stand for cell <code>i</code>; a 1 in
+  * row <code>i</code>, column <code>j</code> means that pressing cell
+  * <code>j</code> toggles cell <code>i</code>.
+  *
+  * @param rows Number of rows on the board
+  *
+  * @param cols Number of columns on the board
+  *
+  * @param extraCols Number of zero columns to leave after the
+  *   press matrix, for example for a right hand side
+  *
+  * @return Press matrix with rows * cols rows
+  *
+  */
+ public static BitMatrix pressMatrix(int rows, int cols, int extraCols) {
+  return Topology.classic(rows, cols).pressMatrix(extraCols);
+ }
+}
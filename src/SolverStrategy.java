@@ -0,0 +1,59 @@
+/**
+ * @(#)SolverStrategy.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+//Java utilities
+import java.util.SplittableRandom;
+
+
+/**
+ * Plays by asking a {@link Solver} for the presses at the start of a
+ * game and then pressing them one after the other, like a player who
+ * follows the Hint button.
+ *
+ */
+public class SolverStrategy implements Strategy {
+
+ /** Solver that finds the presses */
+ private final Solver solver;
+
+ /** Presses of the current game that are still to be made */
+ private long[] presses;
+
+ /** Index of the word of presses to look at next */
+ private int word;
+
+
+ /**
+  * Creates a strategy that follows the given solver.
+  *
+  * @param solver Solver that finds the presses, shared by every
+  *   thread so it must not keep state between solves
+  *
+  */
+ public SolverStrategy(Solver solver) {
+  this.solver = solver;
+ }
+
+ @Override public void newGame(Board board, SplittableRandom random) {
+  Board solution = this.solver.solve(board);
+  if (solution == null) {
+   throw new IllegalArgumentException("Board cannot be solved:\n" + board);
+  }
+  this.presses = solution.toVector();
+  this.word = 0;
+ }
+
+ @Override public int nextMove(Board board, SplittableRandom random) {
+  while (this.presses[this.word] == 0) {
+   this.word++;
+  }
+  long bits = this.presses[this.word];
+  this.presses[this.word] = bits & (bits - 1);
+  return (this.word << 6) + Long.numberOfTrailingZeros(bits);
+ }
+}
@@ -0,0 +1,341 @@
+/**
+ * @(#)SparseBoard.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+//Java utilities
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * Implements the headless state of a board with no edges, for
+ * experiments on an "infinite canvas" where only a few cells ever
+ * light up. A press toggles the cell and the cells above, below, left
+ * and right of it, like the classic game, but every cell has all four
+ * neighbours.
+ * <p>
+ * The plane is cut into tiles of 64x64 cells. A tile holds one
+ * <code>long</code> per row, with cell <code>c</code> of the row in
+ * bit <code>c % 64</code>, just like a row of a {@link Board}. Tiles
+ * live in a hash map keyed by their position and are only made when a
+ * light in them is switched on; a tile whose last light goes off is
+ * dropped again. Memory therefore follows the lights that are on, not
+ * the area they are spread over.
+ * <p>
+ * Cells are addressed by any <code>int</code> row and column except
+ * the very smallest and largest, so a press never wraps around. A
+ * press near the border of a tile toggles the bits of the tile next to
+ * it too.
+ *
+ */
+public class SparseBoard {
+
+ /** Number of bits of a coordinate that pick the cell within a tile */
+ public static final int TILE_BITS = 6;
+
+ /** Number of rows and columns of a tile */
+ public static final int TILE_SIZE = 1 << TILE_BITS;
+
+ /** Mask of the cell within a tile of a coordinate */
+ private static final int CELL_MASK = TILE_SIZE - 1;
+
+ /** Tiles with at least one light on, keyed by their position */
+ private final Map<Long, Tile> tiles;
+
+ /** Number of lights that are on */
+ private long lightCounter;
+
+
+ /**
+  * Creates a board where every light starts off.
+  */
+ public SparseBoard() {
+  this.tiles = new HashMap<Long, Tile>();
+ }
+
+ /**
+  * Creates a new SparseBoard that is an exact copy of the given board.
+  *
+  * @param other Board to copy
+  *
+  */
+ public SparseBoard(SparseBoard other) {
+  this.tiles = new HashMap<Long, Tile>(other.tiles.size() * 2);
+  for (Map.Entry<Long, Tile> e : other.tiles.entrySet()) {
+   this.tiles.put(e.getKey(), new Tile(e.getValue()));
+  }
+  this.lightCounter = other.lightCounter;
+ }
+
+ /**
+  * Returns the key of the tile at the given tile position
+  */
+ private static long key(int tileRow, int tileCol) {
+  return ((long) tileRow << 32) | (tileCol & 0xFFFFFFFFL);
+ }
+
+ /**
+  * Returns true if the light in the given cell is on
+  *
+  * @param r Row number of the cell
+  *
+  * @param c Column number of the cell
+  *
+  * @return true when the light is on
+  *
+  */
+ public boolean isOn(int r, int c) {
+  Tile t = this.tiles.get(key(r >> TILE_BITS, c >> TILE_BITS));
+  return t != null && (t.rows[r & CELL_MASK] >>> (c & CELL_MASK) & 1L) != 0;
+ }
+
+ /**
+  * Switches the light in the given cell on or off, none of its
+  * neighbours are changed.
+  *
+  * @param r Row number of the cell
+  *
+  * @param c Column number of the cell
+  *
+  * @param on true to switch the light on, false to switch it off
+  *
+  */
+ public void setOn(int r, int c, boolean on) {
+  if (this.isOn(r, c) != on) {
+   this.toggle(r, c);
+  }
+ }
+
+ /**
+  * Toggles the light in the given cell, none of its neighbours are
+  * changed.
+  *
+  * @param r Row number of the cell
+  *
+  * @param c Column number of the cell
+  *
+  */
+ public void toggle(int r, int c) {
+  this.xor(r >> TILE_BITS, c >> TILE_BITS, r & CELL_MASK, 1L << (c & CELL_MASK));
+ }
+
+ /**
+  * Presses a cell: toggles it and the cells above, below, left and
+  * right of it.
+  *
+  * @param r Row number of the cell
+  *
+  * @param c Column number of the cell
+  *
+  */
+ public void press(int r, int c) {
+  checkCoordinate(r);
+  checkCoordinate(c);
+  int tr = r >> TILE_BITS;
+  int tc = c >> TILE_BITS;
+  int y = r & CELL_MASK;
+  int x = c & CELL_MASK;
+  long bit = 1L << x;
+
+  //Most presses stay inside one tile, so look it up once
+  long key = key(tr, tc);
+  Tile t = this.tiles.get(key);
+  if (t == null) {
+   t = new Tile();
+   this.tiles.put(key, t);
+  }
+  this.lightCounter += t.xor(y, bit | (bit << 1) | (bit >>> 1));
+  if (y > 0) {
+   this.lightCounter += t.xor(y - 1, bit);
+  } else {
+   this.xor(tr - 1, tc, CELL_MASK, bit);
+  }
+  if (y < CELL_MASK) {
+   this.lightCounter += t.xor(y + 1, bit);
+  } else {
+   this.xor(tr + 1, tc, 0, bit);
+  }
+  if (t.lit == 0) {
+   this.tiles.remove(key);
+  }
+
+  //The left and right neighbours may be in the tiles next to this one
+  if (x == 0) {
+   this.xor(tr, tc - 1, y, 1L << CELL_MASK);
+  } else if (x == CELL_MASK) {
+   this.xor(tr, tc + 1, y, 1L);
+  }
+ }
+
+ /**
+  * Toggles bits of one row of a tile, making the tile if it is
+  * missing and dropping it if it ends up empty.
+  *
+  * @param tileRow Row of the tile
+  *
+  * @param tileCol Column of the tile
+  *
+  * @param y Row within the tile
+  *
+  * @param mask Bits to toggle
+  *
+  */
+ private void xor(int tileRow, int tileCol, int y, long mask) {
+  long key = key(tileRow, tileCol);
+  Tile t = this.tiles.get(key);
+  if (t == null) {
+   t = new Tile();
+   this.tiles.put(key, t);
+  }
+  this.lightCounter += t.xor(y, mask);
+  if (t.lit == 0) {
+   this.tiles.remove(key);
+  }
+ }
+
+ /**
+  * Makes sure a press at the given coordinate has neighbours on both
+  * sides without wrapping.
+  */
+ private static void checkCoordinate(int v) {
+  if (v == Integer.MIN_VALUE || v == Integer.MAX_VALUE) {
+   throw new IndexOutOfBoundsException("Cell coordinate " + v + " is at the edge of the int range");
+  }
+ }
+
+ /**
+  * Return current number of lights that are on
+  */
+ public long getNumberOfLightsOn() {
+  return this.lightCounter;
+ }
+
+ /**
+  * Returns true once every light on the board is off
+  *
+  * @return true when the board has been solved
+  *
+  */
+ public boolean isSolved() {
+  return this.lightCounter == 0;
+ }
+
+ /**
+  * Return number of tiles that are in memory, which is the number of
+  * tiles with at least one light on
+  */
+ public int getTileCount() {
+  return this.tiles.size();
+ }
+
+ /**
+  * Switches every light on the board off and drops every tile.
+  */
+ public void clear() {
+  this.tiles.clear();
+  this.lightCounter = 0;
+ }
+
+ /**
+  * Copies a rectangle of the plane into a dense board, for example to
+  * show it or to solve it. Lights outside the rectangle are ignored.
+  *
+  * @param top Row of the plane that becomes row 0 of the board
+  *
+  * @param left Column of the plane that becomes column 0 of the board
+  *
+  * @param rows Number of rows to copy
+  *
+  * @param cols Number of columns to copy
+  *
+  * @return Classic board holding the lights of the rectangle
+  *
+  */
+ public Board window(int top, int left, int rows, int cols) {
+  Board board = new Board(rows, cols);
+  long bottom = (long) top + rows;
+  long right = (long) left + cols;
+  for (Map.Entry<Long, Tile> e : this.tiles.entrySet()) {
+   long key = e.getKey();
+   long r0 = (long) (int) (key >> 32) << TILE_BITS;
+   long c0 = (long) (int) key << TILE_BITS;
+   if (r0 + TILE_SIZE <= top || r0 >= bottom || c0 + TILE_SIZE <= left || c0 >= right) {
+    continue;
+   }
+   long[] tileRows = e.getValue().rows;
+   for (int y = 0; y < TILE_SIZE; y++) {
+    long r = r0 + y;
+    if (r < top || r >= bottom) {
+     continue;
+    }
+    for (long bits = tileRows[y]; bits != 0; bits &= bits - 1) {
+     long c = c0 + Long.numberOfTrailingZeros(bits);
+     if (c >= left && c < right) {
+      board.setOn((int) (r - top), (int) (c - left), true);
+     }
+    }
+   }
+  }
+  return board;
+ }
+
+ @Override public boolean equals(Object o) {
+  if (!(o instanceof SparseBoard)) {
+   return false;
+  }
+  //Empty tiles are never kept, so equal boards have equal maps
+  return ((SparseBoard) o).tiles.equals(this.tiles);
+ }
+
+ @Override public int hashCode() {
+  return this.tiles.hashCode();
+ }
+
+ @Override public String toString() {
+  return "SparseBoard[" + this.lightCounter + " lights on in " + this.tiles.size() + " tiles]";
+ }
+
+ /**
+  * One 64x64 tile of the plane: a word per row and the number of
+  * lights that are on in it.
+  */
+ private static final class Tile {
+
+  final long[] rows;
+  int lit;
+
+  Tile() {
+   this.rows = new long[TILE_SIZE];
+  }
+
+  Tile(Tile other) {
+   this.rows = other.rows.clone();
+   this.lit = other.lit;
+  }
+
+  /**
+   * Toggles bits of a row and returns how the number of lights on changed
+   */
+  int xor(int y, long mask) {
+   long old = this.rows[y];
+   long now = old ^ mask;
+   this.rows[y] = now;
+   int delta = Long.bitCount(now) - Long.bitCount(old);
+   this.lit += delta;
+   return delta;
+  }
+
+  @Override public boolean equals(Object o) {
+   return o instanceof Tile && Arrays.equals(((Tile) o).rows, this.rows);
+  }
+
+  @Override public int hashCode() {
+   return Arrays.hashCode(this.rows);
+  }
+ }
+}
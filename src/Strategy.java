@@ -0,0 +1,44 @@
+/**
+ * @(#)Strategy.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+//Java utilities
+import java.util.SplittableRandom;
+
+
+/**
+ * A way of playing Lights Out without a person at the mouse, used by
+ * the {@link Simulation} to play many games on a headless {@link Board}.
+ * <p>
+ * A Strategy may remember things between moves of one game, so every
+ * thread of a simulation plays with its own instance.
+ *
+ */
+public interface Strategy {
+
+ /**
+  * Called once before the first move of a new game.
+  *
+  * @param board Board of the new game
+  *
+  * @param random Source of random bits of this thread
+  *
+  */
+ void newGame(Board board, SplittableRandom random);
+
+ /**
+  * Picks the next cell to press. The board is not solved yet.
+  *
+  * @param board Board of the current game, not to be changed
+  *
+  * @param random Source of random bits of this thread
+  *
+  * @return Cell to press as <code>r * cols + c</code>
+  *
+  */
+ int nextMove(Board board, SplittableRandom random);
+}
@@ -0,0 +1,157 @@
+/**
+ * @(#)TileSprites.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+//Swing GUI components
+import javax.swing.border.BevelBorder;
+
+//AWT package GUI details
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.image.BufferedImage;
+
+
+/**
+ * Keeps one pre-rendered image (sprite) for every way a cell of the
+ * grid can look: off, on, either of those marked as a hint, held down
+ * by the mouse, and the other colors of {@link Light#PALETTE}. Drawing
+ * the background color and the bevel border of a cell from scratch on
+ * every paint adds up on large boards, so the sprites are drawn once
+ * and painting a cell is then a single image copy.
+ * <p>
+ * The images are created compatible with the screen the component is
+ * on, which lets Java2D keep them in video memory where it can. Only
+ * one cell size is cached at a time, since every cell on the screen has
+ * the same size; the sprites are rendered again when that size changes.
+ * All methods are meant to be called from the event dispatch thread.
+ *
+ */
+public class TileSprites {
+
+ /** Sprite of a light that is off */
+ public static final int OFF = 0;
+ /** Sprite of a light that is on */
+ public static final int ON = 1;
+ /** Sprite of a light that is off and marked as a hint */
+ public static final int OFF_HINT = 2;
+ /** Sprite of a light that is on and marked as a hint */
+ public static final int ON_HINT = 3;
+ /** Sprite of a light held down by the mouse */
+ public static final int PRESSED = 4;
+ /**
+  * First sprite of the lights in states past on, for games with more
+  * than two states: state s takes STATE + 2 * (s - 2), and the sprite
+  * after it is the same state marked as a hint
+  */
+ public static final int STATE = 5;
+
+ /** Color of a light while it is held down */
+ public static final Color PRESSED_COLOR = new Color(70, 70, 70);
+
+ /** Width of the cached sprites */
+ private static int width = -1;
+
+ /** Height of the cached sprites */
+ private static int height = -1;
+
+ /** Cached sprites, indexed by the constants above */
+ private static BufferedImage[] tiles;
+
+
+ /**
+  * Returns the kind of sprite for a light in the given state.
+  *
+  * @param on true when the light is on
+  *
+  * @param hinted true when the light is marked as a hint
+  *
+  * @return One of the sprite constants
+  *
+  */
+ public static int kind(boolean on, boolean hinted) {
+  return (on ? ON : OFF) + (hinted ? OFF_HINT : 0);
+ }
+
+ /**
+  * Returns the kind of sprite for a light in the given state, for
+  * games whose lights have more than two states.
+  *
+  * @param state State of the light, an index into Light.PALETTE
+  *
+  * @param hinted true when the light is marked as a hint
+  *
+  * @return One of the sprite constants
+  *
+  */
+ public static int kind(int state, boolean hinted) {
+  if (state < 2) {
+   return kind(state == 1, hinted);
+  }
+  return STATE + 2 * (state - 2) + (hinted ? 1 : 0);
+ }
+
+ /**
+  * Returns the sprite of the given kind, rendering all sprites again
+  * first if the cell size has changed.
+  *
+  * @param c Component the sprite is painted on, used to pick an
+  *   image type that matches its screen
+  *
+  * @param kind One of the sprite constants
+  *
+  * @param w Width of a cell
+  *
+  * @param h Height of a cell
+  *
+  * @return The sprite at the given size
+  *
+  */
+ public static BufferedImage tile(Component c, int kind, int w, int h) {
+  if (w != width || h != height || tiles == null) {
+   render(c, w, h);
+  }
+  return tiles[kind];
+ }
+
+ /**
+  * Renders every sprite at the given size
+  */
+ private static void render(Component c, int w, int h) {
+  GraphicsConfiguration gc = c.getGraphicsConfiguration();
+  BufferedImage[] next = new BufferedImage[STATE + 2 * (Light.PALETTE.length - 2)];
+  next[OFF] = draw(c, gc, w, h, Light.OFF, Light.OFF_BORDER);
+  next[ON] = draw(c, gc, w, h, Light.ON, Light.ON_BORDER);
+  next[OFF_HINT] = draw(c, gc, w, h, Light.OFF, Light.HINT_BORDER);
+  next[ON_HINT] = draw(c, gc, w, h, Light.ON, Light.HINT_BORDER);
+  next[PRESSED] = draw(c, gc, w, h, PRESSED_COLOR, Light.ON_BORDER);
+  for (int s = 2; s < Light.PALETTE.length; s++) {
+   next[kind(s, false)] = draw(c, gc, w, h, Light.PALETTE[s], Light.ON_BORDER);
+   next[kind(s, true)] = draw(c, gc, w, h, Light.PALETTE[s], Light.HINT_BORDER);
+  }
+  tiles = next;
+  width = w;
+  height = h;
+ }
+
+ /**
+  * Draws a single sprite: the background color with the border on top
+  */
+ private static BufferedImage draw(Component c, GraphicsConfiguration gc, int w, int h, Color color, BevelBorder border) {
+  int iw = Math.max(1, w);
+  int ih = Math.max(1, h);
+  BufferedImage img = (gc != null) ? gc.createCompatibleImage(iw, ih)
+                                   : new BufferedImage(iw, ih, BufferedImage.TYPE_INT_RGB);
+  Graphics2D g2 = img.createGraphics();
+  g2.setColor(color);
+  g2.fillRect(0, 0, iw, ih);
+  border.paintBorder(c, g2, 0, 0, iw, ih);
+  g2.dispose();
+  return img;
+ }
+}
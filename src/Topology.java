@@ -0,0 +1,343 @@
+/**
+ * @(#)Topology.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+//Java utilities
+import java.util.Arrays;
+
+
+/**
+ * Says which lights a press toggles: the size of the board, the shape
+ * of the neighbourhood, whether the edges wrap around, and whether the
+ * pressed cell itself is toggled.
+ * <p>
+ * The classic game is a bounded board with the {@link Neighbourhood#PLUS}
+ * shape that toggles the pressed cell too. In the literature that is the
+ * sigma-plus game; the sigma game toggles only the neighbours. On a torus a
+ * neighbour that would be off one edge comes back in on the opposite
+ * edge.
+ * <p>
+ * The neighbourhood is a set: when wrapping on a small torus makes two
+ * offsets land on the same cell, that cell is toggled once.
+ * <p>
+ * Other than the classic one, which {@link Board} presses with its own
+ * hard-coded masks, a topology is compiled the first time a board
+ * presses with it into per-cell tables of <code>(word, mask)</code>
+ * pairs. Every press is then a fixed number of word XORs, the same on
+ * any shape, and the tables are shared by every board of the topology.
+ *
+ */
+public final class Topology {
+
+ /** Shapes of neighbourhood */
+ public enum Neighbourhood {
+  /** Directly above, below, left and right */
+  PLUS(new int[][] { {-1, 0}, {1, 0}, {0, -1}, {0, 1} }),
+  /** The four diagonal cells */
+  DIAGONAL(new int[][] { {-1, -1}, {-1, 1}, {1, -1}, {1, 1} }),
+  /** All eight cells around, like a king in chess */
+  KING(new int[][] { {-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, -1}, {1, 0}, {1, 1} }),
+  /** The eight cells a knight in chess can jump to */
+  KNIGHT(new int[][] { {-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1} });
+
+  /** Row and column offsets of the neighbours */
+  private final int[][] offsets;
+
+  Neighbourhood(int[][] offsets) {
+   this.offsets = offsets;
+  }
+ }
+
+ /** Number of rows on the board */
+ private final int rows;
+
+ /** Number of columns on the board */
+ private final int cols;
+
+ /** Shape of the neighbourhood */
+ private final Neighbourhood neighbourhood;
+
+ /** True if the edges wrap around */
+ private final boolean torus;
+
+ /** True if a press toggles the pressed cell too (sigma-plus), false for sigma */
+ private final boolean self;
+
+ /**
+  * Compiled masks: the pairs of cell i are entries cellStart[i] to
+  * cellStart[i + 1] - 1 of maskIndex and maskBits. Null until the
+  * first press.
+  */
+ private volatile Tables tables;
+
+
+ /**
+  * Creates a topology.
+  *
+  * @param rows Number of rows on the board
+  *
+  * @param cols Number of columns on the board
+  *
+  * @param neighbourhood Shape of the neighbourhood
+  *
+  * @param torus true if the edges wrap around
+  *
+  * @param self true if a press toggles the pressed cell too (sigma-plus),
+  *   false if it toggles only the neighbours (sigma)
+  *
+  */
+ public Topology(int rows, int cols, Neighbourhood neighbourhood, boolean torus, boolean self) {
+  if (rows <= 0 || cols <= 0) {
+   throw new IllegalArgumentException("Board must have at least one cell: " + rows + "x" + cols);
+  }
+  if (neighbourhood == null) {
+   throw new IllegalArgumentException("Neighbourhood must not be null");
+  }
+  this.rows = rows;
+  this.cols = cols;
+  this.neighbourhood = neighbourhood;
+  this.torus = torus;
+  this.self = self;
+ }
+
+ /**
+  * Returns the topology of the classic game: a bounded board where
+  * a press toggles the cell and the cells above, below, left and
+  * right of it.
+  *
+  * @param rows Number of rows on the board
+  *
+  * @param cols Number of columns on the board
+  *
+  * @return Classic topology of that size
+  *
+  */
+ public static Topology classic(int rows, int cols) {
+  return new Topology(rows, cols, Neighbourhood.PLUS, false, true);
+ }
+
+ /**
+  * Parses a topology from a short spec of the form
+  * <code>ROWSxCOLS[:shape][:torus][:sigma]</code>, for example
+  * <code>7x9:knight:torus</code>. The shape is one of the
+  * {@link Neighbourhood} names in any case and defaults to plus;
+  * <code>sigma</code> leaves the pressed cell alone.
+  *
+  * @param spec Spec to parse
+  *
+  * @return Topology of the spec
+  *
+  */
+ public static Topology parse(String spec) {
+  String[] parts = spec.trim().split(":");
+  String[] size = parts[0].split("x");
+  if (size.length != 2) {
+   throw new IllegalArgumentException("Size must be ROWSxCOLS: " + spec);
+  }
+  Neighbourhood shape = Neighbourhood.PLUS;
+  boolean torus = false;
+  boolean self = true;
+  for (int i = 1; i < parts.length; i++) {
+   String part = parts[i].toLowerCase();
+   if (part.equals("torus")) {
+    torus = true;
+   } else if (part.equals("sigma")) {
+    self = false;
+   } else {
+    try {
+     shape = Neighbourhood.valueOf(part.toUpperCase());
+    } catch (IllegalArgumentException e) {
+     throw new IllegalArgumentException("Unknown part " + parts[i] + " of " + spec);
+    }
+   }
+  }
+  return new Topology(Integer.parseInt(size[0]), Integer.parseInt(size[1]), shape, torus, self);
+ }
+
+ /**
+  * Return number of rows on the board
+  */
+ public int getRows() {
+  return this.rows;
+ }
+
+ /**
+  * Return number of columns on the board
+  */
+ public int getCols() {
+  return this.cols;
+ }
+
+ /**
+  * Return shape of the neighbourhood
+  */
+ public Neighbourhood getNeighbourhood() {
+  return this.neighbourhood;
+ }
+
+ /**
+  * Return true if the edges wrap around
+  */
+ public boolean isTorus() {
+  return this.torus;
+ }
+
+ /**
+  * Return true if a press toggles the pressed cell too
+  */
+ public boolean isSelf() {
+  return this.self;
+ }
+
+ /**
+  * Returns true if this is the classic game, which boards press
+  * without tables
+  *
+  * @return true for a bounded plus shape that toggles the pressed cell
+  *
+  */
+ public boolean isClassic() {
+  return this.neighbourhood == Neighbourhood.PLUS && !this.torus && this.self;
+ }
+
+ /**
+  * Returns the cells a press of the given cell toggles.
+  *
+  * @param r Row number of the pressed cell
+  *
+  * @param c Column number of the pressed cell
+  *
+  * @return Packed cells <code>r * cols + c</code>, sorted, each once
+  *
+  */
+ public int[] neighbours(int r, int c) {
+  if (r < 0 || r >= this.rows || c < 0 || c >= this.cols) {
+   throw new IndexOutOfBoundsException("Cell (" + r + ", " + c + ") is outside a "
+           + this.rows + "x" + this.cols + " board");
+  }
+  int[][] offsets = this.neighbourhood.offsets;
+  int[] cells = new int[offsets.length + 1];
+  int n = 0;
+  if (this.self) {
+   cells[n++] = r * this.cols + c;
+  }
+  for (int[] d : offsets) {
+   int nr = r + d[0];
+   int nc = c + d[1];
+   if (this.torus) {
+    nr = Math.floorMod(nr, this.rows);
+    nc = Math.floorMod(nc, this.cols);
+   } else if (nr < 0 || nr >= this.rows || nc < 0 || nc >= this.cols) {
+    continue;
+   }
+   cells[n++] = nr * this.cols + nc;
+  }
+  Arrays.sort(cells, 0, n);
+  //Drop the cells that wrapping made appear twice
+  int unique = 0;
+  for (int i = 0; i < n; i++) {
+   if (unique == 0 || cells[i] != cells[unique - 1]) {
+    cells[unique++] = cells[i];
+   }
+  }
+  return Arrays.copyOf(cells, unique);
+ }
+
+ /**
+  * Builds the press matrix of this topology. Row and column
+  * <code>i</code> both stand for cell <code>i</code>; a 1 in row
+  * <code>i</code>, column <code>j</code> means that pressing cell
+  * <code>j</code> toggles cell <code>i</code>.
+  *
+  * @param extraCols Number of zero columns to leave after the
+  *   press matrix, for example for a right hand side
+  *
+  * @return Press matrix with rows * cols rows
+  *
+  */
+ public BitMatrix pressMatrix(int extraCols) {
+  int n = this.rows * this.cols;
+  BitMatrix m = new BitMatrix(n, n + extraCols);
+  for (int j = 0; j < n; j++) {
+   for (int i : this.neighbours(j / this.cols, j % this.cols)) {
+    m.set(i, j, true);
+   }
+  }
+  return m;
+ }
+
+ /**
+  * Returns the compiled masks, compiling them the first time
+  */
+ Tables getTables() {
+  Tables t = this.tables;
+  if (t == null) {
+   //Compiling twice on a race gives equal tables, so no lock is needed
+   t = new Tables(this);
+   this.tables = t;
+  }
+  return t;
+ }
+
+ @Override public boolean equals(Object o) {
+  if (!(o instanceof Topology)) {
+   return false;
+  }
+  Topology other = (Topology) o;
+  return other.rows == this.rows && other.cols == this.cols && other.neighbourhood == this.neighbourhood
+          && other.torus == this.torus && other.self == this.self;
+ }
+
+ @Override public int hashCode() {
+  return ((31 * this.rows + this.cols) * 31 + this.neighbourhood.ordinal()) * 4
+          + (this.torus ? 2 : 0) + (this.self ? 1 : 0);
+ }
+
+ @Override public String toString() {
+  return this.rows + "x" + this.cols + ":" + this.neighbourhood.name().toLowerCase()
+          + (this.torus ? ":torus" : "") + (this.self ? "" : ":sigma");
+ }
+
+ /**
+  * Per-cell toggle masks. Entry k toggles the bits maskBits[k] of
+  * word maskIndex[k] of a board, counting words row after row.
+  */
+ static final class Tables {
+
+  final int[] cellStart;
+  final int[] maskIndex;
+  final long[] maskBits;
+
+  Tables(Topology topology) {
+   int cols = topology.cols;
+   int n = topology.rows * cols;
+   int wordsPerRow = (cols + Board.WORD_BITS - 1) / Board.WORD_BITS;
+   int most = topology.neighbourhood.offsets.length + 1;
+   this.cellStart = new int[n + 1];
+   int[] index = new int[n * most];
+   long[] bits = new long[n * most];
+   int k = 0;
+   for (int i = 0; i < n; i++) {
+    this.cellStart[i] = k;
+    //Neighbours come sorted, so cells of the same word are next to each other
+    for (int cell : topology.neighbours(i / cols, i % cols)) {
+     int word = (cell / cols) * wordsPerRow + ((cell % cols) >>> 6);
+     if (k > this.cellStart[i] && index[k - 1] == word) {
+      bits[k - 1] |= 1L << (cell % cols);
+     } else {
+      index[k] = word;
+      bits[k] = 1L << (cell % cols);
+      k++;
+     }
+    }
+   }
+   this.cellStart[n] = k;
+   this.maskIndex = Arrays.copyOf(index, k);
+   this.maskBits = Arrays.copyOf(bits, k);
+  }
+ }
+}
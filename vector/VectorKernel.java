@@ -0,0 +1,76 @@
+/**
+ * @(#)VectorKernel.java
+ *
+ *
+ * @author
+ * @version 1.00 2017/2/19
+ */
+
+//Vector API
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+
+/**
+ * The {@link RowKernel} written with the <code>LongVector</code> of the
+ * incubating Vector API. Each step works on as many words as the widest
+ * registers of the CPU hold: 4 with AVX2, 8 with AVX-512. The words
+ * left over at the end of a run go through scalar code.
+ * <p>
+ * This class needs Java 17 or later and the module
+ * <code>jdk.incubator.vector</code>, so it lives outside <code>src</code>
+ * and is loaded by name; see {@link RowKernel} for how to build it.
+ *
+ */
+public class VectorKernel implements RowKernel {
+
+ /** Widest vector shape of this CPU */
+ private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+ @Override public void xor(long[] dst, int d, long[] src, int s, int len) {
+  int i = 0;
+  for (int end = SPECIES.loopBound(len); i < end; i += SPECIES.length()) {
+   LongVector.fromArray(SPECIES, dst, d + i)
+           .lanewise(VectorOperators.XOR, LongVector.fromArray(SPECIES, src, s + i))
+           .intoArray(dst, d + i);
+  }
+  for (; i < len; i++) {
+   dst[d + i] ^= src[s + i];
+  }
+ }
+
+ @Override public void sum(long[] out, int o, long[] a, int ai, long[] b, int bi, int len) {
+  int i = 0;
+  for (int end = SPECIES.loopBound(len); i < end; i += SPECIES.length()) {
+   LongVector.fromArray(SPECIES, a, ai + i)
+           .lanewise(VectorOperators.XOR, LongVector.fromArray(SPECIES, b, bi + i))
+           .intoArray(out, o + i);
+  }
+  for (; i < len; i++) {
+   out[o + i] = a[ai + i] ^ b[bi + i];
+  }
+ }
+
+ @Override public long andXor(long[] a, int ai, long[] b, int bi, int len) {
+  int i = 0;
+  long acc = 0L;
+  int end = SPECIES.loopBound(len);
+  if (end > 0) {
+   LongVector lanes = LongVector.zero(SPECIES);
+   for (; i < end; i += SPECIES.length()) {
+    lanes = lanes.lanewise(VectorOperators.XOR,
+            LongVector.fromArray(SPECIES, a, ai + i).and(LongVector.fromArray(SPECIES, b, bi + i)));
+   }
+   acc = lanes.reduceLanes(VectorOperators.XOR);
+  }
+  for (; i < len; i++) {
+   acc ^= a[ai + i] & b[bi + i];
+  }
+  return acc;
+ }
+
+ @Override public String getName() {
+  return "vector";
+ }
+}